@@ -44,11 +44,15 @@ package de.xplib.execution;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * Abstract base implementation of the {@link Executable} interface.
@@ -67,16 +71,123 @@ public abstract class AbstractExecutable implements Executable {
     private List<String> command;
 
     /**
-     * Exit code returned from the command line tool.
+     * Result of the last completed execution.
      */
-    private Integer exitCode = null;
+    private volatile ExecutionResult result = null;
 
     /**
-     * Input stream representing STDERR of the underlying process.
+     * Data for STDIN of the underlying process or <b>null</b> when STDIN
+     * should be empty.
      */
-    private InputStream stderr = null;
+    private InputSource stdinSource = null;
 
-    private List<Integer> validExitCodes = new ArrayList<Integer>();
+    /**
+     * Sink for STDOUT of the underlying process or <b>null</b> when the output
+     * should be discarded.
+     */
+    private OutputSink stdoutSink = null;
+
+    /**
+     * Sink for STDERR of the underlying process or <b>null</b> when the output
+     * should be captured for the error message.
+     */
+    private OutputSink stderrSink = null;
+
+    /**
+     * Destination of STDOUT, {@link ProcessBuilder.Redirect#PIPE} when the
+     * output should be drained into the STDOUT sink.
+     */
+    private ProcessBuilder.Redirect stdoutRedirect =
+            ProcessBuilder.Redirect.PIPE;
+
+    /**
+     * Destination of STDERR, {@link ProcessBuilder.Redirect#PIPE} when the
+     * output should be drained into the STDERR sink.
+     */
+    private ProcessBuilder.Redirect stderrRedirect =
+            ProcessBuilder.Redirect.PIPE;
+
+    /**
+     * Strategy used by all executables created after the last call to
+     * {@link #setDefaultOutputPumper(OutputPumper)}.
+     */
+    private static volatile OutputPumper defaultOutputPumper =
+            ThreadPoolOutputPumper.getDefault();
+
+    /**
+     * Strategy used to drain STDOUT and STDERR of the underlying process.
+     */
+    private OutputPumper outputPumper = defaultOutputPumper;
+
+    /**
+     * Cache for the executable existence check.
+     */
+    private ValidationCache validationCache = ValidationCache.getDefault();
+
+    /**
+     * Wall clock timeout in nano seconds, <b>0</b> means no timeout.
+     */
+    private long timeoutNanos = 0;
+
+    /**
+     * Idle output timeout in nano seconds, <b>0</b> means no timeout.
+     */
+    private long idleTimeoutNanos = 0;
+
+    /**
+     * Time between termination request and forcible kill on timeout.
+     */
+    private long killGraceNanos = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Classifies the exit codes returned from the command line tool.
+     */
+    private volatile ExitCodeMatcher exitCodes = ExitCodeMatcher.none();
+
+    /**
+     * Cache for the results of this deterministic executable or <b>null</b>.
+     */
+    private ResultCache resultCache = null;
+
+    /**
+     * Group used to coalesce identical running executions or <b>null</b>.
+     */
+    private SingleFlight singleFlight = null;
+
+    /**
+     * Names of the environment variables that influence the result.
+     */
+    private final List<String> cacheEnvironment = new ArrayList<String>();
+
+    /**
+     * Files whose content influences the result.
+     */
+    private final List<File> cacheInputs = new ArrayList<File>();
+
+    /**
+     * State store for incremental execution or <b>null</b>.
+     */
+    private IncrementalState incrementalState = null;
+
+    /**
+     * Files read by the command line tool in incremental mode.
+     */
+    private final List<File> incrementalInputs = new ArrayList<File>();
+
+    /**
+     * Files written by the command line tool in incremental mode.
+     */
+    private final List<File> incrementalOutputs = new ArrayList<File>();
+
+    /**
+     * Registry that receives the metrics of this executable or <b>null</b>.
+     */
+    private ExecutionMetrics metrics = ExecutionMetrics.getDefault();
+
+    /**
+     * Samples the resource usage of the process or <b>null</b>.
+     */
+    private ResourceSampler resourceSampler = null;
 
     /**
      * Constructs a new executable for the given executable name.
@@ -97,14 +208,16 @@ public abstract class AbstractExecutable implements Executable {
     }
 
     /**
-     * Constructs a new executable instance.
+     * Constructs a new executable instance. The command line and the valid
+     * exit codes of the given executable will be copied, so that changes of
+     * one executable never affect the other.
      *
      * @param executable A different/preconfigured executable.
      */
     public AbstractExecutable(Executable executable) {
-        this(executable.getCommandLine());
-        
-        this.validExitCodes = executable.getValidExitCodes();
+        this(new ArrayList<String>(executable.getCommandLine()));
+
+        this.exitCodes = executable.getExitCodeMatcher();
     }
 
     /**
@@ -115,10 +228,32 @@ public abstract class AbstractExecutable implements Executable {
      */
     @Override
     public List<Integer> getValidExitCodes() {
-        if (this.validExitCodes.isEmpty()) {
-            return new ArrayList<Integer>();
-        }
-        return this.validExitCodes;
+        return this.exitCodes.toList();
+    }
+
+    /**
+     * Returns the matcher that classifies the exit codes of the wrapped cli
+     * script.
+     *
+     * @return The exit code matcher.
+     */
+    @Override
+    public ExitCodeMatcher getExitCodeMatcher() {
+        return this.exitCodes;
+    }
+
+    /**
+     * Replaces the valid exit codes of the wrapped cli script with the given
+     * matcher.
+     *
+     * @param matcher The exit code matcher.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setExitCodeMatcher(ExitCodeMatcher matcher) {
+        this.exitCodes = matcher;
+        return this;
     }
 
     /**
@@ -166,12 +301,304 @@ public abstract class AbstractExecutable implements Executable {
      */
     @Override
     public Executable addRegularExitCode(Integer regularExitCode) {
-        if (!this.validExitCodes.contains(regularExitCode)) {
-            this.validExitCodes.add(regularExitCode);
-        }
+        this.exitCodes = this.exitCodes.with(regularExitCode);
+        return this;
+    }
+
+    /**
+     * Sets the data the cli tool reads from STDIN. The data is written while
+     * the output is drained, so that large inputs never have to be buffered
+     * completely. By default STDIN is closed immediately.
+     *
+     * @param source The STDIN data.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStdin(InputSource source) {
+        this.stdinSource = source;
+        return this;
+    }
+
+    /**
+     * Sets the sink that receives everything the cli tool writes to STDOUT.
+     * By default STDOUT will be discarded.
+     *
+     * @param sink The consumer for STDOUT.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStdout(OutputSink sink) {
+        this.stdoutSink = sink;
+        return this;
+    }
+
+    /**
+     * Sets the sink that receives everything the cli tool writes to STDERR.
+     * By default the last 64 KiB of STDERR will be captured in a
+     * {@link TailOutputSink} and used as error message when the cli tool
+     * returns an invalid exit code.
+     *
+     * @param sink The consumer for STDERR.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStderr(OutputSink sink) {
+        this.stderrSink = sink;
+        return this;
+    }
+
+    /**
+     * Lets the operating system write STDOUT directly to the given
+     * destination, for example
+     * {@link ProcessBuilder.Redirect#to(java.io.File)}, so that the output
+     * never passes through the virtual machine. Any
+     * configured STDOUT sink receives no output. Use a {@link TeeOutputSink}
+     * instead when the output is also needed in the virtual machine.
+     *
+     * @param redirect The STDOUT destination.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStdoutRedirect(ProcessBuilder.Redirect redirect) {
+        this.stdoutRedirect = redirect;
+        return this;
+    }
+
+    /**
+     * Lets the operating system write STDERR directly to the given
+     * destination. Any configured STDERR sink receives no output and error
+     * messages will not contain the STDERR text.
+     *
+     * @param redirect The STDERR destination.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStderrRedirect(ProcessBuilder.Redirect redirect) {
+        this.stderrRedirect = redirect;
+        return this;
+    }
+
+    /**
+     * Sets the strategy used to drain STDOUT and STDERR of the underlying
+     * process while it is running.
+     *
+     * @param outputPumper The output draining strategy.
+     *
+     * @return The entire executable.
+     */
+    public Executable setOutputPumper(OutputPumper outputPumper) {
+        this.outputPumper = outputPumper;
+        return this;
+    }
+
+    /**
+     * Kills the cli tool, including all processes started by it, when it runs
+     * longer than the given timeout. A timeout of <b>0</b> disables this limit.
+     *
+     * @param timeout The wall clock timeout.
+     * @param unit Time unit of the timeout.
+     *
+     * @return The entire executable.
+     */
+    public Executable setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(Math.max(0, timeout));
+        return this;
+    }
+
+    /**
+     * Kills the cli tool, including all processes started by it, when it
+     * writes neither to STDOUT nor to STDERR for the given timeout. A timeout
+     * of <b>0</b> disables this limit.
+     *
+     * @param timeout The idle output timeout.
+     * @param unit Time unit of the timeout.
+     *
+     * @return The entire executable.
+     */
+    public Executable setIdleTimeout(long timeout, TimeUnit unit) {
+        this.idleTimeoutNanos = unit.toNanos(Math.max(0, timeout));
+        return this;
+    }
+
+    /**
+     * Sets the time between the termination request and the forcible kill
+     * of a cli tool that has timed out.
+     *
+     * @param grace The grace period.
+     * @param unit Time unit of the grace period.
+     *
+     * @return The entire executable.
+     */
+    public Executable setKillGracePeriod(long grace, TimeUnit unit) {
+        this.killGraceNanos = unit.toNanos(Math.max(0, grace));
+        return this;
+    }
+
+    /**
+     * Marks this executable as deterministic and sets the cache for its
+     * results. When the cache contains a result for the same command line,
+     * environment variables, executable and input files, no process will be
+     * started at all and the cached output is written into the configured
+     * sinks. Executables that read STDIN or redirect STDOUT or STDERR are
+     * never cached. Pass <b>null</b> to disable caching.
+     *
+     * @param cache The result cache.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable setResultCache(ResultCache cache) {
+        this.resultCache = cache;
+        return this;
+    }
+
+    /**
+     * Sets the group used to coalesce identical executions. When an
+     * execution of the same command line is already running in the group,
+     * this executable waits for it and receives a copy of its output instead
+     * of starting a process. Pass <b>null</b> to disable coalescing.
+     *
+     * @param group The single flight group.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable setSingleFlight(SingleFlight group) {
+        this.singleFlight = group;
+        return this;
+    }
+
+    /**
+     * Declares an environment variable whose value influences the result.
+     *
+     * @param name Name of the environment variable.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable addCacheEnvironment(String name) {
+        this.cacheEnvironment.add(name);
+        return this;
+    }
+
+    /**
+     * Declares an input file whose content influences the result.
+     *
+     * @param file The input file.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable addCacheInput(File file) {
+        this.cacheInputs.add(file);
+        return this;
+    }
+
+    /**
+     * Enables incremental execution. When the command line, the executable
+     * and all declared input files are unchanged since the last successful
+     * execution recorded in the given store, and all declared output files
+     * still exist, no process will be started and the recorded exit code is
+     * returned with empty output. Pass <b>null</b> to disable incremental
+     * execution. An incremental execution must not have a STDIN source,
+     * declare the file that feeds STDIN as input instead.
+     *
+     * @param state The incremental state store.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable setIncrementalState(IncrementalState state) {
+        this.incrementalState = state;
+        return this;
+    }
+
+    /**
+     * Declares a file read by the command line tool in incremental mode.
+     *
+     * @param file The input file.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable addIncrementalInput(File file) {
+        this.incrementalInputs.add(file);
+        return this;
+    }
+
+    /**
+     * Declares a file written by the command line tool in incremental mode.
+     *
+     * @param file The output file.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable addIncrementalOutput(File file) {
+        this.incrementalOutputs.add(file);
+        return this;
+    }
+
+    /**
+     * Sets the registry that receives the spawn, run and drain times and the
+     * exit codes of this executable. Pass <b>null</b> to disable metrics.
+     *
+     * @param metrics The metrics registry.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable setMetrics(ExecutionMetrics metrics) {
+        this.metrics = metrics;
         return this;
     }
 
+    /**
+     * Sets the sampler that collects CPU time, peak memory and storage I/O
+     * of the process while it runs. The result exposes the collected usage
+     * through {@link ExecutionResult#getResourceUsage()}. Pass <b>null</b>
+     * to disable sampling.
+     *
+     * @param sampler The resource sampler.
+     *
+     * @return The entire executable.
+     */
+    public AbstractExecutable setResourceSampler(ResourceSampler sampler) {
+        this.resourceSampler = sampler;
+        return this;
+    }
+
+    /**
+     * Returns the registry that receives the metrics of this executable or
+     * <b>null</b>.
+     *
+     * @return ExecutionMetrics
+     */
+    ExecutionMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Sets the cache used to memoize the executable existence check. Use a
+     * cache with a time to live of <b>0</b> to check on every execution.
+     *
+     * @param validationCache The validation cache.
+     *
+     * @return The entire executable.
+     */
+    public Executable setValidationCache(ValidationCache validationCache) {
+        this.validationCache = validationCache;
+        return this;
+    }
+
+    /**
+     * Sets the output draining strategy for all executables created after this
+     * call, for example a shared {@link ReactorOutputPumper} when many
+     * processes run concurrently.
+     *
+     * @param outputPumper The output draining strategy.
+     */
+    public static void setDefaultOutputPumper(OutputPumper outputPumper) {
+        defaultOutputPumper = outputPumper;
+    }
+
     /**
      * Template method that will be called by this class' exec method.
      *
@@ -193,13 +620,26 @@ public abstract class AbstractExecutable implements Executable {
      */
     @Override
     public void exec() throws ExecutionException {
+        if (this.resultCache != null
+                || this.singleFlight != null
+                || this.incrementalState != null) {
+            this.complete(join(this.launch()));
+            return;
+        }
+
         this.validate();
         try {
-            this.exitCode = this.doExecute(this.getProcess());
+            Execution execution = this.start(null);
+
+            int code = this.doExecute(execution.getProcess());
 
-            if (!this.validExitCodes.contains(this.exitCode)) {
-                throw new ExecutionException(this.getStderrText());
+            ExecutionResult drained;
+            try {
+                drained = execution.await(code);
+            } catch (IOException ex) {
+                throw new ExecutionException(ex);
             }
+            this.complete(drained);
         } catch (IOException ex) {
             throw new Error(ex);
         } catch (InterruptedException ex) {
@@ -207,6 +647,56 @@ public abstract class AbstractExecutable implements Executable {
         }
     }
 
+    /**
+     * Starts the underlying command line tool in the common fork join pool.
+     *
+     * @return A future for the result of this execution.
+     * @see #execAsync(Executor)
+     */
+    public CompletableFuture<ExecutionResult> execAsync() {
+        return this.execAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Starts the underlying command line tool through the given executor and
+     * returns immediately. The executor is only used to launch the process,
+     * completion is signaled by the operating system, so that no thread
+     * blocks while the process is running. The returned future completes
+     * exceptionally with an {@link ExecutionException} when the execution
+     * fails, also when the output cannot be drained into the sinks.
+     *
+     * @param executor The executor used to launch the process.
+     *
+     * @return A future for the result of this execution.
+     */
+    public CompletableFuture<ExecutionResult> execAsync(Executor executor) {
+        CompletableFuture<ExecutionResult> result =
+            new CompletableFuture<ExecutionResult>();
+
+        CompletableFuture
+            .supplyAsync(this::launch, executor)
+            .thenCompose(Function.identity())
+            .thenApply(this::complete)
+            .whenComplete((completed, failure) -> {
+                if (failure == null) {
+                    result.complete(completed);
+                } else {
+                    result.completeExceptionally(wrap(failure));
+                }
+            });
+        return result;
+    }
+
+    /**
+     * Returns the result of the last completed execution or <b>null</b> when
+     * this executable has not completed yet.
+     *
+     * @return ExecutionResult
+     */
+    public ExecutionResult getResult() {
+        return this.result;
+    }
+
     /**
      * Returns the exit code returned by the underlying command line tool or
      * throws an exception when the command line tool is still running.
@@ -217,25 +707,495 @@ public abstract class AbstractExecutable implements Executable {
      */
     @Override
     public int exitCode() {
-        if (this.exitCode == null) {
+        ExecutionResult last = this.result;
+        if (last == null) {
             throw new ExecutionException("Process still running...");
         }
-        return this.exitCode;
+        return last.getExitCode();
+    }
+
+    /**
+     * Validates and starts the underlying command line application, skips an
+     * up to date incremental execution, replays a cached result or joins an
+     * identical running execution, and wraps all checked exceptions in an
+     * {@link ExecutionException}.
+     *
+     * @return A future for the result of this execution.
+     * @throws ExecutionException When the execution cannot be started.
+     */
+    private CompletableFuture<ExecutionResult> launch()
+            throws ExecutionException {
+        this.validate();
+        try {
+            if (this.incrementalState == null) {
+                return this.share();
+            }
+            if (this.stdinSource != null) {
+                throw new ValidationException(
+                    "Incremental execution cannot fingerprint STDIN, declare "
+                    + "the STDIN file as incremental input instead."
+                );
+            }
+
+            final IncrementalState.Target target = this.incrementalState.target(
+                this.command,
+                this.incrementalInputs,
+                this.incrementalOutputs
+            );
+            if (target.isUpToDate()) {
+                return CompletableFuture.completedFuture(this.replay(
+                    new RecordedResult(
+                        target.getExitCode(),
+                        new byte[0],
+                        new byte[0]
+                    )
+                ));
+            }
+            return this.share().thenApply(
+                result -> this.remember(target, result)
+            );
+        } catch (IOException ex) {
+            throw new ExecutionException(ex);
+        }
+    }
+
+    /**
+     * Replays a cached result, joins an identical running execution or
+     * starts the underlying command line application.
+     *
+     * @return A future for the result of this execution.
+     * @throws IOException If the process cannot be started.
+     */
+    private CompletableFuture<ExecutionResult> share() throws IOException {
+        String key = null;
+        if (this.resultCache != null && this.isReplayable()) {
+            key = this.resultCache.key(
+                this.command,
+                this.cacheEnvironment,
+                this.cacheInputs
+            );
+            RecordedResult cached = this.resultCache.get(key);
+            if (cached != null) {
+                return CompletableFuture.completedFuture(
+                    this.replay(cached)
+                );
+            }
+        }
+
+        SingleFlight.Flight flight = this.joinFlight();
+        if (flight != null && !flight.isLeader()) {
+            final String cacheKey = key;
+            return flight.getFuture().thenCompose(
+                shared -> this.follow(cacheKey, shared)
+            );
+        }
+        return this.run(key, flight);
+    }
+
+    /**
+     * Joins the running execution of an identical command line, when this
+     * executable uses a single flight group and its input and output can be
+     * shared.
+     *
+     * @return The flight or <b>null</b>.
+     */
+    private SingleFlight.Flight joinFlight() {
+        if (this.singleFlight == null || !this.isReplayable()) {
+            return null;
+        }
+        return this.singleFlight.join(this.command);
+    }
+
+    /**
+     * Returns <b>true</b> when a STDIN source was configured.
+     *
+     * @return boolean
+     */
+    boolean hasStdin() {
+        return this.stdinSource != null;
+    }
+
+    /**
+     * Returns <b>true</b> when the output of this executable can be recorded
+     * and replayed, which requires that it reads no STDIN and that STDOUT
+     * and STDERR are not redirected.
+     *
+     * @return boolean
+     */
+    private boolean isReplayable() {
+        return this.stdinSource == null
+            && this.stdoutRedirect == ProcessBuilder.Redirect.PIPE
+            && this.stderrRedirect == ProcessBuilder.Redirect.PIPE;
+    }
+
+    /**
+     * Replays the result shared by the leader of a flight, or starts an own
+     * process when the result could not be shared.
+     *
+     * @param key The result cache key or <b>null</b>.
+     * @param shared The shared result or <b>null</b>.
+     *
+     * @return A future for the result of this execution.
+     * @throws ExecutionException When the execution cannot be started.
+     */
+    private CompletableFuture<ExecutionResult> follow(
+            String key,
+            RecordedResult shared
+    ) throws ExecutionException {
+        try {
+            if (shared != null) {
+                return CompletableFuture.completedFuture(this.replay(shared));
+            }
+            return this.run(key, null);
+        } catch (IOException ex) {
+            throw new ExecutionException(ex);
+        }
+    }
+
+    /**
+     * Starts the underlying command line application and records its output
+     * for the result cache and for the callers waiting on the given flight.
+     * When the output of a started process cannot be drained, for example
+     * because a sink of this executable fails, the flight ends without a
+     * result, so that the waiting callers start their own processes.
+     *
+     * @param key The result cache key or <b>null</b>.
+     * @param flight The flight led by this execution or <b>null</b>.
+     *
+     * @return A future for the result of this execution.
+     * @throws IOException If the process cannot be started.
+     */
+    private CompletableFuture<ExecutionResult> run(
+            final String key,
+            final SingleFlight.Flight flight
+    ) throws IOException {
+        final OutputRecording recording;
+        if (flight != null) {
+            recording = flight.newRecording();
+        } else if (key != null) {
+            recording = this.resultCache.newRecording();
+        } else {
+            recording = null;
+        }
+
+        CompletableFuture<ExecutionResult> completion;
+        try {
+            completion = this.start(recording).completion();
+        } catch (IOException ex) {
+            if (flight != null) {
+                flight.fail(ex);
+            }
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (flight != null) {
+                flight.fail(ex);
+            }
+            throw ex;
+        }
+
+        return completion
+            .thenApply(result -> this.record(key, flight, recording, result))
+            .whenComplete((result, failure) -> {
+                if (failure != null && flight != null) {
+                    flight.complete(null);
+                }
+            });
+    }
+
+    /**
+     * Shares the recorded output of a finished execution with the waiting
+     * callers and stores it in the result cache.
+     *
+     * @param key The result cache key or <b>null</b>.
+     * @param flight The flight led by this execution or <b>null</b>.
+     * @param recording The output recording or <b>null</b>.
+     * @param result The result of the execution.
+     *
+     * @return The result with the configured output sinks.
+     */
+    private ExecutionResult record(
+            String key,
+            SingleFlight.Flight flight,
+            OutputRecording recording,
+            ExecutionResult result
+    ) {
+        if (recording == null) {
+            return result;
+        }
+
+        RecordedResult recorded = recording.toRecordedResult(result);
+        if (flight != null) {
+            flight.complete(recorded);
+        }
+        if (key != null
+                && recorded != null
+                && result.getOutcome() != ExitCodeOutcome.FAILURE) {
+            this.resultCache.put(key, recorded);
+        }
+        return recording.restore(result);
+    }
+
+    /**
+     * Records a finished incremental execution in the state store, unless it
+     * failed or timed out.
+     *
+     * @param target The fingerprinted invocation.
+     * @param result The result of the execution.
+     *
+     * @return The unchanged result.
+     */
+    private ExecutionResult remember(
+            IncrementalState.Target target,
+            ExecutionResult result
+    ) {
+        if (result.isTimedOut()
+                || result.getOutcome() == ExitCodeOutcome.FAILURE) {
+            return result;
+        }
+        try {
+            target.record(result.getExitCode());
+        } catch (IOException e) {
+            // Ignore, the next execution will simply not be skipped
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the given future and rethrows the cause of a failure.
+     *
+     * @param future The future of an execution.
+     *
+     * @return ExecutionResult
+     * @throws ExecutionException When the execution failed.
+     */
+    private static ExecutionResult join(
+            CompletableFuture<ExecutionResult> future
+    ) throws ExecutionException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = wrap(ex);
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+    }
+
+    /**
+     * Unwraps the failure of a future and wraps checked exceptions, like a
+     * failed drain of the output, in an {@link ExecutionException}.
+     *
+     * @param failure The failure of a future.
+     *
+     * @return Throwable
+     */
+    private static Throwable wrap(Throwable failure) {
+        Throwable cause = failure;
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException || cause instanceof Error) {
+            return cause;
+        }
+        return new ExecutionException(cause);
+    }
+
+    /**
+     * Writes a recorded output into the configured sinks and returns a result
+     * for it, without starting a process.
+     *
+     * @param recorded The cached or shared result.
+     *
+     * @return ExecutionResult
+     * @throws IOException If a sink cannot consume the output.
+     */
+    private ExecutionResult replay(RecordedResult recorded)
+            throws IOException {
+        byte[] bytes = recorded.getStdout();
+        OutputSink stdout = this.getStdoutSink();
+        stdout.write(bytes, 0, bytes.length);
+        stdout.close();
+
+        bytes = recorded.getStderr();
+        OutputSink stderr = this.getStderrSink();
+        stderr.write(bytes, 0, bytes.length);
+        stderr.close();
+
+        long now = System.nanoTime();
+        return new ExecutionResult(
+            new ArrayList<String>(this.command),
+            recorded.getExitCode(),
+            this.exitCodes.outcome(recorded.getExitCode()),
+            false,
+            stdout,
+            stderr,
+            now,
+            now,
+            now
+        );
+    }
+
+    /**
+     * Starts the underlying command line application and the transfer of its
+     * output.
+     *
+     * @param recording The cache recording or <b>null</b>.
+     *
+     * @return The running execution.
+     * @throws IOException If the process cannot be started.
+     */
+    private Execution start(OutputRecording recording)
+            throws IOException {
+        ProcessBuilder builder = this.newProcessBuilder();
+
+        long startNanos = System.nanoTime();
+        Process process;
+        try {
+            process = ProcessLauncher.start(builder);
+        } catch (IOException ex) {
+            if (this.metrics != null) {
+                this.metrics.command(builder.command()).spawnFailed();
+            }
+            throw ex;
+        }
+
+        return this.attach(builder.command(), process, startNanos, recording);
     }
 
     /**
-     * Returns a native process for the underlying command line application.
+     * Returns a process builder for a copy of the current command line, with
+     * all configured redirects applied.
      *
-     * @return The native process.
-     * @throws
+     * @return ProcessBuilder
      */
-    private Process getProcess() throws IOException {
-        ProcessBuilder builder = new ProcessBuilder(this.command);
-        Process process = builder.start();
+    ProcessBuilder newProcessBuilder() {
+        ProcessBuilder builder = new ProcessBuilder(
+            new ArrayList<String>(this.command)
+        );
+        if (this.stdinSource != null) {
+            builder.redirectInput(this.stdinSource.getRedirect());
+        }
+        builder.redirectOutput(this.stdoutRedirect);
+        builder.redirectError(this.stderrRedirect);
+        return builder;
+    }
 
-        this.stderr = process.getErrorStream();
+    /**
+     * Starts feeding the input, draining the output of the given process and
+     * watching its timeouts.
+     *
+     * @param commandLine The executed command line.
+     * @param process The native process.
+     * @param startNanos Nano time before the process was started.
+     *
+     * @return The running execution.
+     */
+    Execution attach(
+            List<String> commandLine,
+            Process process,
+            long startNanos
+    ) {
+        return this.attach(commandLine, process, startNanos, null);
+    }
 
-        return process;
+    /**
+     * Starts feeding the input, draining the output of the given process and
+     * watching its timeouts. The output will be captured for the given cache
+     * recording.
+     *
+     * @param commandLine The executed command line.
+     * @param process The native process.
+     * @param startNanos Nano time before the process was started.
+     * @param recording The cache recording or <b>null</b>.
+     *
+     * @return The running execution.
+     */
+    private Execution attach(
+            List<String> commandLine,
+            Process process,
+            long startNanos,
+            OutputRecording recording
+    ) {
+        OutputSink stdout = this.getStdoutSink();
+        OutputSink stderr = this.getStderrSink();
+        if (recording != null) {
+            stdout = recording.captureStdout(stdout);
+            stderr = recording.captureStderr(stderr);
+        }
+
+        Execution execution = new Execution(
+            commandLine,
+            process,
+            this.stdinSource,
+            stdout,
+            stderr,
+            this.outputPumper,
+            this.exitCodes,
+            startNanos,
+            this.metrics == null ? null : this.metrics.command(commandLine),
+            this.resourceSampler
+        );
+        if (this.timeoutNanos > 0 || this.idleTimeoutNanos > 0) {
+            execution.watch(
+                TimerWheel.getDefault(),
+                this.timeoutNanos,
+                this.idleTimeoutNanos,
+                this.killGraceNanos
+            );
+        }
+        return execution;
+    }
+
+    /**
+     * Stores the given result and checks the returned exit code.
+     *
+     * @param result The result of a completed execution.
+     *
+     * @return The given result.
+     * @throws ExecutionFailedException When the exit code is not a valid exit
+     *         code.
+     */
+    ExecutionResult complete(ExecutionResult result)
+            throws ExecutionException {
+        this.result = result;
+
+        if (result.isTimedOut()) {
+            throw new ExecutionTimeoutException(
+                result.getCommandLine().get(0),
+                result.getRunTime(TimeUnit.MILLISECONDS)
+            );
+        }
+        if (result.getOutcome() == ExitCodeOutcome.FAILURE) {
+            throw new ExecutionFailedException(result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sink for STDOUT of the next execution.
+     *
+     * @return OutputSink
+     */
+    private OutputSink getStdoutSink() {
+        if (this.stdoutSink == null) {
+            return new DiscardOutputSink();
+        }
+        return this.stdoutSink.forExecution();
+    }
+
+    /**
+     * Returns the sink for STDERR of the next execution. When no sink was
+     * configured, this method returns a fresh capture sink for the error
+     * message.
+     *
+     * @return OutputSink
+     */
+    private OutputSink getStderrSink() {
+        if (this.stderrSink == null) {
+            return new TailOutputSink();
+        }
+        return this.stderrSink.forExecution();
     }
 
     /**
@@ -244,7 +1204,7 @@ public abstract class AbstractExecutable implements Executable {
      *
      * @throws ExecutionException
      */
-    private void validate() throws ExecutionException {
+    void validate() throws ExecutionException {
         this.validateExecutableExists();
     }
 
@@ -258,7 +1218,7 @@ public abstract class AbstractExecutable implements Executable {
         if (this.command.isEmpty()) {
             throw new ExecutableNotFoundException();
         }
-        if (!new File(this.command.get(0)).exists()) {
+        if (!this.validationCache.exists(this.command.get(0))) {
             throw new ExecutableNotFoundException(this.command.get(0));
         }
     }
@@ -273,19 +1233,4 @@ public abstract class AbstractExecutable implements Executable {
             throw new RuntimeException();
         }
     }
-
-    private String getStderrText() throws IOException {
-        if (this.stderr == null) {
-            return "";
-        }
-
-        StringBuilder sb = new StringBuilder();
-        char[] c = new char[1024];
-
-        InputStreamReader reader = new InputStreamReader(this.stderr);
-        while (reader.read(c, 0, 1024) >= 0) {
-            sb.append(new String(c));
-        }
-        return sb.toString().trim();
-    }
 }
@@ -0,0 +1,180 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Abstract base implementation of the {@link OutputPump} interface.
+ *
+ * A pump keeps reading and discarding after the sink has failed, so that a
+ * broken sink can never block the underlying process on a full pipe. The
+ * first failure of the sink, checked or not, is reported when the pump
+ * completes.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+abstract class AbstractOutputPump implements OutputPump {
+
+    /**
+     * The drained process stream.
+     */
+    protected final InputStream stream;
+
+    /**
+     * The consumer for the read bytes.
+     */
+    private final OutputSink sink;
+
+    /**
+     * Completed when the stream was drained completely.
+     */
+    private final CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+    /**
+     * First failure that occured while pumping or <b>null</b>.
+     */
+    private volatile IOException failure = null;
+
+    /**
+     * Constructs a new pump for the given stream and sink.
+     *
+     * @param stream STDOUT or STDERR of a running process.
+     * @param sink The consumer for the read bytes.
+     */
+    AbstractOutputPump(InputStream stream, OutputSink sink) {
+        this.stream = stream;
+        this.sink   = sink;
+    }
+
+    /**
+     * Blocks until the stream was drained completely.
+     *
+     * @throws IOException If reading the stream or writing the sink failed.
+     * @throws InterruptedException If the current thread was interrupted.
+     */
+    @Override
+    public void await() throws IOException, InterruptedException {
+        try {
+            this.done.get();
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    /**
+     * Returns a future that completes when the stream was drained.
+     *
+     * @return CompletableFuture<Void>
+     */
+    @Override
+    public CompletableFuture<Void> completion() {
+        return this.done;
+    }
+
+    /**
+     * Forwards the given bytes to the sink, as long as the sink has not
+     * failed before.
+     *
+     * @param buffer The read buffer.
+     * @param length Number of valid bytes in the buffer.
+     */
+    protected void write(byte[] buffer, int length) {
+        if (length == 0 || this.failure != null) {
+            return;
+        }
+        try {
+            this.sink.write(buffer, 0, length);
+        } catch (IOException e) {
+            this.fail(e);
+        } catch (RuntimeException e) {
+            this.fail(new IOException(e));
+        }
+    }
+
+    /**
+     * Remembers the first failure.
+     *
+     * @param e The occured exception.
+     */
+    protected void fail(IOException e) {
+        if (this.failure == null) {
+            this.failure = e;
+        }
+    }
+
+    /**
+     * Closes stream and sink, or aborts the sink after a failure, and
+     * completes this pump.
+     */
+    protected void finish() {
+        try {
+            if (this.failure == null) {
+                this.sink.close();
+            } else {
+                this.sink.abort(this.failure);
+            }
+        } catch (IOException e) {
+            this.fail(e);
+        } catch (RuntimeException e) {
+            this.fail(new IOException(e));
+        }
+        try {
+            this.stream.close();
+        } catch (IOException e) {
+            // Nothing we can do here
+        }
+
+        if (this.failure == null) {
+            this.done.complete(null);
+        } else {
+            this.done.completeExceptionally(this.failure);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limiter that finds the limit with additive increase and
+ * multiplicative decrease.
+ *
+ * Every command has its own latency baseline, the fastest wall time observed
+ * recently. A sample that takes longer than <em>tolerance</em> times this
+ * baseline, a failed execution, or an optional system load above the
+ * configured load per core reduces the limit by the backoff ratio. All other
+ * samples raise the limit by one per full window of successful executions,
+ * as long as the limit was actually used.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class AdaptiveConcurrencyLimiter implements ConcurrencyLimiter {
+
+    /**
+     * Linux file with the system load averages.
+     */
+    private static final Path LOADAVG = Paths.get("/proc/loadavg");
+
+    /**
+     * Minimum interval between two reads of the system load.
+     */
+    private static final long LOAD_INTERVAL_NANOS =
+            TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Factor by which a latency baseline drifts towards slower samples, so
+     * that a single lucky sample does not dominate forever.
+     */
+    private static final double BASELINE_DRIFT = 0.01;
+
+    /**
+     * Lowest allowed limit.
+     */
+    private final int minLimit;
+
+    /**
+     * Highest allowed limit.
+     */
+    private final int maxLimit;
+
+    /**
+     * The current limit, as fractional value for additive increase.
+     */
+    private double limit;
+
+    /**
+     * Factor applied to the limit on congestion.
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * Sample latency relative to the baseline that signals congestion.
+     */
+    private double tolerance = 2.0;
+
+    /**
+     * System load per processor that signals congestion, or <b>0</b> to
+     * ignore the system load.
+     */
+    private double maxLoadPerCore = 0;
+
+    /**
+     * Latency baselines per command in nano seconds.
+     */
+    private final Map<String, Double> baselines = new HashMap<String, Double>();
+
+    /**
+     * Last read system load.
+     */
+    private double load = 0;
+
+    /**
+     * Nano time of the last system load read.
+     */
+    private long loadNanos = 0;
+
+    /**
+     * Constructs a new limiter that starts with one executable per processor
+     * and never runs more than 64 executables per processor.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(
+            1,
+            Runtime.getRuntime().availableProcessors(),
+            Runtime.getRuntime().availableProcessors() * 64
+        );
+    }
+
+    /**
+     * Constructs a new limiter.
+     *
+     * @param minLimit Lowest allowed limit.
+     * @param initialLimit The start limit.
+     * @param maxLimit Highest allowed limit.
+     */
+    public AdaptiveConcurrencyLimiter(
+            int minLimit,
+            int initialLimit,
+            int maxLimit
+    ) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit    = Math.min(
+            this.maxLimit,
+            Math.max(this.minLimit, initialLimit)
+        );
+    }
+
+    /**
+     * Sets the factor applied to the limit on congestion.
+     *
+     * @param backoffRatio A value between 0.5 and 1.
+     *
+     * @return The entire limiter.
+     */
+    public synchronized AdaptiveConcurrencyLimiter setBackoffRatio(
+            double backoffRatio
+    ) {
+        this.backoffRatio = Math.min(1, Math.max(0.5, backoffRatio));
+        return this;
+    }
+
+    /**
+     * Sets the sample latency relative to the baseline that signals
+     * congestion.
+     *
+     * @param tolerance A value greater than 1.
+     *
+     * @return The entire limiter.
+     */
+    public synchronized AdaptiveConcurrencyLimiter setTolerance(
+            double tolerance
+    ) {
+        this.tolerance = Math.max(1, tolerance);
+        return this;
+    }
+
+    /**
+     * Enables the system load as additional congestion signal. Only works on
+     * systems that provide <b>/proc/loadavg</b>.
+     *
+     * @param maxLoadPerCore One minute load average per processor that
+     *        signals congestion, or <b>0</b> to ignore the system load.
+     *
+     * @return The entire limiter.
+     */
+    public synchronized AdaptiveConcurrencyLimiter setMaxLoadPerCore(
+            double maxLoadPerCore
+    ) {
+        this.maxLoadPerCore = Math.max(0, maxLoadPerCore);
+        return this;
+    }
+
+    /**
+     * Returns the current concurrency limit.
+     *
+     * @return int
+     */
+    @Override
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * Feeds the outcome of a completed execution into this limiter.
+     *
+     * @param command The command, the first element of the command line.
+     * @param wallNanos Wall time of the execution in nano seconds.
+     * @param success Did the execution return a valid exit code?
+     * @param inFlight Number of executables that were running concurrently.
+     */
+    @Override
+    public synchronized void onSample(
+            String command,
+            long wallNanos,
+            boolean success,
+            int inFlight
+    ) {
+        boolean slow = this.isSlow(command, wallNanos);
+
+        if (!success || slow || this.isOverloaded()) {
+            this.limit = Math.max(
+                this.minLimit,
+                this.limit * this.backoffRatio
+            );
+        } else if (inFlight * 2 >= (int) this.limit) {
+            this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+        }
+    }
+
+    /**
+     * Updates the latency baseline of the given command and tests if the
+     * given sample is slower than tolerated.
+     *
+     * @param command The command, the first element of the command line.
+     * @param wallNanos Wall time of the execution in nano seconds.
+     *
+     * @return boolean
+     */
+    private boolean isSlow(String command, long wallNanos) {
+        Double baseline = this.baselines.get(command);
+        if (baseline == null || wallNanos < baseline) {
+            this.baselines.put(command, (double) wallNanos);
+            return false;
+        }
+        this.baselines.put(
+            command,
+            baseline + (wallNanos - baseline) * BASELINE_DRIFT
+        );
+        return wallNanos > baseline * this.tolerance;
+    }
+
+    /**
+     * Tests if the system load exceeds the configured load per processor.
+     *
+     * @return boolean
+     */
+    private boolean isOverloaded() {
+        if (this.maxLoadPerCore <= 0) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        if (now - this.loadNanos > LOAD_INTERVAL_NANOS) {
+            this.loadNanos = now;
+            this.load = readLoadAverage();
+        }
+        return this.load > this.maxLoadPerCore
+                * Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Returns the one minute load average of the system, or <b>0</b> when it
+     * is not available.
+     *
+     * @return double
+     */
+    private static double readLoadAverage() {
+        try {
+            String content = new String(
+                Files.readAllBytes(LOADAVG),
+                StandardCharsets.US_ASCII
+            );
+            return Double.parseDouble(content.split(" ")[0]);
+        } catch (IOException e) {
+            return 0;
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Executable implementation that never blocks the calling thread.
+ *
+ * The process is launched through a configurable executor, for example a
+ * virtual thread executor on newer virtual machines, and completion is driven
+ * by the operating system's exit notification, so no thread waits for the
+ * process. The outcome of the last execution is available as a future.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class AsyncExecutable extends AbstractExecutable {
+
+    /**
+     * The executor used to launch processes.
+     */
+    private Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * Future for the result of the last execution.
+     */
+    private volatile CompletableFuture<ExecutionResult> future = null;
+
+    /**
+     * Constructs a new executable for the given executable name.
+     *
+     * @param command Name of an executable cli tool.
+     */
+    public AsyncExecutable(String command) {
+        super(command);
+    }
+
+    /**
+     * Constructs a new executable instance.
+     *
+     * @param command List of strings that build up the command line string.
+     */
+    public AsyncExecutable(List<String> command) {
+        super(command);
+    }
+
+    /**
+     * Constructs a new executable instance.
+     *
+     * @param executable A different/preconfigured executable.
+     */
+    public AsyncExecutable(Executable executable) {
+        super(executable);
+    }
+
+    /**
+     * Sets the executor used to launch processes.
+     *
+     * @param executor The executor used to launch processes.
+     *
+     * @return The entire executable.
+     */
+    public AsyncExecutable setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Starts the execution of the underlying command line tool and returns
+     * immediately. Failures are reported through {@link #getFuture()}.
+     */
+    @Override
+    public void exec() {
+        this.future = this.execAsync(this.executor);
+    }
+
+    /**
+     * Returns the future for the result of the last execution or <b>null</b>
+     * when this executable was never executed.
+     *
+     * @return CompletableFuture<ExecutionResult>
+     */
+    public CompletableFuture<ExecutionResult> getFuture() {
+        return this.future;
+    }
+
+    /**
+     * Template methd called by the parent class.
+     *
+     * @param proc The native process instance representing the underlying,
+     *        running command line application.
+     *
+     * @return The exit code returned by the cli tool.
+     * @throws InterruptedException If the process execution fails.
+     */
+    @Override
+    protected int doExecute(Process proc) throws InterruptedException {
+        return proc.waitFor();
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single invocation of a {@link BatchExecutor}, together with the items
+ * it was responsible for.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class Batch {
+
+    /**
+     * The executable of this batch.
+     */
+    private final AbstractExecutable executable;
+
+    /**
+     * The items passed to this batch.
+     */
+    private final List<String> items;
+
+    /**
+     * The failure of the invocation or <b>null</b>.
+     */
+    private volatile Throwable failure = null;
+
+    /**
+     * Constructs a new batch.
+     *
+     * @param executable The executable of this batch.
+     * @param items The items passed to this batch.
+     */
+    Batch(AbstractExecutable executable, List<String> items) {
+        this.executable = executable;
+        this.items      = Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Returns the executable of this batch.
+     *
+     * @return AbstractExecutable
+     */
+    public AbstractExecutable getExecutable() {
+        return this.executable;
+    }
+
+    /**
+     * Returns the items passed to this batch, in input order.
+     *
+     * @return List<String>
+     */
+    public List<String> getItems() {
+        return this.items;
+    }
+
+    /**
+     * Returns the result of the invocation, or <b>null</b> when the process
+     * could not be started. A result is also available for a failed exit
+     * code.
+     *
+     * @return ExecutionResult
+     */
+    public ExecutionResult getResult() {
+        return this.executable.getResult();
+    }
+
+    /**
+     * Returns the failure of the invocation or <b>null</b> on success.
+     *
+     * @return Throwable
+     */
+    public Throwable getFailure() {
+        return this.failure;
+    }
+
+    /**
+     * Returns <b>true</b> when the invocation succeeded.
+     *
+     * @return boolean
+     */
+    public boolean isSuccessful() {
+        return this.failure == null;
+    }
+
+    /**
+     * Records the failure of the invocation.
+     *
+     * @param failure The failure of the invocation.
+     */
+    void fail(Throwable failure) {
+        this.failure = failure;
+    }
+}
@@ -0,0 +1,364 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs a command line tool for a large number of argument items, packing as
+ * many items into each invocation as the operating system allows, just like
+ * <b>xargs</b> does.
+ *
+ * Each batch starts with a fresh executable from the given factory, the
+ * items are appended as additional arguments. A batch is closed when the
+ * next item would exceed the argument size limit of the system or the
+ * optional item limit. Batches run in parallel up to the configured
+ * concurrency, the items are consumed lazily, so that the caller blocks
+ * while all permits are in use.
+ *
+ * <code>
+ * BatchResult result = new BatchExecutor(
+ *     () -> (AbstractExecutable) new DefaultExecutable("/usr/bin/phpmd")
+ *         .addArgument("text").addRegularExitCode(0)
+ * ).setConcurrency(4).execute(files);
+ *
+ * List<String> failed = result.getFailedItems();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class BatchExecutor {
+
+    /**
+     * Argument size limit used when the system limit cannot be determined.
+     */
+    private static final long DEFAULT_ARG_MAX = 128 * 1024;
+
+    /**
+     * Bytes kept free for the kernel, like <b>xargs</b> does.
+     */
+    private static final long HEADROOM = 2048;
+
+    /**
+     * Size of a pointer in the argument and environment vectors.
+     */
+    private static final int POINTER_SIZE = 8;
+
+    /**
+     * The detected system limit, <b>0</b> until detected.
+     */
+    private static volatile long systemArgMax = 0;
+
+    /**
+     * Creates the executable of a new batch.
+     */
+    private final Supplier<? extends AbstractExecutable> factory;
+
+    /**
+     * Maximum number of bytes of all arguments of a single invocation.
+     */
+    private long maxArgumentBytes = 0;
+
+    /**
+     * Maximum number of items per batch, <b>0</b> means no limit.
+     */
+    private int maxItems = 0;
+
+    /**
+     * Maximum number of concurrently running batches.
+     */
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Executor used to launch the batches.
+     */
+    private Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * Constructs a new batch executor.
+     *
+     * @param factory Creates the executable of a new batch.
+     */
+    public BatchExecutor(Supplier<? extends AbstractExecutable> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Sets the maximum number of bytes of all arguments of a single
+     * invocation, including the arguments of the executable itself. By
+     * default the system limit minus the size of the environment is used.
+     *
+     * @param bytes Maximum argument size, <b>0</b> for the system limit.
+     *
+     * @return The entire executor.
+     */
+    public BatchExecutor setMaxArgumentBytes(long bytes) {
+        this.maxArgumentBytes = Math.max(0, bytes);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of items per batch.
+     *
+     * @param maxItems Maximum number of items, <b>0</b> for no limit.
+     *
+     * @return The entire executor.
+     */
+    public BatchExecutor setMaxItems(int maxItems) {
+        this.maxItems = Math.max(0, maxItems);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of concurrently running batches.
+     *
+     * @param concurrency Maximum number of running batches.
+     *
+     * @return The entire executor.
+     */
+    public BatchExecutor setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+        return this;
+    }
+
+    /**
+     * Sets the executor used to launch the batches.
+     *
+     * @param executor The launching executor.
+     *
+     * @return The entire executor.
+     */
+    public BatchExecutor setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Runs the command line tool for all given items and blocks until all
+     * batches have finished. A failing batch does not stop the others, its
+     * failure is recorded in the returned result.
+     *
+     * @param items The argument items.
+     *
+     * @return BatchResult
+     * @throws ExecutionException When the current thread was interrupted.
+     */
+    public BatchResult execute(Iterable<String> items)
+            throws ExecutionException {
+        long limit = this.getArgumentLimit();
+        Semaphore permits = new Semaphore(this.concurrency);
+
+        List<Batch> batches = new ArrayList<Batch>();
+        List<CompletableFuture<?>> running =
+            new ArrayList<CompletableFuture<?>>();
+
+        AbstractExecutable executable = null;
+        List<String> batchItems = null;
+        long used = 0;
+
+        try {
+            for (String item : items) {
+                long cost = sizeOf(item);
+                if (executable != null
+                        && (used + cost > limit
+                            || batchItems.size() == this.maxItems)) {
+                    running.add(
+                        this.submit(executable, batchItems, batches, permits)
+                    );
+                    executable = null;
+                }
+                if (executable == null) {
+                    executable = this.factory.get();
+                    batchItems = new ArrayList<String>();
+                    used = 0;
+                    for (String argument : executable.getCommandLine()) {
+                        used += sizeOf(argument);
+                    }
+                }
+                executable.addArgument(item);
+                batchItems.add(item);
+                used += cost;
+            }
+            if (executable != null) {
+                running.add(
+                    this.submit(executable, batchItems, batches, permits)
+                );
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException(ex);
+        }
+
+        CompletableFuture.allOf(
+            running.toArray(new CompletableFuture<?>[0])
+        ).join();
+
+        return new BatchResult(batches);
+    }
+
+    /**
+     * Starts the given batch as soon as a permit is available.
+     *
+     * @param executable The executable of the batch.
+     * @param items The items of the batch.
+     * @param batches All batches, in input order.
+     * @param permits Limits the number of running batches.
+     *
+     * @return A future that completes when the batch has finished.
+     * @throws InterruptedException If the current thread was interrupted.
+     */
+    private CompletableFuture<?> submit(
+            AbstractExecutable executable,
+            List<String> items,
+            List<Batch> batches,
+            final Semaphore permits
+    ) throws InterruptedException {
+        final Batch batch = new Batch(executable, items);
+        batches.add(batch);
+
+        permits.acquire();
+        return executable.execAsync(this.executor).handle(
+            (result, failure) -> {
+                permits.release();
+                if (failure instanceof CompletionException) {
+                    failure = failure.getCause();
+                }
+                if (failure != null) {
+                    batch.fail(failure);
+                }
+                return null;
+            }
+        );
+    }
+
+    /**
+     * Returns the number of argument bytes available for a single
+     * invocation.
+     *
+     * @return long
+     */
+    private long getArgumentLimit() {
+        if (this.maxArgumentBytes > 0) {
+            return this.maxArgumentBytes;
+        }
+
+        long environment = 0;
+        for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+            environment += sizeOf(entry.getKey() + "=" + entry.getValue());
+        }
+        return Math.max(
+            HEADROOM,
+            getSystemArgMax() - environment - HEADROOM
+        );
+    }
+
+    /**
+     * Returns the number of bytes a single argument occupies on the stack of
+     * the new process.
+     *
+     * @param argument The argument.
+     *
+     * @return long
+     */
+    private static long sizeOf(String argument) {
+        return argument.getBytes(StandardCharsets.UTF_8).length
+            + 1
+            + POINTER_SIZE;
+    }
+
+    /**
+     * Returns the argument size limit of the system, as reported by
+     * <b>getconf ARG_MAX</b>. The value is detected only once.
+     *
+     * @return long
+     */
+    static long getSystemArgMax() {
+        if (systemArgMax == 0) {
+            long detected = DEFAULT_ARG_MAX;
+            try {
+                Process process = ProcessLauncher.start(
+                    new ProcessBuilder("getconf", "ARG_MAX")
+                        .redirectErrorStream(true)
+                );
+                BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(
+                        process.getInputStream(),
+                        StandardCharsets.US_ASCII
+                    )
+                );
+                try {
+                    String line = reader.readLine();
+                    if (process.waitFor() == 0 && line != null) {
+                        detected = Long.parseLong(line.trim());
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                // Ignore, fall back to the POSIX minimum of common systems
+            } catch (NumberFormatException e) {
+                // Ignore, fall back to the POSIX minimum of common systems
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            systemArgMax = detected;
+        }
+        return systemArgMax;
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Merged outcome of all invocations of a {@link BatchExecutor}.
+ *
+ * The merged STDOUT and STDERR texts concatenate the output retained by the
+ * sinks of all batches in input order, so that the output of a batch never
+ * interleaves with the output of another batch. A batch contributes only
+ * what its sinks retain, for example nothing for the default STDOUT sink
+ * and the last 64 KiB for the default STDERR sink.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class BatchResult {
+
+    /**
+     * All batches in input order.
+     */
+    private final List<Batch> batches;
+
+    /**
+     * Constructs a new batch result.
+     *
+     * @param batches All batches in input order.
+     */
+    BatchResult(List<Batch> batches) {
+        this.batches = Collections.unmodifiableList(batches);
+    }
+
+    /**
+     * Returns all batches in input order.
+     *
+     * @return List<Batch>
+     */
+    public List<Batch> getBatches() {
+        return this.batches;
+    }
+
+    /**
+     * Returns <b>true</b> when all batches succeeded.
+     *
+     * @return boolean
+     */
+    public boolean isSuccessful() {
+        return this.getFailedBatches().isEmpty();
+    }
+
+    /**
+     * Returns all failed batches in input order.
+     *
+     * @return List<Batch>
+     */
+    public List<Batch> getFailedBatches() {
+        List<Batch> failed = new ArrayList<Batch>();
+        for (Batch batch : this.batches) {
+            if (!batch.isSuccessful()) {
+                failed.add(batch);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Returns the merged classification of all batches: {@link
+     * ExitCodeOutcome#FAILURE} when a batch failed, {@link
+     * ExitCodeOutcome#WARNING} when a batch reported a warning, and {@link
+     * ExitCodeOutcome#SUCCESS} otherwise.
+     *
+     * @return ExitCodeOutcome
+     */
+    public ExitCodeOutcome getOutcome() {
+        ExitCodeOutcome outcome = ExitCodeOutcome.SUCCESS;
+        for (Batch batch : this.batches) {
+            ExecutionResult result = batch.getResult();
+            if (!batch.isSuccessful() || result == null) {
+                return ExitCodeOutcome.FAILURE;
+            }
+            if (result.getOutcome().compareTo(outcome) > 0) {
+                outcome = result.getOutcome();
+            }
+        }
+        return outcome;
+    }
+
+    /**
+     * Returns the STDOUT text of all batches in input order.
+     *
+     * @return String
+     */
+    public String getStdoutText() {
+        return this.merge(true);
+    }
+
+    /**
+     * Returns the STDERR text of all batches in input order.
+     *
+     * @return String
+     */
+    public String getStderrText() {
+        return this.merge(false);
+    }
+
+    /**
+     * Returns the items of all failed batches in input order.
+     *
+     * @return List<String>
+     */
+    public List<String> getFailedItems() {
+        List<String> items = new ArrayList<String>();
+        for (Batch batch : this.getFailedBatches()) {
+            items.addAll(batch.getItems());
+        }
+        return items;
+    }
+
+    /**
+     * Concatenates the output retained by the sinks of all batches, in input
+     * order, and decodes it with the platform's default charset.
+     *
+     * @param stdout Merge STDOUT or STDERR?
+     *
+     * @return String
+     */
+    private String merge(boolean stdout) {
+        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+        for (Batch batch : this.batches) {
+            ExecutionResult result = batch.getResult();
+            if (result == null) {
+                continue;
+            }
+            OutputSink sink = stdout ? result.getStdout() : result.getStderr();
+            byte[] bytes = sink.getTail(Integer.MAX_VALUE);
+            merged.write(bytes, 0, bytes.length);
+        }
+        return new String(merged.toByteArray(), Charset.defaultCharset());
+    }
+
+    /**
+     * Throws the failure of the first failed batch, if there is one.
+     *
+     * @return The entire result.
+     * @throws ExecutionException The failure of the first failed batch.
+     */
+    public BatchResult throwOnFailure() throws ExecutionException {
+        for (Batch batch : this.batches) {
+            Throwable failure = batch.getFailure();
+            if (failure instanceof ExecutionException) {
+                throw (ExecutionException) failure;
+            }
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+        }
+        return this;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simple pool of reusable read buffers shared by all output pumps.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class BufferPool {
+
+    /**
+     * Size of a single pooled buffer.
+     */
+    static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Maximum number of idle buffers kept in the pool.
+     */
+    private static final int MAX_POOLED = 256;
+
+    /**
+     * The idle buffers.
+     */
+    private static final ConcurrentLinkedQueue<byte[]> POOL =
+            new ConcurrentLinkedQueue<byte[]>();
+
+    /**
+     * Number of idle buffers, tracked separately because the queue's size()
+     * method is not a constant time operation.
+     */
+    private static final AtomicInteger POOLED = new AtomicInteger(0);
+
+    /**
+     * Empty ctor, this is just a utility class with static methods.
+     */
+    private BufferPool() {
+
+    }
+
+    /**
+     * Returns an idle buffer from the pool or a fresh buffer when the pool
+     * is empty.
+     *
+     * @return byte[]
+     */
+    static byte[] acquire() {
+        byte[] buffer = POOL.poll();
+        if (buffer == null) {
+            return new byte[BUFFER_SIZE];
+        }
+        POOLED.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns the given buffer into the pool. The buffer will be dropped when
+     * the pool is already full.
+     *
+     * @param buffer A buffer previously returned by {@link #acquire()}.
+     */
+    static void release(byte[] buffer) {
+        if (buffer.length != BUFFER_SIZE) {
+            return;
+        }
+        if (POOLED.incrementAndGet() > MAX_POOLED) {
+            POOLED.decrementAndGet();
+            return;
+        }
+        POOL.offer(buffer);
+    }
+}
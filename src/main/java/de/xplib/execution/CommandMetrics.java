@@ -0,0 +1,378 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution metrics of a single command line tool.
+ *
+ * The spawn time lasts from the start request until the native process
+ * exists, the run time until the process has exited and the drain time
+ * until all of its output was transferred. The total time covers all three.
+ * The queue time is only recorded for executables run by an
+ * {@link ExecutionScheduler}.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class CommandMetrics {
+
+    /**
+     * Name of the command line tool.
+     */
+    private final String command;
+
+    /**
+     * Time spent waiting in a scheduler queue.
+     */
+    private final LatencyHistogram queueTime = new LatencyHistogram();
+
+    /**
+     * Time until the native process exists.
+     */
+    private final LatencyHistogram spawnTime = new LatencyHistogram();
+
+    /**
+     * Time from spawn until the process has exited.
+     */
+    private final LatencyHistogram runTime = new LatencyHistogram();
+
+    /**
+     * Time from exit until all output was transferred.
+     */
+    private final LatencyHistogram drainTime = new LatencyHistogram();
+
+    /**
+     * Time from the start request until all output was transferred.
+     */
+    private final LatencyHistogram totalTime = new LatencyHistogram();
+
+    /**
+     * CPU time of sampled executions.
+     */
+    private final LatencyHistogram cpuTime = new LatencyHistogram();
+
+    /**
+     * Largest peak resident set size of a sampled execution.
+     */
+    private final LongAccumulator peakRss = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Number of completed executions, by exit code.
+     */
+    private final ConcurrentHashMap<Integer, LongAdder> exitCodes =
+            new ConcurrentHashMap<Integer, LongAdder>();
+
+    /**
+     * Number of executions that could not be started or completed.
+     */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Number of executions killed because of a timeout.
+     */
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Number of running executions.
+     */
+    private final LongAdder inFlight = new LongAdder();
+
+    /**
+     * Constructs new metrics for the given command line tool.
+     *
+     * @param command Name of the command line tool.
+     */
+    CommandMetrics(String command) {
+        this.command = command;
+    }
+
+    /**
+     * Returns the name of the command line tool.
+     *
+     * @return String
+     */
+    public String getCommand() {
+        return this.command;
+    }
+
+    /**
+     * Returns the time spent waiting in a scheduler queue.
+     *
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getQueueTime() {
+        return this.queueTime;
+    }
+
+    /**
+     * Returns the time until the native process exists.
+     *
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getSpawnTime() {
+        return this.spawnTime;
+    }
+
+    /**
+     * Returns the time from spawn until the process has exited, or the time
+     * of a request to a pooled worker or shell session.
+     *
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getRunTime() {
+        return this.runTime;
+    }
+
+    /**
+     * Returns the time from exit until all output was transferred. Requests
+     * to pooled workers or shell sessions have no drain phase and are not
+     * recorded here.
+     *
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getDrainTime() {
+        return this.drainTime;
+    }
+
+    /**
+     * Returns the time from the start request until all output was
+     * transferred.
+     *
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getTotalTime() {
+        return this.totalTime;
+    }
+
+    /**
+     * Returns the CPU time of executions that used a
+     * {@link ResourceSampler}. Each value is a lower bound, accurate to one
+     * sampling interval.
+     *
+     * @return LatencyHistogram
+     */
+    public LatencyHistogram getCpuTime() {
+        return this.cpuTime;
+    }
+
+    /**
+     * Returns the largest peak resident set size in bytes of an execution
+     * that used a {@link ResourceSampler}.
+     *
+     * @return long
+     */
+    public long getMaxPeakResidentSetSize() {
+        return this.peakRss.get();
+    }
+
+    /**
+     * Returns the number of completed executions, by exit code.
+     *
+     * @return Map<Integer, Long>
+     */
+    public Map<Integer, Long> getExitCodeCounts() {
+        Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+        for (Map.Entry<Integer, LongAdder> entry : this.exitCodes.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the number of executions that could not be started or whose
+     * output could not be transferred.
+     *
+     * @return long
+     */
+    public long getFailureCount() {
+        return this.failures.sum();
+    }
+
+    /**
+     * Returns the number of executions killed because of a timeout.
+     *
+     * @return long
+     */
+    public long getTimeoutCount() {
+        return this.timeouts.sum();
+    }
+
+    /**
+     * Returns the number of running executions.
+     *
+     * @return long
+     */
+    public long getInFlightCount() {
+        return this.inFlight.sum();
+    }
+
+    /**
+     * Records the time an execution has waited in a scheduler queue.
+     *
+     * @param waitNanos The queue time.
+     */
+    void queued(long waitNanos) {
+        this.queueTime.record(waitNanos);
+    }
+
+    /**
+     * Records a started native process.
+     *
+     * @param spawnNanos The time until the process existed.
+     */
+    void spawned(long spawnNanos) {
+        this.spawnTime.record(spawnNanos);
+        this.started();
+    }
+
+    /**
+     * Records a started execution that did not spawn a process.
+     */
+    void started() {
+        this.inFlight.increment();
+    }
+
+    /**
+     * Records a native process that could not be started.
+     */
+    void spawnFailed() {
+        this.failures.increment();
+    }
+
+    /**
+     * Records a completed execution.
+     *
+     * @param startNanos Nano time before the process was started.
+     * @param spawnedNanos Nano time after the process was started.
+     * @param exitNanos Nano time when the process has exited.
+     * @param endNanos Nano time when all output was transferred.
+     * @param exitCode Exit code of the process.
+     * @param timedOut Was the process killed because of a timeout?
+     */
+    void completed(
+            long startNanos,
+            long spawnedNanos,
+            long exitNanos,
+            long endNanos,
+            int exitCode,
+            boolean timedOut
+    ) {
+        this.runTime.record(exitNanos - spawnedNanos);
+        this.drainTime.record(endNanos - exitNanos);
+        this.totalTime.record(endNanos - startNanos);
+
+        this.count(exitCode, timedOut);
+    }
+
+    /**
+     * Records a completed request to a pooled worker or shell session. Such
+     * a request starts no process and has no drain phase, so only its run
+     * and total time are recorded.
+     *
+     * @param startNanos Nano time before the request was sent.
+     * @param endNanos Nano time when the response was received.
+     * @param exitCode Exit code of the request.
+     */
+    void requested(long startNanos, long endNanos, int exitCode) {
+        this.runTime.record(endNanos - startNanos);
+        this.totalTime.record(endNanos - startNanos);
+
+        this.count(exitCode, false);
+    }
+
+    /**
+     * Counts the exit code and the timeout of a completed execution.
+     *
+     * @param exitCode Exit code of the execution.
+     * @param timedOut Was the execution killed because of a timeout?
+     */
+    private void count(int exitCode, boolean timedOut) {
+        LongAdder counter = this.exitCodes.get(exitCode);
+        if (counter == null) {
+            counter = this.exitCodes.computeIfAbsent(
+                exitCode,
+                code -> new LongAdder()
+            );
+        }
+        counter.increment();
+
+        if (timedOut) {
+            this.timeouts.increment();
+        }
+    }
+
+    /**
+     * Records the sampled resource usage of a completed execution.
+     *
+     * @param usage The sampled resource usage.
+     */
+    void consumed(ResourceUsage usage) {
+        long cpu = usage.getCpuTime(TimeUnit.NANOSECONDS);
+        if (cpu >= 0) {
+            this.cpuTime.record(cpu);
+        }
+        this.peakRss.accumulate(usage.getPeakResidentSetSize());
+    }
+
+    /**
+     * Records the end of a started execution, successful or not.
+     *
+     * @param failed Could the output not be transferred?
+     */
+    void finished(boolean failed) {
+        if (failed) {
+            this.failures.increment();
+        }
+        this.inFlight.decrement();
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-compiled command line with named slots.
+ *
+ * A template is compiled once from a configured {@link Executable}, where
+ * every command line fragment of the form <b>${name}</b>, for example added
+ * through a {@link Placeholder}, becomes a slot. Binding a template copies
+ * the fixed fragments into a pre-sized list and only fills in the slots, so a
+ * template can be shared by any number of threads.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class CommandTemplate {
+
+    /**
+     * Fixed command line fragments, <b>null</b> at slot positions.
+     */
+    private final String[] fragments;
+
+    /**
+     * Slot index for every fragment or <b>-1</b> for fixed fragments.
+     */
+    private final int[] slots;
+
+    /**
+     * Distinct slot names in order of their first appearance.
+     */
+    private final String[] names;
+
+    /**
+     * Valid exit codes of the compiled executable.
+     */
+    private final ExitCodeMatcher exitCodes;
+
+    /**
+     * Constructs a new compiled template.
+     *
+     * @param fragments Fixed command line fragments.
+     * @param slots Slot index for every fragment.
+     * @param names Distinct slot names.
+     * @param exitCodes Valid exit codes of the compiled executable.
+     */
+    private CommandTemplate(
+            String[] fragments,
+            int[] slots,
+            String[] names,
+            ExitCodeMatcher exitCodes
+    ) {
+        this.fragments      = fragments;
+        this.slots          = slots;
+        this.names          = names;
+        this.exitCodes      = exitCodes;
+    }
+
+    /**
+     * Compiles the command line and the valid exit codes of the given
+     * executable into a template.
+     *
+     * @param executable A configured executable with placeholders.
+     *
+     * @return CommandTemplate
+     */
+    public static CommandTemplate compile(Executable executable) {
+        List<String> commandLine = executable.getCommandLine();
+
+        String[] fragments = new String[commandLine.size()];
+        int[] slots = new int[commandLine.size()];
+        List<String> names = new ArrayList<String>();
+
+        for (int i = 0; i < fragments.length; ++i) {
+            String fragment = commandLine.get(i);
+            String name = getSlotName(fragment);
+            if (name == null) {
+                fragments[i] = fragment;
+                slots[i] = -1;
+                continue;
+            }
+
+            int slot = names.indexOf(name);
+            if (slot < 0) {
+                slot = names.size();
+                names.add(name);
+            }
+            slots[i] = slot;
+        }
+
+        return new CommandTemplate(
+            fragments,
+            slots,
+            names.toArray(new String[names.size()]),
+            executable.getExitCodeMatcher()
+        );
+    }
+
+    /**
+     * Returns the distinct slot names in order of their first appearance.
+     *
+     * @return List<String>
+     */
+    public List<String> getSlotNames() {
+        return Collections.unmodifiableList(Arrays.asList(this.names));
+    }
+
+    /**
+     * Binds the given values, in slot name order, and returns the resulting
+     * command line.
+     *
+     * @param values One value per distinct slot.
+     *
+     * @return List<String>
+     * @throws ValidationException When the number of values does not match
+     *         the number of slots.
+     */
+    public List<String> bind(String... values) throws ValidationException {
+        if (values.length != this.names.length) {
+            throw new ValidationException(
+                String.format(
+                    "Template expects %d values, got %d.",
+                    this.names.length,
+                    values.length
+                )
+            );
+        }
+
+        List<String> commandLine =
+                new ArrayList<String>(this.fragments.length);
+        for (int i = 0; i < this.fragments.length; ++i) {
+            if (this.slots[i] < 0) {
+                commandLine.add(this.fragments[i]);
+            } else {
+                commandLine.add(values[this.slots[i]]);
+            }
+        }
+        return commandLine;
+    }
+
+    /**
+     * Binds the given values by slot name and returns the resulting command
+     * line.
+     *
+     * @param values Values by slot name.
+     *
+     * @return List<String>
+     * @throws ValidationException When a value for a slot is missing.
+     */
+    public List<String> bind(Map<String, String> values)
+            throws ValidationException {
+        String[] ordered = new String[this.names.length];
+        for (int i = 0; i < this.names.length; ++i) {
+            ordered[i] = values.get(this.names[i]);
+            if (ordered[i] == null) {
+                throw new ValidationException(
+                    String.format("Missing value for '%s'.", this.names[i])
+                );
+            }
+        }
+        return this.bind(ordered);
+    }
+
+    /**
+     * Binds the given values, in slot name order, and returns a new
+     * executable with the compiled exit codes.
+     *
+     * @param values One value per distinct slot.
+     *
+     * @return AbstractExecutable
+     * @throws ValidationException When the number of values does not match
+     *         the number of slots.
+     */
+    public AbstractExecutable newExecutable(String... values)
+            throws ValidationException {
+        AbstractExecutable executable =
+                new DefaultExecutable(this.bind(values));
+        executable.setExitCodeMatcher(this.exitCodes);
+        return executable;
+    }
+
+    /**
+     * Returns the slot name of the given fragment or <b>null</b> when it is a
+     * fixed fragment.
+     *
+     * @param fragment A command line fragment.
+     *
+     * @return String
+     */
+    private static String getSlotName(String fragment) {
+        if (fragment.length() > 3
+                && fragment.startsWith("${")
+                && fragment.endsWith("}")) {
+            return fragment.substring(2, fragment.length() - 1);
+        }
+        return null;
+    }
+}
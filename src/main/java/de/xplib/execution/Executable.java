@@ -66,12 +66,30 @@ public interface Executable {
 
     /**
      * Returns a list with integer values representing valid exit codes for the
-     * wrapped cli script.
+     * wrapped cli script. The returned list cannot be modified.
      *
      * @return List of valid exit codes.
      */
     List<Integer> getValidExitCodes();
 
+    /**
+     * Returns the matcher that classifies the exit codes of the wrapped cli
+     * script.
+     *
+     * @return The exit code matcher.
+     */
+    ExitCodeMatcher getExitCodeMatcher();
+
+    /**
+     * Replaces the valid exit codes of the wrapped cli script with the given
+     * matcher.
+     *
+     * @param matcher The exit code matcher.
+     *
+     * @return The entire executable.
+     */
+    Executable setExitCodeMatcher(ExitCodeMatcher matcher);
+
     /**
      * Returns a list with all configured fragments that build up the later
      * executed command.
@@ -107,6 +125,59 @@ public interface Executable {
      */
     Executable addRegularExitCode(Integer regularExitCode);
 
+    /**
+     * Sets the data the cli tool reads from STDIN.
+     *
+     * @param source The STDIN data.
+     *
+     * @return The entire executable.
+     * @throws ValidationException If this executable cannot provide STDIN,
+     *         like a {@link WorkerExecutable}.
+     */
+    Executable setStdin(InputSource source);
+
+    /**
+     * Sets the sink that receives everything the cli tool writes to STDOUT.
+     *
+     * @param sink The consumer for STDOUT.
+     *
+     * @return The entire executable.
+     */
+    Executable setStdout(OutputSink sink);
+
+    /**
+     * Sets the sink that receives everything the cli tool writes to STDERR.
+     *
+     * @param sink The consumer for STDERR.
+     *
+     * @return The entire executable.
+     */
+    Executable setStderr(OutputSink sink);
+
+    /**
+     * Lets the operating system write STDOUT directly to the given
+     * destination, without passing it through the virtual machine.
+     *
+     * @param redirect The STDOUT destination.
+     *
+     * @return The entire executable.
+     * @throws ValidationException If this executable cannot redirect its
+     *         output, like a {@link WorkerExecutable}.
+     */
+    Executable setStdoutRedirect(ProcessBuilder.Redirect redirect);
+
+    /**
+     * Lets the operating system write STDERR directly to the given
+     * destination, without passing it through the virtual machine.
+     *
+     * @param redirect The STDERR destination.
+     *
+     * @return The entire executable.
+     * @throws ValidationException If this executable cannot redirect its
+     *         output, like a {@link WorkerExecutable}.
+     */
+    Executable setStderrRedirect(ProcessBuilder.Redirect redirect);
+
     /**
      * Returns the exit code returned by the underlying command line tool or
      * throws an exception when the command line tool is still running.
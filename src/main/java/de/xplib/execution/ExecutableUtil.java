@@ -43,6 +43,9 @@
 package de.xplib.execution;
 
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple utility class to find available executables.
@@ -71,6 +74,24 @@ public final class ExecutableUtil {
         ".bat", ".exe", ".sh", ".php"
     };
 
+    /**
+     * Default minimum interval between two checks of the PATH directories for
+     * modifications.
+     */
+    private static final long DEFAULT_RECHECK_MILLIS = 1000;
+
+    /**
+     * Minimum interval between two checks of the PATH directories for
+     * modifications.
+     */
+    private static volatile long recheckNanos =
+            TimeUnit.MILLISECONDS.toNanos(DEFAULT_RECHECK_MILLIS);
+
+    /**
+     * Index of the current PATH value or <b>null</b>.
+     */
+    private static volatile PathIndex index = null;
+
     /**
      * Empty ctor, this is just a utility class with static methods.
      */
@@ -83,60 +104,65 @@ public final class ExecutableUtil {
      * local name and exists in one of the user's PATH directories. This method
      * will return <b>null</b> when no binary was found.
      *
+     * Results, including misses, are cached until the PATH value or one of
+     * its directories changes.
+     *
      * @param localName Local script file name without a file type extension.
      *
      * @return Executable
      */
     public static Executable findExecutableOnUsersPath(String localName) {
-        for (String pathName : getUsersPath()) {
-            String fileName   = pathName + File.separator + localName;
-            String executable = existsAndIsExecutable(fileName);
-            if (executable != null) {
-                return new DefaultExecutable(executable);
-            }
+        String fileName = getIndex().resolve(localName);
+        if (fileName == null) {
+            return null;
         }
-        return null;
+        return new DefaultExecutable(fileName);
     }
 
     /**
-     * Tests if a file  fileName (directory + local name) plus one of the
-     * configured extensions exists and is executable. If such a file exists
-     * this method will return the full qualified file name, otherwise it
-     * returns <b>null</b>.
+     * Searches for all of the given local names in the user's PATH
+     * directories, listing each directory at most once. The returned map only
+     * contains the local names for which a binary was found.
      *
-     * @param fileName Qualified file name, but without and extension.
+     * @param localNames Local script file names without file type extensions.
      *
-     * @return String
+     * @return Map<String, Executable>
      */
-    private static String existsAndIsExecutable(String fileName) {
-        for (String extension : EXECUTABLE_EXTENSIONS) {
-            String executable = existsAndIsExecutable(fileName, extension);
-            if (executable != null) {
-                return executable;
+    public static Map<String, Executable> findExecutablesOnUsersPath(
+            String... localNames
+    ) {
+        PathIndex pathIndex = getIndex();
+
+        Map<String, Executable> executables =
+                new LinkedHashMap<String, Executable>();
+        for (String localName : localNames) {
+            String fileName = pathIndex.resolve(localName);
+            if (fileName != null) {
+                executables.put(localName, new DefaultExecutable(fileName));
             }
         }
-        return existsAndIsExecutable(fileName, "");
+        return executables;
     }
 
     /**
-     * Tests if a file with the given file name + the given extension exists
-     * and is executable. If such a file exists this method will return the
-     * full qualified file name, otherwise it returns <b>null</b>.
-     *
-     * @param fileName Qualified file name, but without and extension.
-     * @param extension The file extension, prefixed with a ".".
+     * Sets the minimum interval between two checks of the PATH directories
+     * for modifications. An interval of <b>0</b> checks the directories on
+     * every lookup.
      *
-     * @return String
+     * @param interval The recheck interval.
+     * @param unit Time unit of the interval.
      */
-    private static String existsAndIsExecutable(
-            String fileName,
-            String extension
-    ) {
-        File file = new File(fileName + extension);
-        if (file.exists() && isExecutable(file)) {
-            return file.getAbsolutePath();
-        }
-        return null;
+    public static void setPathRecheckInterval(long interval, TimeUnit unit) {
+        recheckNanos = unit.toNanos(Math.max(0, interval));
+        index = null;
+    }
+
+    /**
+     * Drops all cached PATH lookups, for example after new tools were
+     * installed.
+     */
+    public static void clearPathCache() {
+        index = null;
     }
 
     /**
@@ -146,7 +172,7 @@ public final class ExecutableUtil {
      *
      * @return boolean
      */
-    private static boolean isExecutable(File file) {
+    static boolean isExecutable(File file) {
         SecurityManager sm = System.getSecurityManager();
         if (sm != null) {
             try {
@@ -159,15 +185,25 @@ public final class ExecutableUtil {
     }
 
     /**
-     * Returns an array with all environment paths of the current user.
+     * Returns the index of the user's current PATH value.
      *
-     * @return String[]
+     * @return PathIndex
      */
-    private static String[] getUsersPath() {
-        String env = System.getenv(PATH_ENVIRONMENT_VARIABLE);
-        if (env == null || env.trim().equals("")) {
-            return new String[0];
+    private static PathIndex getIndex() {
+        String path = System.getenv(PATH_ENVIRONMENT_VARIABLE);
+        if (path == null) {
+            path = "";
+        }
+
+        PathIndex pathIndex = index;
+        if (pathIndex == null || !pathIndex.getPath().equals(path)) {
+            pathIndex = new PathIndex(
+                path,
+                EXECUTABLE_EXTENSIONS,
+                recheckNanos
+            );
+            index = pathIndex;
         }
-        return env.split(File.pathSeparator);
+        return pathIndex;
     }
 }
@@ -0,0 +1,484 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State of a single, running command line tool execution.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class Execution {
+
+    /**
+     * The executed command line.
+     */
+    private final List<String> commandLine;
+
+    /**
+     * The native process.
+     */
+    private final Process process;
+
+    /**
+     * The sink that receives STDOUT.
+     */
+    private final OutputSink stdoutSink;
+
+    /**
+     * The sink that receives STDERR.
+     */
+    private final OutputSink stderrSink;
+
+    /**
+     * The running STDOUT transfer.
+     */
+    private final OutputPump stdoutPump;
+
+    /**
+     * The running STDERR transfer.
+     */
+    private final OutputPump stderrPump;
+
+    /**
+     * The running STDIN transfer.
+     */
+    private final CompletableFuture<Void> stdinFeed;
+
+    /**
+     * Classifies the exit code of this execution.
+     */
+    private final ExitCodeMatcher exitCodes;
+
+    /**
+     * Value of {@link System#nanoTime()} before the process was started.
+     */
+    private final long startNanos;
+
+    /**
+     * Value of {@link System#nanoTime()} after the process was started.
+     */
+    private final long spawnedNanos;
+
+    /**
+     * Metrics of the executed command line tool or <b>null</b>.
+     */
+    private final CommandMetrics metrics;
+
+    /**
+     * Samples the resource usage of the process or <b>null</b>.
+     */
+    private final ResourceSampler.Tracker resources;
+
+    /**
+     * Value of {@link System#nanoTime()} when the process wrote its last
+     * output.
+     */
+    private volatile long outputNanos;
+
+    /**
+     * Was the process killed because of a timeout?
+     */
+    private volatile boolean timedOut = false;
+
+    /**
+     * Pending wall clock timeout or <b>null</b>.
+     */
+    private volatile TimerWheel.Timeout wallTimer = null;
+
+    /**
+     * Pending idle output timeout or <b>null</b>.
+     */
+    private volatile TimerWheel.Timeout idleTimer = null;
+
+    /**
+     * Starts feeding the input and draining the output of the given process.
+     *
+     * @param commandLine The executed command line.
+     * @param process The native process.
+     * @param stdin The STDIN data or <b>null</b>.
+     * @param stdoutSink The sink that receives STDOUT.
+     * @param stderrSink The sink that receives STDERR.
+     * @param pumper Strategy used to drain STDOUT and STDERR.
+     * @param exitCodes Classifies the exit code of this execution.
+     * @param startNanos Nano time before the process was started.
+     * @param metrics Metrics of the executed tool or <b>null</b>.
+     * @param sampler Sampler for the resource usage or <b>null</b>.
+     */
+    Execution(
+            List<String> commandLine,
+            Process process,
+            InputSource stdin,
+            OutputSink stdoutSink,
+            OutputSink stderrSink,
+            OutputPumper pumper,
+            ExitCodeMatcher exitCodes,
+            long startNanos,
+            CommandMetrics metrics,
+            ResourceSampler sampler
+    ) {
+        this.spawnedNanos = System.nanoTime();
+        if (metrics != null) {
+            metrics.spawned(this.spawnedNanos - startNanos);
+        }
+
+        this.commandLine = commandLine;
+        this.process     = process;
+        this.stdoutSink  = stdoutSink;
+        this.stderrSink  = stderrSink;
+        this.exitCodes   = exitCodes;
+        this.startNanos  = startNanos;
+        this.outputNanos = startNanos;
+        this.metrics     = metrics;
+        this.resources   = sampler == null ? null : sampler.track(process);
+
+        this.stdoutPump = pumper.pump(
+            process,
+            process.getInputStream(),
+            new ActivitySink(stdoutSink)
+        );
+        this.stderrPump = pumper.pump(
+            process,
+            process.getErrorStream(),
+            new ActivitySink(stderrSink)
+        );
+        this.stdinFeed = feed(process, stdin);
+    }
+
+    /**
+     * Returns the native process.
+     *
+     * @return Process
+     */
+    Process getProcess() {
+        return this.process;
+    }
+
+    /**
+     * Kills the process tree when it runs longer than <b>timeoutNanos</b> or
+     * writes no output for <b>idleNanos</b>. A value of <b>0</b> disables the
+     * corresponding timeout.
+     *
+     * @param wheel The timer wheel used to track the timeouts.
+     * @param timeoutNanos Wall clock timeout.
+     * @param idleNanos Idle output timeout.
+     * @param graceNanos Time between termination request and forcible kill.
+     */
+    void watch(
+            final TimerWheel wheel,
+            long timeoutNanos,
+            final long idleNanos,
+            final long graceNanos
+    ) {
+        if (timeoutNanos > 0) {
+            this.wallTimer = wheel.schedule(
+                () -> this.kill(wheel, graceNanos),
+                timeoutNanos,
+                TimeUnit.NANOSECONDS
+            );
+        }
+        if (idleNanos > 0) {
+            this.watchIdle(wheel, idleNanos, idleNanos, graceNanos);
+        }
+    }
+
+    /**
+     * Blocks until all output was drained and returns the final result.
+     *
+     * @param exitCode Exit code returned from the command line tool.
+     *
+     * @return ExecutionResult
+     * @throws IOException If draining the output failed.
+     * @throws InterruptedException If the current thread was interrupted.
+     */
+    ExecutionResult await(int exitCode)
+            throws IOException, InterruptedException {
+        long exitNanos = System.nanoTime();
+        this.cancelTimers();
+
+        ExecutionResult result = null;
+        try {
+            this.stdoutPump.await();
+            this.stderrPump.await();
+            try {
+                this.stdinFeed.get();
+            } catch (java.util.concurrent.ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+
+            result = this.toResult(exitCode, exitNanos);
+            return result;
+        } finally {
+            this.record(result);
+        }
+    }
+
+    /**
+     * Returns a future that completes with the final result, once the process
+     * has exited and all output was drained. No thread blocks while waiting.
+     *
+     * @return CompletableFuture<ExecutionResult>
+     */
+    CompletableFuture<ExecutionResult> completion() {
+        return this.process.onExit().thenCompose(exited -> {
+            long exitNanos = System.nanoTime();
+            this.cancelTimers();
+
+            return CompletableFuture.allOf(
+                this.stdoutPump.completion(),
+                this.stderrPump.completion(),
+                this.stdinFeed
+            ).thenApply(
+                drained -> this.toResult(exited.exitValue(), exitNanos)
+            );
+        }).whenComplete((result, failure) -> this.record(result));
+    }
+
+    /**
+     * Records the end of this execution in the metrics of the executed tool,
+     * and stops the resource tracking of a failed execution, which has no
+     * result that would have stopped it.
+     *
+     * @param result The final result or <b>null</b> when the output could
+     *        not be transferred.
+     */
+    private void record(ExecutionResult result) {
+        if (result == null && this.resources != null) {
+            this.resources.stop();
+        }
+        if (this.metrics == null) {
+            return;
+        }
+        if (result != null) {
+            this.metrics.completed(
+                this.startNanos,
+                this.spawnedNanos,
+                result.getExitNanos(),
+                result.getEndNanos(),
+                result.getExitCode(),
+                result.isTimedOut()
+            );
+            if (result.getResourceUsage() != null) {
+                this.metrics.consumed(result.getResourceUsage());
+            }
+        }
+        this.metrics.finished(result == null);
+    }
+
+    /**
+     * Starts writing the given source into STDIN of the given process, or
+     * closes STDIN when there is nothing to write.
+     *
+     * @param process The native process.
+     * @param stdin The STDIN data or <b>null</b>.
+     *
+     * @return A future that completes when all data was written.
+     */
+    private static CompletableFuture<Void> feed(
+            Process process,
+            InputSource stdin
+    ) {
+        if (stdin != null
+                && stdin.getRedirect() == ProcessBuilder.Redirect.PIPE) {
+            return InputFeeder.feed(stdin, process.getOutputStream());
+        }
+        try {
+            process.getOutputStream().close();
+        } catch (IOException e) {
+            // Ignore, the process has already exited
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Schedules the next idle output check.
+     *
+     * @param wheel The timer wheel used to track the timeouts.
+     * @param delayNanos Delay until the next check.
+     * @param idleNanos Idle output timeout.
+     * @param graceNanos Time between termination request and forcible kill.
+     */
+    private void watchIdle(
+            final TimerWheel wheel,
+            long delayNanos,
+            final long idleNanos,
+            final long graceNanos
+    ) {
+        this.idleTimer = wheel.schedule(
+            () -> {
+                long silent = System.nanoTime() - this.outputNanos;
+                if (silent >= idleNanos) {
+                    this.kill(wheel, graceNanos);
+                } else if (this.process.isAlive()) {
+                    this.watchIdle(
+                        wheel,
+                        idleNanos - silent,
+                        idleNanos,
+                        graceNanos
+                    );
+                }
+            },
+            delayNanos,
+            TimeUnit.NANOSECONDS
+        );
+    }
+
+    /**
+     * Terminates the process tree because of a timeout.
+     *
+     * @param wheel The timer wheel used to schedule the forcible kill.
+     * @param graceNanos Time between termination request and forcible kill.
+     */
+    private synchronized void kill(TimerWheel wheel, long graceNanos) {
+        if (this.timedOut || !this.process.isAlive()) {
+            return;
+        }
+        this.timedOut = true;
+        this.cancelTimers();
+
+        ProcessTreeKiller.terminate(this.process, wheel, graceNanos);
+    }
+
+    /**
+     * Cancels all pending timeouts.
+     */
+    private void cancelTimers() {
+        TimerWheel.Timeout timer = this.wallTimer;
+        if (timer != null) {
+            timer.cancel();
+        }
+        timer = this.idleTimer;
+        if (timer != null) {
+            timer.cancel();
+        }
+    }
+
+    /**
+     * Creates the final result of this execution.
+     *
+     * @param exitCode Exit code returned from the command line tool.
+     * @param exitNanos Nano time when the process has exited.
+     *
+     * @return ExecutionResult
+     */
+    private ExecutionResult toResult(int exitCode, long exitNanos) {
+        return new ExecutionResult(
+            this.commandLine,
+            exitCode,
+            this.exitCodes.outcome(exitCode),
+            this.timedOut,
+            this.stdoutSink,
+            this.stderrSink,
+            this.startNanos,
+            exitNanos,
+            System.nanoTime(),
+            this.resources == null ? null : this.resources.stop()
+        );
+    }
+
+    /**
+     * Sink decorator that records the time of the last output.
+     */
+    private final class ActivitySink implements OutputSink {
+
+        /**
+         * The decorated sink.
+         */
+        private final OutputSink sink;
+
+        /**
+         * Constructs a new decorator for the given sink.
+         *
+         * @param sink The decorated sink.
+         */
+        ActivitySink(OutputSink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Records the output time and forwards the given bytes.
+         *
+         * @param buffer The reused read buffer.
+         * @param offset Offset of the first valid byte in the buffer.
+         * @param length Number of valid bytes in the buffer.
+         *
+         * @throws IOException If the decorated sink fails.
+         */
+        @Override
+        public void write(byte[] buffer, int offset, int length)
+                throws IOException {
+            Execution.this.outputNanos = System.nanoTime();
+            this.sink.write(buffer, offset, length);
+        }
+
+        /**
+         * Closes the decorated sink.
+         *
+         * @throws IOException If the decorated sink fails.
+         */
+        @Override
+        public void close() throws IOException {
+            this.sink.close();
+        }
+
+        /**
+         * Aborts the decorated sink.
+         *
+         * @param cause The failure that aborted the transfer.
+         *
+         * @throws IOException If the decorated sink fails.
+         */
+        @Override
+        public void abort(IOException cause) throws IOException {
+            this.sink.abort(cause);
+        }
+    }
+}
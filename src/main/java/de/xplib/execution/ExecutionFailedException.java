@@ -0,0 +1,103 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+/**
+ * This type of exception will be thrown when a command line tool returns an
+ * invalid exit code.
+ *
+ * The message is built from the captured STDERR output, but only when it is
+ * requested for the first time, so that failures that are handled without
+ * reading the message never decode any output.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ExecutionFailedException extends ExecutionException {
+
+    /**
+     * The result of the failed execution.
+     */
+    private final transient ExecutionResult result;
+
+    /**
+     * The lazily decoded error message.
+     */
+    private volatile String message = null;
+
+    /**
+     * Constructs a new exception instance for the given result.
+     *
+     * @param result The result of the failed execution.
+     */
+    public ExecutionFailedException(ExecutionResult result) {
+        super((String) null);
+        this.result = result;
+    }
+
+    /**
+     * Returns the result of the failed execution.
+     *
+     * @return ExecutionResult
+     */
+    public ExecutionResult getResult() {
+        return this.result;
+    }
+
+    /**
+     * Returns the captured STDERR text of the failed execution, limited to
+     * its last 64 KiB.
+     *
+     * @return String
+     */
+    @Override
+    public String getMessage() {
+        if (this.message == null && this.result != null) {
+            this.message = this.result.getFailureText();
+        }
+        return this.message;
+    }
+}
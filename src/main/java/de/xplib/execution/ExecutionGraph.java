@@ -0,0 +1,450 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Graph of executables with dependencies between them.
+ *
+ * Each node starts as soon as all of its dependencies have completed, so
+ * that independent branches run in parallel. No thread blocks while a
+ * process is running, the nodes are launched by a work stealing
+ * {@link ForkJoinPool} by default. When a node fails, all nodes that
+ * depend on it are skipped, while independent branches continue.
+ * Dependencies can only refer to nodes that were added before, so a graph
+ * never contains cycles.
+ *
+ * <code>
+ * ExecutionGraph graph = new ExecutionGraph();
+ * ExecutionGraph.Node pdepend = graph.add("pdepend", pdependExec);
+ * ExecutionGraph.Node phpmd = graph.add("phpmd", phpmdExec, pdepend);
+ * ExecutionGraph.Node metrics = graph.add("metrics", metricsExec, pdepend);
+ * graph.add("report", reportExec, phpmd, metrics);
+ *
+ * GraphResult result = graph.execute();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ExecutionGraph {
+
+    /**
+     * All nodes in insertion order, which is a topological order.
+     */
+    private final List<Node> nodes = new ArrayList<Node>();
+
+    /**
+     * Executor used to launch the nodes.
+     */
+    private Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * Sets the executor used to launch the nodes.
+     *
+     * @param executor The launching executor.
+     *
+     * @return The entire graph.
+     */
+    public ExecutionGraph setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Adds a new node to this graph.
+     *
+     * @param name Unique name of the node.
+     * @param executable The executable of the node.
+     * @param dependencies Nodes that must succeed before the node starts.
+     *
+     * @return The new node.
+     * @throws ValidationException When the name is already used or a
+     *         dependency belongs to a different graph.
+     */
+    public synchronized Node add(
+            String name,
+            AbstractExecutable executable,
+            Node... dependencies
+    ) {
+        for (Node node : this.nodes) {
+            if (node.name.equals(name)) {
+                throw new ValidationException(
+                    "The graph already contains a node '" + name + "'."
+                );
+            }
+        }
+        for (Node dependency : dependencies) {
+            if (dependency.graph != this) {
+                throw new ValidationException(
+                    "The node '" + dependency.name + "' is not part of "
+                    + "this graph."
+                );
+            }
+        }
+
+        Node node = new Node(this, name, executable, dependencies);
+        this.nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Returns all nodes in insertion order.
+     *
+     * @return List<Node>
+     */
+    public synchronized List<Node> getNodes() {
+        return Collections.unmodifiableList(new ArrayList<Node>(this.nodes));
+    }
+
+    /**
+     * Executes all nodes and blocks until every node has either completed or
+     * was skipped.
+     *
+     * @return GraphResult
+     */
+    public GraphResult execute() {
+        return this.executeAsync().join();
+    }
+
+    /**
+     * Starts all nodes without dependencies and returns immediately. The
+     * returned future completes when every node has either completed or was
+     * skipped, it never completes exceptionally.
+     *
+     * @return CompletableFuture<GraphResult>
+     */
+    public CompletableFuture<GraphResult> executeAsync() {
+        final List<Node> graph = this.getNodes();
+        for (Node node : graph) {
+            node.reset();
+        }
+
+        CompletableFuture<?>[] all = new CompletableFuture<?>[graph.size()];
+        for (int i = 0; i < all.length; ++i) {
+            all[i] = graph.get(i).schedule(this.executor);
+        }
+
+        return CompletableFuture.allOf(all).handle(
+            (ignored, failure) -> new GraphResult(graph)
+        );
+    }
+
+    /**
+     * A single executable in an {@link ExecutionGraph}.
+     */
+    public static final class Node {
+
+        /**
+         * The owning graph.
+         */
+        private final ExecutionGraph graph;
+
+        /**
+         * Unique name of this node.
+         */
+        private final String name;
+
+        /**
+         * The executable of this node.
+         */
+        private final AbstractExecutable executable;
+
+        /**
+         * Nodes that must succeed before this node starts.
+         */
+        private final List<Node> dependencies;
+
+        /**
+         * Completes when this node has finished or was skipped.
+         */
+        private volatile CompletableFuture<ExecutionResult> future = null;
+
+        /**
+         * The result of this node's execution or <b>null</b>.
+         */
+        private volatile ExecutionResult result = null;
+
+        /**
+         * The failure of this node or <b>null</b>.
+         */
+        private volatile Throwable failure = null;
+
+        /**
+         * Was this node skipped because a dependency failed?
+         */
+        private volatile boolean skipped = false;
+
+        /**
+         * Nano time when this node was started.
+         */
+        private volatile long startNanos = 0;
+
+        /**
+         * Nano time when this node has finished.
+         */
+        private volatile long endNanos = 0;
+
+        /**
+         * Constructs a new node.
+         *
+         * @param graph The owning graph.
+         * @param name Unique name of this node.
+         * @param executable The executable of this node.
+         * @param dependencies Nodes that must succeed before this node.
+         */
+        private Node(
+                ExecutionGraph graph,
+                String name,
+                AbstractExecutable executable,
+                Node[] dependencies
+        ) {
+            this.graph        = graph;
+            this.name         = name;
+            this.executable   = executable;
+            this.dependencies = Collections.unmodifiableList(
+                new ArrayList<Node>(Arrays.asList(dependencies))
+            );
+        }
+
+        /**
+         * Returns the unique name of this node.
+         *
+         * @return String
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Returns the executable of this node.
+         *
+         * @return AbstractExecutable
+         */
+        public AbstractExecutable getExecutable() {
+            return this.executable;
+        }
+
+        /**
+         * Returns the nodes that must succeed before this node starts.
+         *
+         * @return List<Node>
+         */
+        public List<Node> getDependencies() {
+            return this.dependencies;
+        }
+
+        /**
+         * Returns the result of the last execution or <b>null</b> when this
+         * node was skipped or could not be started.
+         *
+         * @return ExecutionResult
+         */
+        public ExecutionResult getResult() {
+            return this.result;
+        }
+
+        /**
+         * Returns the failure of the last execution or <b>null</b>.
+         *
+         * @return Throwable
+         */
+        public Throwable getFailure() {
+            return this.failure;
+        }
+
+        /**
+         * Returns <b>true</b> when this node was skipped because one of its
+         * dependencies failed.
+         *
+         * @return boolean
+         */
+        public boolean isSkipped() {
+            return this.skipped;
+        }
+
+        /**
+         * Returns <b>true</b> when the last execution succeeded.
+         *
+         * @return boolean
+         */
+        public boolean isSuccessful() {
+            return this.endNanos != 0 && this.failure == null;
+        }
+
+        /**
+         * Returns the time between start and end of the last execution.
+         *
+         * @param unit The requested time unit.
+         *
+         * @return long
+         */
+        public long getTime(TimeUnit unit) {
+            if (this.skipped || this.endNanos == 0) {
+                return 0;
+            }
+            return unit.convert(
+                this.endNanos - this.startNanos,
+                TimeUnit.NANOSECONDS
+            );
+        }
+
+        /**
+         * Returns the nano time when the last execution has finished.
+         *
+         * @return long
+         */
+        long getEndNanos() {
+            return this.endNanos;
+        }
+
+        /**
+         * Returns a string representation of this node.
+         *
+         * @return String
+         */
+        @Override
+        public String toString() {
+            return this.name;
+        }
+
+        /**
+         * Drops the state of a previous execution.
+         */
+        private void reset() {
+            this.future     = null;
+            this.result     = null;
+            this.failure    = null;
+            this.skipped    = false;
+            this.startNanos = 0;
+            this.endNanos   = 0;
+        }
+
+        /**
+         * Schedules this node to start as soon as all dependencies have
+         * succeeded. Must be called in topological order.
+         *
+         * @param executor The launching executor.
+         *
+         * @return A future that completes when this node has finished.
+         */
+        private CompletableFuture<ExecutionResult> schedule(
+                final Executor executor
+        ) {
+            CompletableFuture<?>[] inputs =
+                new CompletableFuture<?>[this.dependencies.size()];
+            for (int i = 0; i < inputs.length; ++i) {
+                inputs[i] = this.dependencies.get(i).future;
+            }
+
+            this.future = CompletableFuture.allOf(inputs)
+                .handle((ignored, failure) -> failure)
+                .thenCompose(failure -> {
+                    if (failure == null) {
+                        return this.start(executor);
+                    }
+                    return this.skip();
+                });
+            return this.future;
+        }
+
+        /**
+         * Starts the executable of this node.
+         *
+         * @param executor The launching executor.
+         *
+         * @return A future for the result of the executable.
+         */
+        private CompletableFuture<ExecutionResult> start(Executor executor) {
+            final ExecutionResult previous = this.executable.getResult();
+
+            this.startNanos = System.nanoTime();
+            return this.executable.execAsync(executor).whenComplete(
+                (result, failure) -> {
+                    if (failure instanceof CompletionException) {
+                        failure = failure.getCause();
+                    }
+                    ExecutionResult last = this.executable.getResult();
+                    if (last != previous) {
+                        this.result = last;
+                    }
+                    this.failure  = failure;
+                    this.endNanos = System.nanoTime();
+                }
+            );
+        }
+
+        /**
+         * Marks this node as skipped because of a failed dependency.
+         *
+         * @return A failed future.
+         */
+        private CompletableFuture<ExecutionResult> skip() {
+            List<String> failed = new ArrayList<String>();
+            for (Node dependency : this.dependencies) {
+                if (!dependency.isSuccessful()) {
+                    failed.add(dependency.name);
+                }
+            }
+
+            this.skipped = true;
+            this.failure = new ExecutionException(
+                "Node '" + this.name + "' was skipped, because its "
+                + "dependencies " + failed + " failed."
+            );
+            return CompletableFuture.failedFuture(this.failure);
+        }
+    }
+}
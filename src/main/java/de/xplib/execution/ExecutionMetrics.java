@@ -0,0 +1,185 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry for the execution metrics of all command line tools.
+ *
+ * All executables record into the default registry unless configured
+ * otherwise. Recording only updates striped counters, so it is cheap enough
+ * to stay enabled in production.
+ *
+ * <code>
+ * ExecutionMetrics metrics = ExecutionMetrics.getDefault();
+ * CommandMetrics phpmd = metrics.getCommand("/usr/bin/phpmd");
+ * long p99 = phpmd.getTotalTime().getPercentile(99, TimeUnit.MILLISECONDS);
+ *
+ * String text = metrics.toPrometheusText();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class ExecutionMetrics {
+
+    /**
+     * The shared default registry.
+     */
+    private static final ExecutionMetrics DEFAULT = new ExecutionMetrics();
+
+    /**
+     * Metrics per command line tool.
+     */
+    private final ConcurrentHashMap<String, CommandMetrics> commands =
+            new ConcurrentHashMap<String, CommandMetrics>();
+
+    /**
+     * Returns the shared default registry.
+     *
+     * @return ExecutionMetrics
+     */
+    public static ExecutionMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the metrics of all command line tools, ordered by name.
+     *
+     * @return List<CommandMetrics>
+     */
+    public List<CommandMetrics> getCommands() {
+        List<CommandMetrics> all =
+            new ArrayList<CommandMetrics>(this.commands.values());
+        Collections.sort(
+            all,
+            Comparator.comparing(CommandMetrics::getCommand)
+        );
+        return all;
+    }
+
+    /**
+     * Returns the metrics of the given command line tool or <b>null</b> when
+     * nothing was recorded for it.
+     *
+     * @param command Name of the command line tool.
+     *
+     * @return CommandMetrics
+     */
+    public CommandMetrics getCommand(String command) {
+        return this.commands.get(command);
+    }
+
+    /**
+     * Forgets all recorded metrics.
+     */
+    public void clear() {
+        this.commands.clear();
+    }
+
+    /**
+     * Publishes the current values through the given exporter.
+     *
+     * @param exporter The exporter.
+     *
+     * @throws IOException If the metrics cannot be published.
+     */
+    public void export(MetricsExporter exporter) throws IOException {
+        exporter.export(this);
+    }
+
+    /**
+     * Returns the current values in the Prometheus text exposition format.
+     *
+     * @return String
+     */
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        try {
+            this.export(new PrometheusExporter(text));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the metrics of the tool of the given command line, which are
+     * created on first use.
+     *
+     * @param commandLine The executed command line.
+     *
+     * @return CommandMetrics
+     */
+    CommandMetrics command(List<String> commandLine) {
+        return this.command(commandLine.isEmpty() ? "" : commandLine.get(0));
+    }
+
+    /**
+     * Returns the metrics of the given command line tool, which are created
+     * on first use.
+     *
+     * @param command Name of the command line tool.
+     *
+     * @return CommandMetrics
+     */
+    CommandMetrics command(String command) {
+        CommandMetrics metrics = this.commands.get(command);
+        if (metrics == null) {
+            metrics = this.commands.computeIfAbsent(
+                command,
+                CommandMetrics::new
+            );
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable result of a single, completed command line tool execution.
+ *
+ * Closing a result deletes the temporary files of its
+ * {@link SpillOutputSink} captures.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ExecutionResult implements AutoCloseable {
+
+    /**
+     * Maximum number of STDERR bytes used for a failure message.
+     */
+    static final int MESSAGE_LIMIT = TailOutputSink.DEFAULT_CAPACITY;
+
+    /**
+     * The executed command line.
+     */
+    private final List<String> commandLine;
+
+    /**
+     * Exit code returned from the command line tool.
+     */
+    private final int exitCode;
+
+    /**
+     * Classification of the exit code.
+     */
+    private final ExitCodeOutcome outcome;
+
+    /**
+     * Was the process killed because of a timeout?
+     */
+    private final boolean timedOut;
+
+    /**
+     * The sink that received STDOUT.
+     */
+    private final OutputSink stdout;
+
+    /**
+     * The sink that received STDERR.
+     */
+    private final OutputSink stderr;
+
+    /**
+     * Value of {@link System#nanoTime()} before the process was started.
+     */
+    private final long startNanos;
+
+    /**
+     * Value of {@link System#nanoTime()} when the process has exited.
+     */
+    private final long exitNanos;
+
+    /**
+     * Value of {@link System#nanoTime()} when all output was drained.
+     */
+    private final long endNanos;
+
+    /**
+     * Sampled resource usage of the process or <b>null</b>.
+     */
+    private final ResourceUsage resourceUsage;
+
+    /**
+     * Constructs a new execution result.
+     *
+     * @param commandLine The executed command line.
+     * @param exitCode Exit code returned from the command line tool.
+     * @param outcome Classification of the exit code.
+     * @param timedOut Was the process killed because of a timeout?
+     * @param stdout The sink that received STDOUT.
+     * @param stderr The sink that received STDERR.
+     * @param startNanos Nano time before the process was started.
+     * @param exitNanos Nano time when the process has exited.
+     * @param endNanos Nano time when all output was drained.
+     */
+    ExecutionResult(
+            List<String> commandLine,
+            int exitCode,
+            ExitCodeOutcome outcome,
+            boolean timedOut,
+            OutputSink stdout,
+            OutputSink stderr,
+            long startNanos,
+            long exitNanos,
+            long endNanos
+    ) {
+        this(
+            commandLine,
+            exitCode,
+            outcome,
+            timedOut,
+            stdout,
+            stderr,
+            startNanos,
+            exitNanos,
+            endNanos,
+            null
+        );
+    }
+
+    /**
+     * Constructs a new execution result with the sampled resource usage.
+     *
+     * @param commandLine The executed command line.
+     * @param exitCode Exit code returned from the command line tool.
+     * @param outcome Classification of the exit code.
+     * @param timedOut Was the process killed because of a timeout?
+     * @param stdout The sink that received STDOUT.
+     * @param stderr The sink that received STDERR.
+     * @param startNanos Nano time before the process was started.
+     * @param exitNanos Nano time when the process has exited.
+     * @param endNanos Nano time when all output was drained.
+     * @param resourceUsage Sampled resource usage or <b>null</b>.
+     */
+    ExecutionResult(
+            List<String> commandLine,
+            int exitCode,
+            ExitCodeOutcome outcome,
+            boolean timedOut,
+            OutputSink stdout,
+            OutputSink stderr,
+            long startNanos,
+            long exitNanos,
+            long endNanos,
+            ResourceUsage resourceUsage
+    ) {
+        this.commandLine   = Collections.unmodifiableList(commandLine);
+        this.exitCode      = exitCode;
+        this.outcome       = outcome;
+        this.timedOut      = timedOut;
+        this.stdout        = stdout;
+        this.stderr        = stderr;
+        this.startNanos    = startNanos;
+        this.exitNanos     = exitNanos;
+        this.endNanos      = endNanos;
+        this.resourceUsage = resourceUsage;
+    }
+
+    /**
+     * Returns the executed command line.
+     *
+     * @return List<String>
+     */
+    public List<String> getCommandLine() {
+        return this.commandLine;
+    }
+
+    /**
+     * Returns the exit code returned from the command line tool.
+     *
+     * @return int
+     */
+    public int getExitCode() {
+        return this.exitCode;
+    }
+
+    /**
+     * Returns the classification of the exit code.
+     *
+     * @return ExitCodeOutcome
+     */
+    public ExitCodeOutcome getOutcome() {
+        return this.outcome;
+    }
+
+    /**
+     * Tests if the process was killed because of a wall clock or idle output
+     * timeout.
+     *
+     * @return boolean
+     */
+    public boolean isTimedOut() {
+        return this.timedOut;
+    }
+
+    /**
+     * Returns the sink that received STDOUT.
+     *
+     * @return OutputSink
+     */
+    public OutputSink getStdout() {
+        return this.stdout;
+    }
+
+    /**
+     * Returns the sink that received STDERR.
+     *
+     * @return OutputSink
+     */
+    public OutputSink getStderr() {
+        return this.stderr;
+    }
+
+    /**
+     * Returns the complete STDOUT text retained by its sink, or an empty
+     * string when STDOUT was not captured. The output of a spilled sink is
+     * read completely into memory.
+     *
+     * @return String
+     */
+    public String getStdoutText() {
+        return textOf(this.stdout, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the complete STDERR text retained by its sink, or an empty
+     * string when STDERR was not captured. By default only the tail of
+     * STDERR is captured, see {@link TailOutputSink}, while the output of a
+     * spilled sink is read completely into memory.
+     *
+     * @return String
+     */
+    public String getStderrText() {
+        return textOf(this.stderr, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns at most the last 64 KiB of the captured STDERR text, which is
+     * used as message of a failed execution. Unlike {@link #getStderrText()}
+     * this never reads a complete spilled output into memory.
+     *
+     * @return String
+     */
+    String getFailureText() {
+        return textOf(this.stderr, MESSAGE_LIMIT);
+    }
+
+    /**
+     * Returns the time between process start and process exit.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getRunTime(TimeUnit unit) {
+        return unit.convert(
+            this.exitNanos - this.startNanos,
+            TimeUnit.NANOSECONDS
+        );
+    }
+
+    /**
+     * Returns the time between process start and the moment when all output
+     * was drained.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getTotalTime(TimeUnit unit) {
+        return unit.convert(
+            this.endNanos - this.startNanos,
+            TimeUnit.NANOSECONDS
+        );
+    }
+
+    /**
+     * Returns the resources consumed by the process, or <b>null</b> when no
+     * {@link ResourceSampler} was configured or no sample could be taken.
+     * The values are lower bounds, accurate to one sampling interval.
+     *
+     * @return ResourceUsage
+     */
+    public ResourceUsage getResourceUsage() {
+        return this.resourceUsage;
+    }
+
+    /**
+     * Returns the value of {@link System#nanoTime()} when the process exited.
+     *
+     * @return long
+     */
+    long getExitNanos() {
+        return this.exitNanos;
+    }
+
+    /**
+     * Returns the value of {@link System#nanoTime()} when all output was
+     * drained.
+     *
+     * @return long
+     */
+    long getEndNanos() {
+        return this.endNanos;
+    }
+
+    /**
+     * Returns a copy of this result with the given output sinks.
+     *
+     * @param stdout The sink that received STDOUT.
+     * @param stderr The sink that received STDERR.
+     *
+     * @return ExecutionResult
+     */
+    ExecutionResult withOutput(OutputSink stdout, OutputSink stderr) {
+        return new ExecutionResult(
+            this.commandLine,
+            this.exitCode,
+            this.outcome,
+            this.timedOut,
+            stdout,
+            stderr,
+            this.startNanos,
+            this.exitNanos,
+            this.endNanos,
+            this.resourceUsage
+        );
+    }
+
+    /**
+     * Releases the resources of the STDOUT and STDERR captures, like the
+     * temporary files of spilled output.
+     *
+     * @throws IOException If a temporary file cannot be deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.stdout.release();
+        } finally {
+            this.stderr.release();
+        }
+    }
+
+    /**
+     * Decodes at most the last <b>maxBytes</b> bytes captured by the given
+     * sink.
+     *
+     * @param sink The sink that received the output.
+     * @param maxBytes Maximum number of decoded bytes.
+     *
+     * @return String
+     */
+    private static String textOf(OutputSink sink, int maxBytes) {
+        return new String(
+            sink.getTail(maxBytes),
+            Charset.defaultCharset()
+        ).trim();
+    }
+}
@@ -0,0 +1,678 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduler that limits the number of concurrently running executables.
+ *
+ * Submitted executables wait in a priority ordered queue until a slot becomes
+ * available. The scheduler enforces a global limit and optional limits per
+ * command, where the command is the first element of the command line. When
+ * the queue is full, callers will either block or get an
+ * {@link ExecutionRejectedException}, depending on the configured policy.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ExecutionScheduler {
+
+    /**
+     * Default priority for submitted executables. Executables with a higher
+     * priority will be started first.
+     */
+    public static final int NORM_PRIORITY = 0;
+
+    /**
+     * Behavior of {@link ExecutionScheduler#submit(AbstractExecutable, int)}
+     * when the queue is full.
+     */
+    public enum Backpressure {
+        /**
+         * Block the caller until there is space in the queue.
+         */
+        BLOCK,
+
+        /**
+         * Throw an {@link ExecutionRejectedException}.
+         */
+        REJECT
+    }
+
+    /**
+     * Guards all mutable state of this scheduler.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when a queued executable was started.
+     */
+    private final Condition notFull = this.lock.newCondition();
+
+    /**
+     * The queued executables, ordered by priority and submission order.
+     */
+    private final TreeSet<Task> queue = new TreeSet<Task>();
+
+    /**
+     * Number of running executables per command.
+     */
+    private final Map<String, Integer> runningPerCommand =
+            new HashMap<String, Integer>();
+
+    /**
+     * Configured limits per command.
+     */
+    private final Map<String, Integer> commandLimits =
+            new HashMap<String, Integer>();
+
+    /**
+     * Maximum number of queued executables.
+     */
+    private final int maxQueued;
+
+    /**
+     * Behavior when the queue is full.
+     */
+    private final Backpressure backpressure;
+
+    /**
+     * Maximum number of concurrently running executables.
+     */
+    private int maxRunning;
+
+    /**
+     * Number of currently running executables.
+     */
+    private int running = 0;
+
+    /**
+     * Optional strategy that adapts the maximum number of concurrently running
+     * executables.
+     */
+    private ConcurrencyLimiter limiter = null;
+
+    /**
+     * The executor used to launch processes.
+     */
+    private Executor executor = ForkJoinPool.commonPool();
+
+    /**
+     * Sequence number of the next submitted executable.
+     */
+    private long sequence = 0;
+
+    /**
+     * Number of started executables.
+     */
+    private final AtomicLong started = new AtomicLong(0);
+
+    /**
+     * Accumulated queue wait time of all started executables.
+     */
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+
+    /**
+     * Longest queue wait time of a started executable.
+     */
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+
+    /**
+     * Constructs a new scheduler that runs one executable per available
+     * processor and blocks callers when more than 1024 executables wait.
+     */
+    public ExecutionScheduler() {
+        this(
+            Runtime.getRuntime().availableProcessors(),
+            1024,
+            Backpressure.BLOCK
+        );
+    }
+
+    /**
+     * Constructs a new scheduler.
+     *
+     * @param maxRunning Maximum number of concurrently running executables.
+     * @param maxQueued Maximum number of queued executables.
+     * @param backpressure Behavior when the queue is full.
+     */
+    public ExecutionScheduler(
+            int maxRunning,
+            int maxQueued,
+            Backpressure backpressure
+    ) {
+        this.maxRunning   = Math.max(1, maxRunning);
+        this.maxQueued    = Math.max(0, maxQueued);
+        this.backpressure = backpressure;
+    }
+
+    /**
+     * Sets the executor used to launch processes.
+     *
+     * @param executor The executor used to launch processes.
+     *
+     * @return The entire scheduler.
+     */
+    public ExecutionScheduler setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Limits the number of concurrently running executables for the given
+     * command.
+     *
+     * @param command The command, the first element of a command line.
+     * @param limit Maximum number of concurrently running executables.
+     *
+     * @return The entire scheduler.
+     */
+    public ExecutionScheduler setCommandLimit(String command, int limit) {
+        List<Task> ready;
+
+        this.lock.lock();
+        try {
+            this.commandLimits.put(command, Math.max(1, limit));
+            ready = this.dispatch();
+        } finally {
+            this.lock.unlock();
+        }
+        this.start(ready);
+        return this;
+    }
+
+    /**
+     * Changes the maximum number of concurrently running executables.
+     *
+     * @param maxRunning Maximum number of concurrently running executables.
+     */
+    public void setMaxRunning(int maxRunning) {
+        List<Task> ready;
+
+        this.lock.lock();
+        try {
+            this.maxRunning = Math.max(1, maxRunning);
+            ready = this.dispatch();
+        } finally {
+            this.lock.unlock();
+        }
+        this.start(ready);
+    }
+
+    /**
+     * Lets the given limiter adapt the maximum number of concurrently running
+     * executables from the outcome of each execution. Pass <b>null</b> to keep
+     * the current limit fixed.
+     *
+     * @param limiter The adaptive limit strategy or <b>null</b>.
+     *
+     * @return The entire scheduler.
+     */
+    public ExecutionScheduler setConcurrencyLimiter(
+            ConcurrencyLimiter limiter
+    ) {
+        List<Task> ready = new ArrayList<Task>();
+
+        this.lock.lock();
+        try {
+            this.limiter = limiter;
+            if (limiter != null) {
+                this.maxRunning = Math.max(1, limiter.getLimit());
+                ready = this.dispatch();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+        this.start(ready);
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of concurrently running executables.
+     *
+     * @return int
+     */
+    public int getMaxRunning() {
+        this.lock.lock();
+        try {
+            return this.maxRunning;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Submits the given executable with the default priority.
+     *
+     * @param executable The executable to run.
+     *
+     * @return A future for the result of the execution.
+     * @throws ExecutionRejectedException When the queue is full.
+     */
+    public CompletableFuture<ExecutionResult> submit(
+            AbstractExecutable executable
+    ) throws ExecutionRejectedException {
+        return this.submit(executable, NORM_PRIORITY);
+    }
+
+    /**
+     * Submits the given executable. Depending on the configured backpressure
+     * policy, this method blocks or throws an exception when the queue is
+     * full.
+     *
+     * @param executable The executable to run.
+     * @param priority Executables with a higher priority start first.
+     *
+     * @return A future for the result of the execution.
+     * @throws ExecutionRejectedException When the queue is full.
+     */
+    public CompletableFuture<ExecutionResult> submit(
+            AbstractExecutable executable,
+            int priority
+    ) throws ExecutionRejectedException {
+        List<Task> ready;
+        Task task;
+
+        this.lock.lock();
+        try {
+            this.awaitCapacity(Task.commandOf(executable));
+
+            task = new Task(executable, priority, this.sequence++);
+            this.queue.add(task);
+
+            ready = this.dispatch();
+        } finally {
+            this.lock.unlock();
+        }
+        this.start(ready);
+
+        return task.future;
+    }
+
+    /**
+     * Returns the number of queued executables.
+     *
+     * @return int
+     */
+    public int getQueueDepth() {
+        this.lock.lock();
+        try {
+            return this.queue.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of currently running executables.
+     *
+     * @return int
+     */
+    public int getRunningCount() {
+        this.lock.lock();
+        try {
+            return this.running;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of executables started by this scheduler.
+     *
+     * @return long
+     */
+    public long getStartedCount() {
+        return this.started.get();
+    }
+
+    /**
+     * Returns the average time a started executable has waited in the queue.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getAverageWaitTime(TimeUnit unit) {
+        long count = this.started.get();
+        if (count == 0) {
+            return 0;
+        }
+        return unit.convert(
+            this.totalWaitNanos.get() / count,
+            TimeUnit.NANOSECONDS
+        );
+    }
+
+    /**
+     * Returns the longest time a started executable has waited in the queue.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(this.maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Blocks or throws an exception while the queue is full and an executable
+     * of the given command cannot start immediately. Tasks left in the queue
+     * are held back by the global or by their per-command limit, so the
+     * queue size alone bounds the waiting executables. Must be called while
+     * holding the lock.
+     *
+     * @param command The command of the submitted executable.
+     *
+     * @throws ExecutionRejectedException When the queue is full.
+     */
+    private void awaitCapacity(String command)
+            throws ExecutionRejectedException {
+        while (this.queue.size() >= this.maxQueued
+                && !this.canStart(command)) {
+            if (this.backpressure == Backpressure.REJECT) {
+                throw new ExecutionRejectedException(
+                    String.format(
+                        "Queue is full, %d executables waiting.",
+                        this.queue.size()
+                    )
+                );
+            }
+            try {
+                this.notFull.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExecutionRejectedException(
+                    "Interrupted while waiting for queue capacity."
+                );
+            }
+        }
+    }
+
+    /**
+     * Returns <b>true</b> when an executable of the given command can start
+     * without exceeding the global or its per-command limit. Must be called
+     * while holding the lock.
+     *
+     * @param command The command of the executable.
+     *
+     * @return boolean
+     */
+    private boolean canStart(String command) {
+        Integer limit = this.commandLimits.get(command);
+        return this.running < this.maxRunning
+            && (limit == null || this.getRunning(command) < limit);
+    }
+
+    /**
+     * Removes all queued executables that can be started now. Must be called
+     * while holding the lock.
+     *
+     * @return The executables to start.
+     */
+    private List<Task> dispatch() {
+        List<Task> ready = new ArrayList<Task>();
+
+        Iterator<Task> it = this.queue.iterator();
+        while (it.hasNext() && this.running < this.maxRunning) {
+            Task task = it.next();
+            if (task.future.isDone()) {
+                it.remove();
+                continue;
+            }
+
+            int count = this.getRunning(task.command);
+            Integer limit = this.commandLimits.get(task.command);
+            if (limit != null && count >= limit) {
+                continue;
+            }
+
+            it.remove();
+            this.runningPerCommand.put(task.command, count + 1);
+            ++this.running;
+
+            ready.add(task);
+        }
+
+        if (!ready.isEmpty()) {
+            this.notFull.signalAll();
+        }
+        return ready;
+    }
+
+    /**
+     * Starts the given executables. Must be called without holding the lock.
+     *
+     * @param ready The executables to start.
+     */
+    private void start(List<Task> ready) {
+        for (Task task : ready) {
+            long waitNanos = System.nanoTime() - task.enqueueNanos;
+
+            this.started.incrementAndGet();
+            this.totalWaitNanos.addAndGet(waitNanos);
+            this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+            ExecutionMetrics metrics = task.executable.getMetrics();
+            if (metrics != null) {
+                metrics.command(task.command).queued(waitNanos);
+            }
+
+            this.run(task);
+        }
+    }
+
+    /**
+     * Runs a single executable and releases its slot when it has completed.
+     *
+     * @param task The executable to run.
+     */
+    private void run(Task task) {
+        final long startNanos = System.nanoTime();
+
+        CompletableFuture<ExecutionResult> execution;
+        try {
+            execution = task.executable.execAsync(this.executor);
+        } catch (RuntimeException e) {
+            execution = new CompletableFuture<ExecutionResult>();
+            execution.completeExceptionally(e);
+        }
+
+        execution.whenComplete((result, failure) -> {
+            this.release(task, System.nanoTime() - startNanos, failure == null);
+            if (failure == null) {
+                task.future.complete(result);
+            } else {
+                task.future.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * Releases the slot of the given executable and starts waiting ones.
+     *
+     * @param task The completed executable.
+     * @param wallNanos Wall time of the execution in nano seconds.
+     * @param success Did the execution complete successfully?
+     */
+    private void release(Task task, long wallNanos, boolean success) {
+        List<Task> ready;
+
+        this.lock.lock();
+        try {
+            if (this.limiter != null) {
+                this.limiter.onSample(
+                    task.command,
+                    wallNanos,
+                    success,
+                    this.running
+                );
+                this.maxRunning = Math.max(1, this.limiter.getLimit());
+            }
+
+            --this.running;
+            this.runningPerCommand.put(
+                task.command,
+                this.getRunning(task.command) - 1
+            );
+            ready = this.dispatch();
+
+            // A blocked submitter may start directly in the freed slot
+            this.notFull.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        this.start(ready);
+    }
+
+    /**
+     * Returns the number of running executables for the given command. Must
+     * be called while holding the lock.
+     *
+     * @param command The command, the first element of a command line.
+     *
+     * @return int
+     */
+    private int getRunning(String command) {
+        Integer count = this.runningPerCommand.get(command);
+        if (count == null) {
+            return 0;
+        }
+        return count;
+    }
+
+    /**
+     * A queued executable.
+     */
+    private static final class Task implements Comparable<Task> {
+
+        /**
+         * The executable to run.
+         */
+        private final AbstractExecutable executable;
+
+        /**
+         * The command, the first element of the command line.
+         */
+        private final String command;
+
+        /**
+         * Priority of this task.
+         */
+        private final int priority;
+
+        /**
+         * Submission order of this task.
+         */
+        private final long sequence;
+
+        /**
+         * Nano time when this task was queued.
+         */
+        private final long enqueueNanos = System.nanoTime();
+
+        /**
+         * Future handed out to the caller.
+         */
+        private final CompletableFuture<ExecutionResult> future =
+                new CompletableFuture<ExecutionResult>();
+
+        /**
+         * Constructs a new task.
+         *
+         * @param executable The executable to run.
+         * @param priority Priority of this task.
+         * @param sequence Submission order of this task.
+         */
+        Task(AbstractExecutable executable, int priority, long sequence) {
+            this.executable = executable;
+            this.command    = commandOf(executable);
+            this.priority   = priority;
+            this.sequence   = sequence;
+        }
+
+        /**
+         * Returns the command of the given executable, the first element of
+         * its command line.
+         *
+         * @param executable The executable.
+         *
+         * @return String
+         */
+        static String commandOf(AbstractExecutable executable) {
+            List<String> commandLine = executable.getCommandLine();
+            return commandLine.isEmpty() ? "" : commandLine.get(0);
+        }
+
+        /**
+         * Orders tasks by descending priority and ascending submission order.
+         *
+         * @param other The task to compare with.
+         *
+         * @return int
+         */
+        @Override
+        public int compareTo(Task other) {
+            if (this.priority != other.priority) {
+                return other.priority < this.priority ? -1 : 1;
+            }
+            return Long.compare(this.sequence, other.sequence);
+        }
+    }
+}
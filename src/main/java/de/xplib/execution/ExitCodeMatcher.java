@@ -0,0 +1,450 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable mapping from exit codes to {@link ExitCodeOutcome}s.
+ *
+ * Exit codes between 0 and 255 are stored in bit sets, all other codes in
+ * small sorted arrays, so that a lookup never allocates. Codes without an
+ * explicit mapping get the default outcome, which is {@link
+ * ExitCodeOutcome#FAILURE} unless the matcher was created with
+ * {@link #anyBut(int...)}.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class ExitCodeMatcher {
+
+    /**
+     * Highest exit code stored in the bit sets.
+     */
+    private static final int MAX_BIT_CODE = 255;
+
+    /**
+     * Number of longs in one bit set.
+     */
+    private static final int WORDS = (MAX_BIT_CODE + 1) / 64;
+
+    /**
+     * Maximum number of codes outside of the bit set range that can be added
+     * with a single range.
+     */
+    private static final int MAX_OTHER_RANGE = 1024;
+
+    /**
+     * Matcher without any valid exit code.
+     */
+    private static final ExitCodeMatcher NONE = new ExitCodeMatcher(
+        new long[WORDS],
+        new long[WORDS],
+        new long[WORDS],
+        new int[0],
+        new ExitCodeOutcome[0],
+        ExitCodeOutcome.FAILURE
+    );
+
+    /**
+     * Codes between 0 and 255 mapped to {@link ExitCodeOutcome#SUCCESS}.
+     */
+    private final long[] successes;
+
+    /**
+     * Codes between 0 and 255 mapped to {@link ExitCodeOutcome#WARNING}.
+     */
+    private final long[] warnings;
+
+    /**
+     * Codes between 0 and 255 mapped to {@link ExitCodeOutcome#FAILURE}.
+     */
+    private final long[] failures;
+
+    /**
+     * Sorted, explicitly mapped codes outside of the bit set range.
+     */
+    private final int[] otherCodes;
+
+    /**
+     * Outcomes of the codes outside of the bit set range.
+     */
+    private final ExitCodeOutcome[] otherOutcomes;
+
+    /**
+     * Outcome of all codes without an explicit mapping.
+     */
+    private final ExitCodeOutcome defaultOutcome;
+
+    /**
+     * Constructs a new matcher.
+     *
+     * @param successes Success bit set.
+     * @param warnings Warning bit set.
+     * @param failures Failure bit set.
+     * @param otherCodes Sorted codes outside of the bit set range.
+     * @param otherOutcomes Outcomes of the codes outside of the range.
+     * @param defaultOutcome Outcome of all unmapped codes.
+     */
+    private ExitCodeMatcher(
+            long[] successes,
+            long[] warnings,
+            long[] failures,
+            int[] otherCodes,
+            ExitCodeOutcome[] otherOutcomes,
+            ExitCodeOutcome defaultOutcome
+    ) {
+        this.successes      = successes;
+        this.warnings       = warnings;
+        this.failures       = failures;
+        this.otherCodes     = otherCodes;
+        this.otherOutcomes  = otherOutcomes;
+        this.defaultOutcome = defaultOutcome;
+    }
+
+    /**
+     * Returns a matcher without any valid exit code.
+     *
+     * @return ExitCodeMatcher
+     */
+    public static ExitCodeMatcher none() {
+        return NONE;
+    }
+
+    /**
+     * Returns a matcher that accepts exactly the given exit codes.
+     *
+     * @param codes The valid exit codes.
+     *
+     * @return ExitCodeMatcher
+     */
+    public static ExitCodeMatcher of(int... codes) {
+        ExitCodeMatcher matcher = NONE;
+        for (int code : codes) {
+            matcher = matcher.with(code);
+        }
+        return matcher;
+    }
+
+    /**
+     * Returns a matcher that accepts all exit codes between <b>from</b> and
+     * <b>to</b>, both inclusive.
+     *
+     * @param from The lowest valid exit code.
+     * @param to The highest valid exit code.
+     *
+     * @return ExitCodeMatcher
+     */
+    public static ExitCodeMatcher range(int from, int to) {
+        return NONE.withRange(from, to);
+    }
+
+    /**
+     * Returns a matcher that accepts every exit code except the given ones.
+     *
+     * @param codes The invalid exit codes.
+     *
+     * @return ExitCodeMatcher
+     */
+    public static ExitCodeMatcher anyBut(int... codes) {
+        ExitCodeMatcher matcher = new ExitCodeMatcher(
+            NONE.successes,
+            NONE.warnings,
+            NONE.failures,
+            NONE.otherCodes,
+            NONE.otherOutcomes,
+            ExitCodeOutcome.SUCCESS
+        );
+        for (int code : codes) {
+            matcher = matcher.withOutcome(code, ExitCodeOutcome.FAILURE);
+        }
+        return matcher;
+    }
+
+    /**
+     * Returns a copy of this matcher that also accepts the given exit code.
+     *
+     * @param code A valid exit code.
+     *
+     * @return ExitCodeMatcher
+     */
+    public ExitCodeMatcher with(int code) {
+        return this.withOutcome(code, ExitCodeOutcome.SUCCESS);
+    }
+
+    /**
+     * Returns a copy of this matcher that also accepts all exit codes between
+     * <b>from</b> and <b>to</b>, both inclusive.
+     *
+     * @param from The lowest valid exit code.
+     * @param to The highest valid exit code.
+     *
+     * @return ExitCodeMatcher
+     * @throws ValidationException When the range contains too many codes
+     *         outside of 0 to 255.
+     */
+    public ExitCodeMatcher withRange(int from, int to)
+            throws ValidationException {
+        long below = Math.max(0L, Math.min((long) to, -1L) - from + 1);
+        long above = Math.max(
+            0L,
+            (long) to - Math.max(from, MAX_BIT_CODE + 1) + 1
+        );
+        if (below + above > MAX_OTHER_RANGE) {
+            throw new ValidationException(
+                String.format(
+                    "Range %d..%d has more than %d codes outside of 0..%d.",
+                    from,
+                    to,
+                    MAX_OTHER_RANGE,
+                    MAX_BIT_CODE
+                )
+            );
+        }
+
+        long[] s = this.successes.clone();
+        long[] w = this.warnings.clone();
+        long[] f = this.failures.clone();
+        int last = Math.min(to, MAX_BIT_CODE);
+        for (int code = Math.max(0, from); code <= last; ++code) {
+            set(s, code);
+            unset(w, code);
+            unset(f, code);
+        }
+
+        ExitCodeMatcher matcher = new ExitCodeMatcher(
+            s, w, f,
+            this.otherCodes,
+            this.otherOutcomes,
+            this.defaultOutcome
+        );
+        for (long code = from; code <= to; ++code) {
+            if (code < 0 || code > MAX_BIT_CODE) {
+                matcher = matcher.with((int) code);
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * Returns a copy of this matcher that maps the given exit code to the
+     * given outcome.
+     *
+     * @param code An exit code.
+     * @param outcome The outcome for this exit code.
+     *
+     * @return ExitCodeMatcher
+     */
+    public ExitCodeMatcher withOutcome(int code, ExitCodeOutcome outcome) {
+        if (code >= 0 && code <= MAX_BIT_CODE) {
+            long[] s = clear(this.successes, code);
+            long[] w = clear(this.warnings, code);
+            long[] f = clear(this.failures, code);
+            switch (outcome) {
+            case SUCCESS:
+                set(s, code);
+                break;
+            case WARNING:
+                set(w, code);
+                break;
+            default:
+                set(f, code);
+                break;
+            }
+            return new ExitCodeMatcher(
+                s, w, f,
+                this.otherCodes,
+                this.otherOutcomes,
+                this.defaultOutcome
+            );
+        }
+
+        int index = Arrays.binarySearch(this.otherCodes, code);
+        int[] codes;
+        ExitCodeOutcome[] outcomes;
+        if (index >= 0) {
+            codes    = this.otherCodes;
+            outcomes = this.otherOutcomes.clone();
+        } else {
+            index    = -index - 1;
+            codes    = new int[this.otherCodes.length + 1];
+            outcomes = new ExitCodeOutcome[codes.length];
+
+            System.arraycopy(this.otherCodes, 0, codes, 0, index);
+            System.arraycopy(this.otherOutcomes, 0, outcomes, 0, index);
+            System.arraycopy(
+                this.otherCodes, index,
+                codes, index + 1,
+                this.otherCodes.length - index
+            );
+            System.arraycopy(
+                this.otherOutcomes, index,
+                outcomes, index + 1,
+                this.otherOutcomes.length - index
+            );
+            codes[index] = code;
+        }
+        outcomes[index] = outcome;
+
+        return new ExitCodeMatcher(
+            this.successes,
+            this.warnings,
+            this.failures,
+            codes,
+            outcomes,
+            this.defaultOutcome
+        );
+    }
+
+    /**
+     * Returns the outcome for the given exit code.
+     *
+     * @param code An exit code returned by a command line tool.
+     *
+     * @return ExitCodeOutcome
+     */
+    public ExitCodeOutcome outcome(int code) {
+        if (code >= 0 && code <= MAX_BIT_CODE) {
+            if (isSet(this.successes, code)) {
+                return ExitCodeOutcome.SUCCESS;
+            }
+            if (isSet(this.warnings, code)) {
+                return ExitCodeOutcome.WARNING;
+            }
+            if (isSet(this.failures, code)) {
+                return ExitCodeOutcome.FAILURE;
+            }
+            return this.defaultOutcome;
+        }
+
+        int index = Arrays.binarySearch(this.otherCodes, code);
+        if (index >= 0) {
+            return this.otherOutcomes[index];
+        }
+        return this.defaultOutcome;
+    }
+
+    /**
+     * Tests if the given exit code represents a valid execution.
+     *
+     * @param code An exit code returned by a command line tool.
+     *
+     * @return boolean
+     */
+    public boolean matches(int code) {
+        return this.outcome(code) != ExitCodeOutcome.FAILURE;
+    }
+
+    /**
+     * Returns all valid exit codes between 0 and 255 and all explicitly
+     * mapped valid codes outside of this range.
+     *
+     * @return List<Integer>
+     */
+    public List<Integer> toList() {
+        List<Integer> codes = new ArrayList<Integer>();
+        for (int code = 0; code <= MAX_BIT_CODE; ++code) {
+            if (this.matches(code)) {
+                codes.add(code);
+            }
+        }
+        for (int i = 0; i < this.otherCodes.length; ++i) {
+            if (this.otherOutcomes[i] != ExitCodeOutcome.FAILURE) {
+                codes.add(this.otherCodes[i]);
+            }
+        }
+        return Collections.unmodifiableList(codes);
+    }
+
+    /**
+     * Returns a copy of the given bit set with the given bit cleared.
+     *
+     * @param bits A bit set.
+     * @param code The bit to clear.
+     *
+     * @return long[]
+     */
+    private static long[] clear(long[] bits, int code) {
+        long[] copy = bits.clone();
+        unset(copy, code);
+        return copy;
+    }
+
+    /**
+     * Clears the given bit.
+     *
+     * @param bits A bit set.
+     * @param code The bit to clear.
+     */
+    private static void unset(long[] bits, int code) {
+        bits[code >>> 6] &= ~(1L << code);
+    }
+
+    /**
+     * Sets the given bit.
+     *
+     * @param bits A bit set.
+     * @param code The bit to set.
+     */
+    private static void set(long[] bits, int code) {
+        bits[code >>> 6] |= 1L << code;
+    }
+
+    /**
+     * Tests if the given bit is set.
+     *
+     * @param bits A bit set.
+     * @param code The bit to test.
+     *
+     * @return boolean
+     */
+    private static boolean isSet(long[] bits, int code) {
+        return (bits[code >>> 6] & (1L << code)) != 0;
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers SHA-256 content hashes of files, so that a file is hashed again
+ * only when its size or modification time has changed.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class FileDigests {
+
+    /**
+     * Content hashes of files, by absolute path.
+     */
+    private final ConcurrentHashMap<String, FileDigest> digests =
+            new ConcurrentHashMap<String, FileDigest>();
+
+    /**
+     * Returns the content hash of the given file, which is recalculated only
+     * when size or modification time of the file have changed.
+     *
+     * @param file The file.
+     *
+     * @return String
+     * @throws IOException If the file cannot be read.
+     */
+    String hash(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long modified = file.lastModified();
+
+        FileDigest known = this.digests.get(path);
+        if (known != null
+                && known.length == length
+                && known.modified == modified) {
+            return known.hash;
+        }
+
+        MessageDigest digest = newDigest();
+        byte[] buffer = BufferPool.acquire();
+        InputStream stream = Files.newInputStream(file.toPath());
+        try {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            stream.close();
+            BufferPool.release(buffer);
+        }
+
+        String hash = hex(digest.digest());
+        this.digests.put(path, new FileDigest(length, modified, hash));
+        return hash;
+    }
+
+    /**
+     * Forgets all remembered hashes.
+     */
+    void clear() {
+        this.digests.clear();
+    }
+
+    /**
+     * Writes all remembered hashes to the given stream.
+     *
+     * @param out The target stream.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    void write(DataOutputStream out) throws IOException {
+        Map<String, FileDigest> snapshot =
+            new HashMap<String, FileDigest>(this.digests);
+
+        out.writeInt(snapshot.size());
+        for (Map.Entry<String, FileDigest> entry : snapshot.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue().length);
+            out.writeLong(entry.getValue().modified);
+            out.writeUTF(entry.getValue().hash);
+        }
+    }
+
+    /**
+     * Reads hashes written by {@link #write(DataOutputStream)}.
+     *
+     * @param in The source stream.
+     *
+     * @throws IOException If the stream cannot be read.
+     */
+    void read(DataInputStream in) throws IOException {
+        for (int i = in.readInt(); i > 0; --i) {
+            String path = in.readUTF();
+            long length = in.readLong();
+            long modified = in.readLong();
+            String hash = in.readUTF();
+
+            this.digests.put(path, new FileDigest(length, modified, hash));
+        }
+    }
+
+    /**
+     * Creates a new SHA-256 digest.
+     *
+     * @return MessageDigest
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a tagged, length-prefixed value to the given digest.
+     *
+     * @param digest The digest.
+     * @param tag Type of the value.
+     * @param value The value.
+     */
+    static void update(MessageDigest digest, String tag, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(tag.getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) 0);
+        digest.update(Integer.toString(bytes.length).getBytes(
+            StandardCharsets.US_ASCII
+        ));
+        digest.update((byte) 0);
+        digest.update(bytes);
+    }
+
+    /**
+     * Returns the hexadecimal representation of the given bytes.
+     *
+     * @param bytes The raw digest.
+     *
+     * @return String
+     */
+    static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Remembered content hash of a file.
+     */
+    private static final class FileDigest {
+
+        /**
+         * File size when the hash was calculated.
+         */
+        final long length;
+
+        /**
+         * Modification time when the hash was calculated.
+         */
+        final long modified;
+
+        /**
+         * The content hash.
+         */
+        final String hash;
+
+        /**
+         * Constructs a new file digest.
+         *
+         * @param length File size when the hash was calculated.
+         * @param modified Modification time when the hash was calculated.
+         * @param hash The content hash.
+         */
+        FileDigest(long length, long modified, String hash) {
+            this.length   = length;
+            this.modified = modified;
+            this.hash     = hash;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output sink implementation that writes all received bytes into a file.
+ *
+ * The file will be opened lazily when the first bytes arrive and it will be
+ * closed when the command line tool closes its output stream, so that the same
+ * sink can be reused for multiple executions.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class FileOutputSink implements OutputSink {
+
+    /**
+     * The target file.
+     */
+    private final File file;
+
+    /**
+     * Should the output be appended to an existing file?
+     */
+    private final boolean append;
+
+    /**
+     * The currently opened output stream or <b>null</b>.
+     */
+    private OutputStream stream = null;
+
+    /**
+     * Constructs a new sink that truncates the given file.
+     *
+     * @param file The target file.
+     */
+    public FileOutputSink(File file) {
+        this(file, false);
+    }
+
+    /**
+     * Constructs a new file sink.
+     *
+     * @param file The target file.
+     * @param append Should the output be appended to an existing file?
+     */
+    public FileOutputSink(File file, boolean append) {
+        this.file   = file;
+        this.append = append;
+    }
+
+    /**
+     * Returns the target file of this sink.
+     *
+     * @return File
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Writes the given bytes into the target file.
+     *
+     * @param buffer The reused read buffer.
+     * @param offset Offset of the first valid byte in the buffer.
+     * @param length Number of valid bytes in the buffer.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public synchronized void write(byte[] buffer, int offset, int length)
+            throws IOException {
+        if (this.stream == null) {
+            this.stream = new FileOutputStream(this.file, this.append);
+        }
+        this.stream.write(buffer, offset, length);
+    }
+
+    /**
+     * Closes the underlying file stream.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.stream == null) {
+            this.stream = new FileOutputStream(this.file, this.append);
+        }
+        try {
+            this.stream.close();
+        } finally {
+            this.stream = null;
+        }
+    }
+}
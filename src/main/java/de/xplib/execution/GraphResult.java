@@ -0,0 +1,207 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a single execution of an {@link ExecutionGraph}.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class GraphResult {
+
+    /**
+     * All nodes of the graph in insertion order.
+     */
+    private final List<ExecutionGraph.Node> nodes;
+
+    /**
+     * Constructs a new graph result.
+     *
+     * @param nodes All nodes of the graph in insertion order.
+     */
+    GraphResult(List<ExecutionGraph.Node> nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * Returns all nodes of the graph in insertion order.
+     *
+     * @return List<ExecutionGraph.Node>
+     */
+    public List<ExecutionGraph.Node> getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Returns <b>true</b> when all nodes succeeded.
+     *
+     * @return boolean
+     */
+    public boolean isSuccessful() {
+        for (ExecutionGraph.Node node : this.nodes) {
+            if (!node.isSuccessful()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns all nodes that failed themselves, without the skipped nodes.
+     *
+     * @return List<ExecutionGraph.Node>
+     */
+    public List<ExecutionGraph.Node> getFailedNodes() {
+        List<ExecutionGraph.Node> failed =
+            new ArrayList<ExecutionGraph.Node>();
+        for (ExecutionGraph.Node node : this.nodes) {
+            if (node.getFailure() != null && !node.isSkipped()) {
+                failed.add(node);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Returns all nodes that were skipped because a dependency failed.
+     *
+     * @return List<ExecutionGraph.Node>
+     */
+    public List<ExecutionGraph.Node> getSkippedNodes() {
+        List<ExecutionGraph.Node> skipped =
+            new ArrayList<ExecutionGraph.Node>();
+        for (ExecutionGraph.Node node : this.nodes) {
+            if (node.isSkipped()) {
+                skipped.add(node);
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Returns the chain of nodes that determined the total run time. The
+     * path starts at the node that finished last and follows, for every
+     * node, the dependency that finished last. The returned list is ordered
+     * from the first to the last node of the chain.
+     *
+     * @return List<ExecutionGraph.Node>
+     */
+    public List<ExecutionGraph.Node> getCriticalPath() {
+        List<ExecutionGraph.Node> path = new ArrayList<ExecutionGraph.Node>();
+
+        ExecutionGraph.Node current = latest(this.nodes);
+        while (current != null) {
+            path.add(current);
+            current = latest(current.getDependencies());
+        }
+
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the sum of the run times of all nodes on the critical path.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getCriticalPathTime(TimeUnit unit) {
+        long nanos = 0;
+        for (ExecutionGraph.Node node : this.getCriticalPath()) {
+            nanos += node.getTime(TimeUnit.NANOSECONDS);
+        }
+        return unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Throws the failure of the first failed node, if there is one.
+     *
+     * @return The entire result.
+     * @throws ExecutionException The failure of the first failed node.
+     */
+    public GraphResult throwOnFailure() throws ExecutionException {
+        for (ExecutionGraph.Node node : this.getFailedNodes()) {
+            Throwable failure = node.getFailure();
+            if (failure instanceof ExecutionException) {
+                throw (ExecutionException) failure;
+            }
+            throw new ExecutionException(failure);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the node of the given list that finished last, or <b>null</b>
+     * when none of them has finished.
+     *
+     * @param candidates The candidate nodes.
+     *
+     * @return ExecutionGraph.Node
+     */
+    private static ExecutionGraph.Node latest(
+            List<ExecutionGraph.Node> candidates
+    ) {
+        ExecutionGraph.Node latest = null;
+        for (ExecutionGraph.Node node : candidates) {
+            if (node.getEndNanos() == 0) {
+                continue;
+            }
+            if (latest == null
+                || node.getEndNanos() - latest.getEndNanos() > 0
+            ) {
+                latest = node;
+            }
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,548 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State store for incremental, make-style execution.
+ *
+ * An executable that uses this store declares its input and output files.
+ * After a successful execution the store records a fingerprint over the
+ * command line, the working directory, the content hash of the executable
+ * and the content hashes of all input files, together with the exit code.
+ * When the fingerprint still matches on the next execution and all output
+ * files exist, the recorded exit code is returned without starting a
+ * process. File hashes are remembered by size and modification time, so
+ * unchanged files are not read again, not even after a restart.
+ *
+ * The whole state is kept in memory. Every recorded execution is appended
+ * to a single state file, which is compacted into a fresh snapshot of all
+ * records and file hashes once the appended entries outnumber the records
+ * of the last snapshot. Recording therefore costs amortized constant time,
+ * independent of the number of known targets.
+ *
+ * Executions that read STDIN cannot be fingerprinted and are rejected in
+ * incremental mode; declare the file that feeds STDIN as an input instead.
+ *
+ * <code>
+ * IncrementalState state = new IncrementalState(new File("build/.state"));
+ *
+ * AbstractExecutable exec = new DefaultExecutable("/usr/bin/pdepend");
+ * exec.addArgument("--summary-xml=build/summary.xml").addArgument("src");
+ * exec.setIncrementalState(state)
+ *     .addIncrementalInput(new File("src/Foo.php"))
+ *     .addIncrementalOutput(new File("build/summary.xml"));
+ * exec.exec();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class IncrementalState {
+
+    /**
+     * Identifies the format of the state file.
+     */
+    private static final int MAGIC = 0x58494e43;
+
+    /**
+     * Minimum number of appended entries before the state file is compacted.
+     */
+    private static final int MIN_COMPACT_ENTRIES = 64;
+
+    /**
+     * The state file.
+     */
+    private final File file;
+
+    /**
+     * Remembered content hashes of inputs and executables.
+     */
+    private final FileDigests digests = new FileDigests();
+
+    /**
+     * Recorded executions, by target identifier.
+     */
+    private final Map<String, Record> records = new HashMap<String, Record>();
+
+    /**
+     * Was the state file already read?
+     */
+    private boolean loaded = false;
+
+    /**
+     * Number of entries appended to the state file since its last snapshot,
+     * or <b>-1</b> when the file has no valid snapshot yet.
+     */
+    private int appended = -1;
+
+    /**
+     * Number of executions that were skipped.
+     */
+    private final AtomicLong upToDate = new AtomicLong();
+
+    /**
+     * Number of executions that had to start a process.
+     */
+    private final AtomicLong outOfDate = new AtomicLong();
+
+    /**
+     * Constructs a new state store backed by the given file.
+     *
+     * @param file The state file, created on the first recorded execution.
+     */
+    public IncrementalState(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the state file.
+     *
+     * @return File
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns the number of executions that were skipped, because they were
+     * up to date.
+     *
+     * @return long
+     */
+    public long getUpToDateCount() {
+        return this.upToDate.get();
+    }
+
+    /**
+     * Returns the number of executions that had to start a process.
+     *
+     * @return long
+     */
+    public long getOutOfDateCount() {
+        return this.outOfDate.get();
+    }
+
+    /**
+     * Forgets all recorded executions and deletes the state file.
+     *
+     * @throws IOException If the state file cannot be deleted.
+     */
+    public synchronized void clear() throws IOException {
+        this.records.clear();
+        this.digests.clear();
+        this.loaded   = true;
+        this.appended = -1;
+
+        Files.deleteIfExists(this.file.toPath());
+    }
+
+    /**
+     * Calculates the fingerprint of an invocation and checks it against the
+     * recorded execution.
+     *
+     * @param commandLine The command line of the invocation.
+     * @param inputs The input files of the invocation.
+     * @param outputs The output files of the invocation.
+     *
+     * @return Target
+     * @throws IOException If an input file or the state file cannot be read.
+     */
+    Target target(
+            List<String> commandLine,
+            List<File> inputs,
+            List<File> outputs
+    ) throws IOException {
+        // Load the cached file digests before hashing, so that unchanged
+        // files are not read again on the first invocation
+        synchronized (this) {
+            this.load();
+        }
+
+        MessageDigest id = FileDigests.newDigest();
+        FileDigests.update(id, "dir", System.getProperty("user.dir"));
+        for (String argument : commandLine) {
+            FileDigests.update(id, "arg", argument);
+        }
+        for (File output : outputs) {
+            FileDigests.update(id, "out", output.getPath());
+        }
+
+        MessageDigest fingerprint = FileDigests.newDigest();
+        FileDigests.update(
+            fingerprint,
+            "exe",
+            this.digests.hash(new File(commandLine.get(0)))
+        );
+        for (File input : inputs) {
+            FileDigests.update(fingerprint, "in", input.getPath());
+            FileDigests.update(fingerprint, "hash", this.digests.hash(input));
+        }
+
+        Target target = new Target(
+            this,
+            FileDigests.hex(id.digest()),
+            FileDigests.hex(fingerprint.digest()),
+            new ArrayList<File>(outputs)
+        );
+
+        Record record;
+        synchronized (this) {
+            record = this.records.get(target.id);
+        }
+        if (record != null
+                && record.fingerprint.equals(target.fingerprint)
+                && target.outputsExist()) {
+            target.exitCode = record.exitCode;
+            this.upToDate.incrementAndGet();
+        } else {
+            this.outOfDate.incrementAndGet();
+        }
+        return target;
+    }
+
+    /**
+     * Records a successful execution and appends it to the state file, or
+     * compacts the state file when too many entries were appended.
+     *
+     * @param target The executed target.
+     * @param exitCode The exit code of the execution.
+     *
+     * @throws IOException If the state file cannot be written.
+     */
+    private synchronized void record(Target target, int exitCode)
+            throws IOException {
+        this.load();
+
+        Record record = new Record(target.fingerprint, exitCode);
+        this.records.put(target.id, record);
+
+        if (this.appended < 0
+                || this.appended >= MIN_COMPACT_ENTRIES
+                    && this.appended >= this.records.size()) {
+            this.store();
+        } else {
+            this.append(target.id, record);
+        }
+    }
+
+    /**
+     * Reads the state file, once.
+     *
+     * @throws IOException If the state file cannot be read.
+     */
+    private void load() throws IOException {
+        if (this.loaded) {
+            return;
+        }
+        this.loaded = true;
+
+        if (!this.file.isFile()) {
+            return;
+        }
+
+        DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(this.file.toPath()))
+        );
+        try {
+            if (in.readInt() != MAGIC) {
+                return;
+            }
+            this.digests.read(in);
+            for (int i = in.readInt(); i > 0; --i) {
+                this.readRecord(in);
+            }
+            this.appended = 0;
+
+            while (true) {
+                in.mark(1);
+                if (in.read() == -1) {
+                    break;
+                }
+                in.reset();
+
+                this.readRecord(in);
+                ++this.appended;
+            }
+        } catch (EOFException e) {
+            // Incomplete state file, rewrite it on the next record
+            this.appended = -1;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a single record from the state file.
+     *
+     * @param in The state file stream.
+     *
+     * @throws IOException If the record cannot be read.
+     */
+    private void readRecord(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        String fingerprint = in.readUTF();
+        int exitCode = in.readInt();
+
+        this.records.put(id, new Record(fingerprint, exitCode));
+    }
+
+    /**
+     * Appends a single record to the state file.
+     *
+     * @param id Identifies the recorded target.
+     * @param record The recorded execution.
+     *
+     * @throws IOException If the state file cannot be written.
+     */
+    private void append(String id, Record record) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(
+                Files.newOutputStream(
+                    this.file.toPath(),
+                    StandardOpenOption.APPEND
+                )
+            )
+        );
+        try {
+            out.writeUTF(id);
+            out.writeUTF(record.fingerprint);
+            out.writeInt(record.exitCode);
+        } finally {
+            out.close();
+        }
+        ++this.appended;
+    }
+
+    /**
+     * Writes a snapshot of all records and file hashes through a temporary
+     * file, so that readers never see a partially written state.
+     *
+     * @throws IOException If the state file cannot be written.
+     */
+    private void store() throws IOException {
+        File directory = this.file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+
+        File temp = File.createTempFile("state", ".tmp", directory);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp.toPath()))
+            );
+            try {
+                out.writeInt(MAGIC);
+                this.digests.write(out);
+                out.writeInt(this.records.size());
+                for (Map.Entry<String, Record> entry
+                        : this.records.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeUTF(entry.getValue().fingerprint);
+                    out.writeInt(entry.getValue().exitCode);
+                }
+            } finally {
+                out.close();
+            }
+
+            try {
+                Files.move(
+                    temp.toPath(),
+                    this.file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE
+                );
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(
+                    temp.toPath(),
+                    this.file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING
+                );
+            }
+            this.appended = 0;
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Fingerprinted invocation of an executable.
+     */
+    static final class Target {
+
+        /**
+         * The owning state store.
+         */
+        private final IncrementalState state;
+
+        /**
+         * Identifies the invocation independent of its inputs.
+         */
+        private final String id;
+
+        /**
+         * Digest over everything that influences the outputs.
+         */
+        private final String fingerprint;
+
+        /**
+         * The output files of the invocation.
+         */
+        private final List<File> outputs;
+
+        /**
+         * The recorded exit code or <b>null</b> when out of date.
+         */
+        private Integer exitCode = null;
+
+        /**
+         * Constructs a new target.
+         *
+         * @param state The owning state store.
+         * @param id Identifies the invocation independent of its inputs.
+         * @param fingerprint Digest over everything that influences outputs.
+         * @param outputs The output files of the invocation.
+         */
+        private Target(
+                IncrementalState state,
+                String id,
+                String fingerprint,
+                List<File> outputs
+        ) {
+            this.state       = state;
+            this.id          = id;
+            this.fingerprint = fingerprint;
+            this.outputs     = outputs;
+        }
+
+        /**
+         * Returns <b>true</b> when the recorded execution can be reused.
+         *
+         * @return boolean
+         */
+        boolean isUpToDate() {
+            return this.exitCode != null;
+        }
+
+        /**
+         * Returns the recorded exit code of an up to date target.
+         *
+         * @return int
+         */
+        int getExitCode() {
+            return this.exitCode.intValue();
+        }
+
+        /**
+         * Records a successful execution of this target. Nothing is recorded
+         * when one of the output files was not created.
+         *
+         * @param exitCode The exit code of the execution.
+         *
+         * @throws IOException If the state file cannot be written.
+         */
+        void record(int exitCode) throws IOException {
+            if (this.outputsExist()) {
+                this.state.record(this, exitCode);
+            }
+        }
+
+        /**
+         * Returns <b>true</b> when all output files exist.
+         *
+         * @return boolean
+         */
+        private boolean outputsExist() {
+            for (File output : this.outputs) {
+                if (!output.exists()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Recorded execution of a target.
+     */
+    private static final class Record {
+
+        /**
+         * Fingerprint of the recorded execution.
+         */
+        final String fingerprint;
+
+        /**
+         * Exit code of the recorded execution.
+         */
+        final int exitCode;
+
+        /**
+         * Constructs a new record.
+         *
+         * @param fingerprint Fingerprint of the recorded execution.
+         * @param exitCode Exit code of the recorded execution.
+         */
+        Record(String fingerprint, int exitCode) {
+            this.fingerprint = fingerprint;
+            this.exitCode    = exitCode;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Writes an {@link InputSource} into the STDIN pipe of a running process, in
+ * a pooled daemon thread.
+ *
+ * A command line tool may exit or close STDIN before it has read all data.
+ * Such write failures end the transfer silently, only failures of the source
+ * itself complete the transfer exceptionally.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class InputFeeder implements Runnable {
+
+    /**
+     * Shared pool of feeder threads.
+     */
+    private static final ExecutorService EXECUTOR =
+        Executors.newCachedThreadPool(
+            new DaemonThreadFactory("execution-feed-")
+        );
+
+    /**
+     * The data to write.
+     */
+    private final InputSource source;
+
+    /**
+     * STDIN of the running process.
+     */
+    private final StdinStream stdin;
+
+    /**
+     * Completes when all data was written.
+     */
+    private final CompletableFuture<Void> future =
+        new CompletableFuture<Void>();
+
+    /**
+     * Constructs a new feeder.
+     *
+     * @param source The data to write.
+     * @param stdin STDIN of the running process.
+     */
+    private InputFeeder(InputSource source, OutputStream stdin) {
+        this.source = source;
+        this.stdin  = new StdinStream(stdin);
+    }
+
+    /**
+     * Starts to write the given source into the given STDIN stream.
+     *
+     * @param source The data to write.
+     * @param stdin STDIN of the running process.
+     *
+     * @return A future that completes when all data was written.
+     */
+    static CompletableFuture<Void> feed(
+            InputSource source,
+            OutputStream stdin
+    ) {
+        InputFeeder feeder = new InputFeeder(source, stdin);
+        EXECUTOR.execute(feeder);
+        return feeder.future;
+    }
+
+    /**
+     * Writes all data and closes STDIN afterwards.
+     */
+    @Override
+    public void run() {
+        try {
+            try {
+                this.source.transferTo(this.stdin);
+            } finally {
+                this.stdin.close();
+            }
+            this.future.complete(null);
+        } catch (IOException e) {
+            if (this.stdin.broken) {
+                this.future.complete(null);
+            } else {
+                this.future.completeExceptionally(e);
+            }
+        } catch (RuntimeException e) {
+            this.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * STDIN wrapper that remembers whether the process stopped reading.
+     */
+    private static final class StdinStream extends FilterOutputStream {
+
+        /**
+         * Did a write into the pipe fail?
+         */
+        private volatile boolean broken = false;
+
+        /**
+         * Constructs a new wrapper for the given stream.
+         *
+         * @param stdin STDIN of the running process.
+         */
+        StdinStream(OutputStream stdin) {
+            super(stdin);
+        }
+
+        /**
+         * Writes a single byte.
+         *
+         * @param b The byte to write.
+         *
+         * @throws IOException If the process stopped reading.
+         */
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                this.out.write(b);
+            } catch (IOException e) {
+                this.broken = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Writes <b>length</b> bytes of the given buffer at once.
+         *
+         * @param buffer The data to write.
+         * @param offset Offset of the first byte.
+         * @param length Number of bytes to write.
+         *
+         * @throws IOException If the process stopped reading.
+         */
+        @Override
+        public void write(byte[] buffer, int offset, int length)
+                throws IOException {
+            try {
+                this.out.write(buffer, offset, length);
+            } catch (IOException e) {
+                this.broken = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Closes the pipe, which signals end of input to the process.
+         *
+         * @throws IOException If the pipe cannot be flushed.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                this.out.close();
+            } catch (IOException e) {
+                this.broken = true;
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Factory for common {@link InputSource} implementations.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class InputSources {
+
+    /**
+     * Empty ctor, this is just a utility class with static methods.
+     */
+    private InputSources() {
+
+    }
+
+    /**
+     * Returns a source that writes the given bytes. The array is not copied,
+     * so it must not be modified while the command line tool is running.
+     *
+     * @param bytes The STDIN data.
+     *
+     * @return InputSource
+     */
+    public static InputSource bytes(byte[] bytes) {
+        return buffer(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Returns a source that writes the remaining bytes of the given buffer.
+     * The position of the given buffer is not changed, so that the same
+     * source can be used for several executions.
+     *
+     * @param buffer The STDIN data.
+     *
+     * @return InputSource
+     */
+    public static InputSource buffer(final ByteBuffer buffer) {
+        final ByteBuffer data = buffer.duplicate();
+        return new PipeSource() {
+            @Override
+            public void transferTo(OutputStream stdin) throws IOException {
+                write(data.duplicate(), stdin);
+            }
+        };
+    }
+
+    /**
+     * Returns a source that lets the operating system connect STDIN to the
+     * given file. No byte of the file passes through the virtual machine.
+     *
+     * @param file The STDIN file.
+     *
+     * @return InputSource
+     */
+    public static InputSource file(File file) {
+        final ProcessBuilder.Redirect redirect =
+            ProcessBuilder.Redirect.from(file);
+        return new InputSource() {
+            @Override
+            public ProcessBuilder.Redirect getRedirect() {
+                return redirect;
+            }
+
+            @Override
+            public void transferTo(OutputStream stdin) {
+                // Nothing to do, the operating system reads the file
+            }
+        };
+    }
+
+    /**
+     * Returns a source that writes a region of the given file. The region is
+     * mapped into memory once per execution, so that it will be read by the
+     * page cache instead of being copied into the heap.
+     *
+     * @param file The file that contains the STDIN data.
+     * @param position Offset of the region within the file.
+     * @param size Length of the region in bytes.
+     *
+     * @return InputSource
+     */
+    public static InputSource mapped(
+            final File file,
+            final long position,
+            final long size
+    ) {
+        return new PipeSource() {
+            @Override
+            public void transferTo(OutputStream stdin) throws IOException {
+                FileChannel channel = FileChannel.open(
+                    file.toPath(),
+                    StandardOpenOption.READ
+                );
+                try {
+                    write(
+                        channel.map(
+                            FileChannel.MapMode.READ_ONLY,
+                            position,
+                            size
+                        ),
+                        stdin
+                    );
+                } finally {
+                    channel.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a source that writes the chunks of the given producer, one
+     * after another.
+     *
+     * @param producer The incremental STDIN producer.
+     *
+     * @return InputSource
+     */
+    public static InputSource producer(final InputProducer producer) {
+        return new PipeSource() {
+            @Override
+            public void transferTo(OutputStream stdin) throws IOException {
+                ByteBuffer chunk;
+                while ((chunk = producer.next()) != null) {
+                    write(chunk, stdin);
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes the remaining bytes of the given buffer. Heap buffers are
+     * written directly, all other buffers are copied through pooled chunks.
+     *
+     * @param buffer The data to write.
+     * @param stdin STDIN of the running process.
+     *
+     * @throws IOException If the data cannot be written.
+     */
+    static void write(ByteBuffer buffer, OutputStream stdin)
+            throws IOException {
+        if (buffer.hasArray()) {
+            stdin.write(
+                buffer.array(),
+                buffer.arrayOffset() + buffer.position(),
+                buffer.remaining()
+            );
+            buffer.position(buffer.limit());
+            return;
+        }
+
+        byte[] chunk = BufferPool.acquire();
+        try {
+            while (buffer.hasRemaining()) {
+                int length = Math.min(chunk.length, buffer.remaining());
+                buffer.get(chunk, 0, length);
+                stdin.write(chunk, 0, length);
+            }
+        } finally {
+            BufferPool.release(chunk);
+        }
+    }
+
+    /**
+     * Base class for all sources that write into the STDIN pipe.
+     */
+    private abstract static class PipeSource implements InputSource {
+
+        /**
+         * Returns {@link ProcessBuilder.Redirect#PIPE}.
+         *
+         * @return ProcessBuilder.Redirect
+         */
+        @Override
+        public ProcessBuilder.Redirect getRedirect() {
+            return ProcessBuilder.Redirect.PIPE;
+        }
+    }
+}
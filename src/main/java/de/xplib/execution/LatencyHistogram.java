@@ -0,0 +1,270 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of latencies in nanoseconds.
+ *
+ * Values are counted in log-linear buckets: every power of two is split
+ * into eight sub buckets, so that each bucket is at most 12.5 percent wide,
+ * independent of the magnitude of the value, similar to an HDR histogram
+ * with one significant digit. Recording a value touches one bucket and two
+ * striped adders and never blocks.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Number of bits used to split a power of two into sub buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * Number of sub buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total number of buckets, enough for all positive long values.
+     */
+    private static final int BUCKETS =
+            SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Counts per bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Number of recorded values.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Sum of all recorded values.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Largest recorded value.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a single latency. Negative values are recorded as <b>0</b>.
+     *
+     * @param nanos The latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+
+        this.counts.incrementAndGet(index(value));
+        this.count.increment();
+        this.sum.add(value);
+        this.max.accumulate(value);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return long
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Returns the sum of all recorded values.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getSum(TimeUnit unit) {
+        return unit.convert(this.sum.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns an upper bound for the value below which the given percentage
+     * of all recorded values fall, for example <b>99.9</b>.
+     *
+     * @param percentile The percentile between <b>0</b> and <b>100</b>.
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            total += this.counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * Math.min(100, percentile) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += this.counts.get(i);
+            if (seen >= Math.max(1, rank)) {
+                long bound = Math.min(upperBound(i), this.max.get());
+                return unit.convert(bound, TimeUnit.NANOSECONDS);
+            }
+        }
+        return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of recorded values that are less than or equal to
+     * the given bound. All values in the bucket containing the bound are
+     * counted, so the result may include values up to one bucket width,
+     * 12.5%, above the bound, but never misses a value below it.
+     *
+     * @param nanos The bound in nanoseconds.
+     *
+     * @return long
+     */
+    public long getCountAtOrBelow(long nanos) {
+        return this.getCountsAtOrBelow(new long[] {nanos})[0];
+    }
+
+    /**
+     * Returns the cumulative number of recorded values at or below each of
+     * the given ascending bounds, see {@link #getCountAtOrBelow(long)},
+     * followed by the number of all values. All counts are taken from the
+     * same read of the buckets, so they never decrease, even while values
+     * are recorded concurrently.
+     *
+     * @param nanos The ascending bounds in nanoseconds.
+     *
+     * @return long[]
+     */
+    public long[] getCountsAtOrBelow(long[] nanos) {
+        long[] below = new long[nanos.length + 1];
+
+        long seen = 0;
+        int bound = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            while (bound < nanos.length && lowerBound(i) > nanos[bound]) {
+                below[bound++] = seen;
+            }
+            seen += this.counts.get(i);
+        }
+        while (bound <= nanos.length) {
+            below[bound++] = seen;
+        }
+        return below;
+    }
+
+    /**
+     * Returns the bucket for the given non negative value.
+     *
+     * @param value The value.
+     *
+     * @return int
+     */
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the largest value counted in the given bucket.
+     *
+     * @param index The bucket.
+     *
+     * @return long
+     */
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+
+        return lowerBound(index) + (1L << shift) - 1;
+    }
+
+    /**
+     * Returns the smallest value counted in the given bucket.
+     *
+     * @param index The bucket.
+     *
+     * @return long
+     */
+    private static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+
+        return (SUB_BUCKETS + sub) << shift;
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.Locale;
+
+/**
+ * System call used by the JDK to spawn child processes.
+ *
+ * The JDK reads the <b>jdk.lang.Process.launchMechanism</b> property only
+ * once, when the first process is started. A mechanism must therefore be
+ * selected before any process is started, for example during application
+ * startup. {@link #POSIX_SPAWN} and {@link #VFORK} do not copy the page
+ * tables of the JVM, so their cost does not grow with the heap size, while
+ * {@link #FORK} becomes slower the larger the heap is. To take the JVM out
+ * of the spawn path entirely, run the commands as {@link ShellExecutable}s,
+ * whose children are started by the long running shells of a
+ * {@link ShellSessionPool}.
+ *
+ * <code>
+ * LaunchMechanism.POSIX_SPAWN.select();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public enum LaunchMechanism {
+
+    /**
+     * Spawns children through posix_spawn and the jspawnhelper, the default
+     * on macOS and, since JDK 12, on Linux.
+     */
+    POSIX_SPAWN,
+
+    /**
+     * Spawns children through vfork, only available on Linux and the
+     * default there before JDK 12.
+     */
+    VFORK,
+
+    /**
+     * Spawns children through fork, which copies the page tables of the JVM.
+     */
+    FORK;
+
+    /**
+     * Name of the system property read by the JDK.
+     */
+    static final String PROPERTY = "jdk.lang.Process.launchMechanism";
+
+    /**
+     * Returns the mechanism the JDK uses or will use, or <b>null</b> on
+     * platforms without a choice, like Windows.
+     *
+     * @return LaunchMechanism
+     */
+    public static LaunchMechanism getCurrent() {
+        if (!isPosix()) {
+            return null;
+        }
+        String value = System.getProperty(PROPERTY);
+        if (value == null) {
+            return getDefault();
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns <b>true</b> when this mechanism is available on the current
+     * platform.
+     *
+     * @return boolean
+     */
+    public boolean isSupported() {
+        if (!isPosix()) {
+            return false;
+        }
+        return this != VFORK || isLinux();
+    }
+
+    /**
+     * Selects this mechanism for all processes started by this JVM.
+     *
+     * @throws ValidationException When this mechanism is not available on
+     *         the current platform.
+     * @throws IllegalStateException When a process was already started with
+     *         a different mechanism.
+     */
+    public void select() {
+        if (!this.isSupported()) {
+            throw new ValidationException(
+                "The launch mechanism " + this + " is not supported on "
+                + System.getProperty("os.name") + "."
+            );
+        }
+        synchronized (ProcessLauncher.LOCK) {
+            if (getCurrent() == this) {
+                return;
+            }
+            if (ProcessLauncher.hasStarted()) {
+                throw new IllegalStateException(
+                    "The launch mechanism cannot be changed after the first "
+                    + "process was started."
+                );
+            }
+            System.setProperty(PROPERTY, this.name());
+        }
+    }
+
+    /**
+     * Returns the mechanism the JDK uses when the property is not set, which
+     * is {@link #VFORK} on Linux before JDK 12 and {@link #POSIX_SPAWN}
+     * everywhere else.
+     *
+     * @return LaunchMechanism
+     */
+    static LaunchMechanism getDefault() {
+        if (Runtime.version().feature() < 12 && isLinux()) {
+            return VFORK;
+        }
+        return POSIX_SPAWN;
+    }
+
+    /**
+     * Returns <b>true</b> when the current platform lets the JDK choose a
+     * launch mechanism.
+     *
+     * @return boolean
+     */
+    private static boolean isPosix() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        return !os.startsWith("windows");
+    }
+
+    /**
+     * Returns <b>true</b> when the current platform is Linux.
+     *
+     * @return boolean
+     */
+    private static boolean isLinux() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        return os.startsWith("linux");
+    }
+}
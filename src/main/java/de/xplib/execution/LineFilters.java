@@ -0,0 +1,236 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.nio.charset.Charset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Factory for common {@link LineFilter} implementations.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class LineFilters {
+
+    /**
+     * Filter that accepts every line.
+     */
+    private static final LineFilter ALL = new LineFilter() {
+        @Override
+        public boolean accept(byte[] line, int offset, int length) {
+            return true;
+        }
+    };
+
+    /**
+     * Empty ctor, this is just a utility class with static methods.
+     */
+    private LineFilters() {
+
+    }
+
+    /**
+     * Returns a filter that accepts every line.
+     *
+     * @return LineFilter
+     */
+    public static LineFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Returns a filter that accepts all lines that start with the given
+     * prefix, encoded with the given charset. The prefix is compared byte by
+     * byte, no line will be decoded.
+     *
+     * @param prefix The expected line prefix.
+     * @param charset The charset used by the command line tool.
+     *
+     * @return LineFilter
+     */
+    public static LineFilter prefix(String prefix, Charset charset) {
+        final byte[] expected = prefix.getBytes(charset);
+        return new LineFilter() {
+            @Override
+            public boolean accept(byte[] line, int offset, int length) {
+                if (length < expected.length) {
+                    return false;
+                }
+                for (int i = 0; i < expected.length; ++i) {
+                    if (line[offset + i] != expected[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a filter that accepts all lines that contain a match of the
+     * given pattern. The pattern is matched against a view of the raw bytes
+     * where every byte is one character, without decoding the line. This is
+     * exact for ASCII patterns and ASCII compatible charsets like UTF-8.
+     *
+     * The returned filter is stateful and must only be used by one sink.
+     *
+     * @param pattern The pattern to find in a line.
+     *
+     * @return LineFilter
+     */
+    public static LineFilter regex(Pattern pattern) {
+        final ByteCharSequence sequence = new ByteCharSequence();
+        final Matcher matcher = pattern.matcher(sequence);
+        return new LineFilter() {
+            @Override
+            public boolean accept(byte[] line, int offset, int length) {
+                sequence.wrap(line, offset, length);
+                return matcher.reset(sequence).find();
+            }
+        };
+    }
+
+    /**
+     * Returns a filter that rejects all lines accepted by the given filter.
+     *
+     * @param filter The negated filter.
+     *
+     * @return LineFilter
+     */
+    public static LineFilter not(final LineFilter filter) {
+        return new LineFilter() {
+            @Override
+            public boolean accept(byte[] line, int offset, int length) {
+                return !filter.accept(line, offset, length);
+            }
+        };
+    }
+
+    /**
+     * Reusable character view of a byte range, one character per byte.
+     */
+    private static final class ByteCharSequence implements CharSequence {
+
+        /**
+         * The viewed bytes.
+         */
+        private byte[] bytes = new byte[0];
+
+        /**
+         * Offset of the first viewed byte.
+         */
+        private int offset = 0;
+
+        /**
+         * Number of viewed bytes.
+         */
+        private int length = 0;
+
+        /**
+         * Points this view at the given byte range.
+         *
+         * @param bytes The viewed bytes.
+         * @param offset Offset of the first viewed byte.
+         * @param length Number of viewed bytes.
+         */
+        void wrap(byte[] bytes, int offset, int length) {
+            this.bytes  = bytes;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Returns the number of viewed bytes.
+         *
+         * @return int
+         */
+        @Override
+        public int length() {
+            return this.length;
+        }
+
+        /**
+         * Returns the byte at the given index as character.
+         *
+         * @param index Index of the byte.
+         *
+         * @return char
+         */
+        @Override
+        public char charAt(int index) {
+            return (char) (this.bytes[this.offset + index] & 0xff);
+        }
+
+        /**
+         * Returns a detached copy of the given range.
+         *
+         * @param start Start index, inclusive.
+         * @param end End index, exclusive.
+         *
+         * @return CharSequence
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return this.toString().substring(start, end);
+        }
+
+        /**
+         * Returns the viewed bytes as string.
+         *
+         * @return String
+         */
+        @Override
+        public String toString() {
+            char[] chars = new char[this.length];
+            for (int i = 0; i < this.length; ++i) {
+                chars[i] = this.charAt(i);
+            }
+            return new String(chars);
+        }
+    }
+}
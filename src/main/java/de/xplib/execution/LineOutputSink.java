@@ -0,0 +1,244 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Output sink that splits the output of a command line tool into lines.
+ *
+ * Lines are assembled in a reused byte buffer and passed through an optional
+ * {@link LineFilter} first. Only accepted lines are decoded into strings and
+ * passed to the line handler, so output of any size is processed in constant
+ * memory. Lines longer than the maximum line length are truncated.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class LineOutputSink implements OutputSink {
+
+    /**
+     * Default maximum length of a single line in bytes.
+     */
+    public static final int DEFAULT_MAX_LINE_LENGTH = 1024 * 1024;
+
+    /**
+     * Receives the accepted lines or <b>null</b> for subclasses that override
+     * {@link #onLine(String)}.
+     */
+    private final LineHandler handler;
+
+    /**
+     * Decides which lines will be decoded.
+     */
+    private final LineFilter filter;
+
+    /**
+     * The charset used by the command line tool.
+     */
+    private final Charset charset;
+
+    /**
+     * Maximum length of a single line in bytes.
+     */
+    private final int maxLineLength;
+
+    /**
+     * Bytes of the current, incomplete line.
+     */
+    private byte[] line = new byte[256];
+
+    /**
+     * Number of buffered bytes of the current line.
+     */
+    private int length = 0;
+
+    /**
+     * Constructs a new sink that passes every line to the given handler.
+     *
+     * @param handler Receives the decoded lines.
+     */
+    public LineOutputSink(LineHandler handler) {
+        this(handler, LineFilters.all());
+    }
+
+    /**
+     * Constructs a new sink that passes every accepted line to the given
+     * handler.
+     *
+     * @param handler Receives the decoded lines.
+     * @param filter Decides which lines will be decoded.
+     */
+    public LineOutputSink(LineHandler handler, LineFilter filter) {
+        this(
+            handler,
+            filter,
+            Charset.defaultCharset(),
+            DEFAULT_MAX_LINE_LENGTH
+        );
+    }
+
+    /**
+     * Constructs a new line sink.
+     *
+     * @param handler Receives the decoded lines.
+     * @param filter Decides which lines will be decoded.
+     * @param charset The charset used by the command line tool.
+     * @param maxLineLength Maximum length of a single line in bytes.
+     */
+    public LineOutputSink(
+            LineHandler handler,
+            LineFilter filter,
+            Charset charset,
+            int maxLineLength
+    ) {
+        this.handler       = handler;
+        this.filter        = filter;
+        this.charset       = charset;
+        this.maxLineLength = Math.max(1, maxLineLength);
+    }
+
+    /**
+     * Splits the given bytes into lines.
+     *
+     * @param buffer The reused read buffer.
+     * @param offset Offset of the first valid byte in the buffer.
+     * @param length Number of valid bytes in the buffer.
+     *
+     * @throws IOException If the line handler fails.
+     */
+    @Override
+    public void write(byte[] buffer, int offset, int length)
+            throws IOException {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            if (buffer[i] != '\n') {
+                continue;
+            }
+            if (this.length == 0) {
+                this.emit(buffer, start, i - start);
+            } else {
+                this.append(buffer, start, i - start);
+                this.emit(this.line, 0, this.length);
+                this.length = 0;
+            }
+            start = i + 1;
+        }
+        this.append(buffer, start, end - start);
+    }
+
+    /**
+     * Emits the last line, when the output does not end with a line
+     * terminator.
+     *
+     * @throws IOException If the line handler fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.length > 0) {
+            this.emit(this.line, 0, this.length);
+            this.length = 0;
+        }
+    }
+
+    /**
+     * Handles a single accepted line. The default implementation passes the
+     * line to the configured handler.
+     *
+     * @param text The decoded line.
+     *
+     * @throws IOException If the line cannot be handled.
+     */
+    protected void onLine(String text) throws IOException {
+        this.handler.onLine(text);
+    }
+
+    /**
+     * Filters, decodes and handles a complete line.
+     *
+     * @param bytes Buffer that contains the line.
+     * @param offset Offset of the first line byte.
+     * @param length Number of line bytes, including a trailing carriage return.
+     *
+     * @throws IOException If the line handler fails.
+     */
+    private void emit(byte[] bytes, int offset, int length)
+            throws IOException {
+        if (length > 0 && bytes[offset + length - 1] == '\r') {
+            --length;
+        }
+        length = Math.min(length, this.maxLineLength);
+        if (this.filter.accept(bytes, offset, length)) {
+            this.onLine(new String(bytes, offset, length, this.charset));
+        }
+    }
+
+    /**
+     * Appends the given bytes to the current line, up to the maximum line
+     * length.
+     *
+     * @param bytes Buffer that contains the bytes.
+     * @param offset Offset of the first byte.
+     * @param length Number of bytes.
+     */
+    private void append(byte[] bytes, int offset, int length) {
+        length = Math.min(length, this.maxLineLength + 1 - this.length);
+        if (length <= 0) {
+            return;
+        }
+        if (this.length + length > this.line.length) {
+            this.line = Arrays.copyOf(
+                this.line,
+                Math.max(this.line.length << 1, this.length + length)
+            );
+        }
+        System.arraycopy(bytes, offset, this.line, this.length, length);
+        this.length += length;
+    }
+}
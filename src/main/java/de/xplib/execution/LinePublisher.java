@@ -0,0 +1,310 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.Flow;
+
+/**
+ * Line sink that publishes the output lines of a command line tool to a
+ * single {@link Flow.Subscriber} with demand based backpressure.
+ *
+ * Without outstanding demand the draining thread blocks, so that a slow
+ * subscriber eventually stalls the command line tool on a full pipe instead
+ * of buffering its output. For this reason the publisher should be drained
+ * by a {@link ThreadPoolOutputPumper} and must be subscribed before the
+ * executable runs. A cancelled subscription drops all remaining lines.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class LinePublisher extends LineOutputSink
+        implements Flow.Publisher<String> {
+
+    /**
+     * The only subscriber or <b>null</b>.
+     */
+    private Flow.Subscriber<? super String> subscriber = null;
+
+    /**
+     * Number of lines requested by the subscriber.
+     */
+    private long demand = 0;
+
+    /**
+     * Was the subscription cancelled?
+     */
+    private boolean cancelled = false;
+
+    /**
+     * Has the subscriber received its subscription?
+     */
+    private boolean subscribed = false;
+
+    /**
+     * Has the output ended, even when nobody has subscribed yet?
+     */
+    private boolean ended = false;
+
+    /**
+     * The failure that ended the output or <b>null</b>.
+     */
+    private IOException failure = null;
+
+    /**
+     * Was the terminal signal delivered to the subscriber?
+     */
+    private boolean terminated = false;
+
+    /**
+     * Constructs a new publisher for all lines.
+     */
+    public LinePublisher() {
+        this(LineFilters.all());
+    }
+
+    /**
+     * Constructs a new publisher for all lines accepted by the given filter.
+     *
+     * @param filter Decides which lines will be decoded.
+     */
+    public LinePublisher(LineFilter filter) {
+        this(filter, Charset.defaultCharset(), DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * Constructs a new line publisher.
+     *
+     * @param filter Decides which lines will be decoded.
+     * @param charset The charset used by the command line tool.
+     * @param maxLineLength Maximum length of a single line in bytes.
+     */
+    public LinePublisher(
+            LineFilter filter,
+            Charset charset,
+            int maxLineLength
+    ) {
+        super(null, filter, charset, maxLineLength);
+    }
+
+    /**
+     * Subscribes the given subscriber. Only one subscriber is supported.
+     *
+     * @param subscriber The line subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        synchronized (this) {
+            if (this.subscriber != null) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+
+                    }
+
+                    @Override
+                    public void cancel() {
+
+                    }
+                });
+                subscriber.onError(
+                    new IllegalStateException("Already subscribed.")
+                );
+                return;
+            }
+            this.subscriber = subscriber;
+        }
+        subscriber.onSubscribe(new Subscription());
+        synchronized (this) {
+            this.subscribed = true;
+            this.notifyAll();
+        }
+        this.terminate();
+    }
+
+    /**
+     * Emits the last line and completes the subscriber. When nobody has
+     * subscribed yet, a later subscriber will be completed immediately.
+     *
+     * @throws IOException If the last line cannot be emitted.
+     */
+    @Override
+    public void close() throws IOException {
+        super.close();
+        this.end(null);
+    }
+
+    /**
+     * Signals the given failure to the subscriber, without emitting an
+     * incomplete last line.
+     *
+     * @param cause The failure that aborted the transfer.
+     */
+    @Override
+    public void abort(IOException cause) {
+        this.end(cause);
+    }
+
+    /**
+     * Remembers the end of the output and signals it, when possible.
+     *
+     * @param cause The failure that ended the output or <b>null</b>.
+     */
+    private void end(IOException cause) {
+        synchronized (this) {
+            this.ended   = true;
+            this.failure = cause;
+        }
+        this.terminate();
+    }
+
+    /**
+     * Delivers the terminal signal once the output has ended and a
+     * subscriber exists.
+     */
+    private void terminate() {
+        Flow.Subscriber<? super String> target;
+        IOException cause;
+        synchronized (this) {
+            if (!this.ended
+                    || this.terminated
+                    || this.cancelled
+                    || !this.subscribed) {
+                return;
+            }
+            this.terminated = true;
+            target = this.subscriber;
+            cause  = this.failure;
+        }
+        if (cause == null) {
+            target.onComplete();
+        } else {
+            target.onError(cause);
+        }
+    }
+
+    /**
+     * Blocks until the subscriber has requested another line and emits it.
+     * No line is emitted before <b>onSubscribe()</b> has returned, even when
+     * the subscriber requests lines from within that method.
+     *
+     * @param text The decoded line.
+     *
+     * @throws IOException If the draining thread was interrupted.
+     */
+    @Override
+    protected void onLine(String text) throws IOException {
+        Flow.Subscriber<? super String> target;
+        synchronized (this) {
+            try {
+                while (!this.cancelled
+                        && (!this.subscribed || this.demand == 0)) {
+                    this.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (this.cancelled) {
+                return;
+            }
+            --this.demand;
+            target = this.subscriber;
+        }
+        target.onNext(text);
+    }
+
+    /**
+     * Subscription handed out to the subscriber.
+     */
+    private final class Subscription implements Flow.Subscription {
+
+        /**
+         * Adds the given number of lines to the outstanding demand, or fails
+         * the subscription for a non-positive number.
+         *
+         * @param n Number of additional lines.
+         */
+        @Override
+        public void request(long n) {
+            Flow.Subscriber<? super String> target;
+            synchronized (LinePublisher.this) {
+                if (n > 0) {
+                    LinePublisher.this.demand += n;
+                    if (LinePublisher.this.demand < 0) {
+                        LinePublisher.this.demand = Long.MAX_VALUE;
+                    }
+                    LinePublisher.this.notifyAll();
+                    return;
+                }
+                if (LinePublisher.this.terminated
+                        || LinePublisher.this.cancelled) {
+                    return;
+                }
+                LinePublisher.this.terminated = true;
+                LinePublisher.this.cancelled  = true;
+                LinePublisher.this.notifyAll();
+                target = LinePublisher.this.subscriber;
+            }
+            // Reactive Streams rule 3.9
+            target.onError(new IllegalArgumentException(
+                "Requested a non-positive number of lines: " + n
+            ));
+        }
+
+        /**
+         * Cancels the subscription and drops all remaining lines.
+         */
+        @Override
+        public void cancel() {
+            synchronized (LinePublisher.this) {
+                LinePublisher.this.cancelled = true;
+                LinePublisher.this.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Output sink implementation that captures all received bytes in memory.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class MemoryOutputSink implements OutputSink {
+
+    /**
+     * Default initial capacity of the capture buffer.
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The captured bytes.
+     */
+    private byte[] bytes;
+
+    /**
+     * Number of valid bytes in the capture buffer.
+     */
+    private int size = 0;
+
+    /**
+     * Constructs a new memory sink with a default initial capacity.
+     */
+    public MemoryOutputSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new memory sink with the given initial capacity.
+     *
+     * @param capacity Initial size of the capture buffer.
+     */
+    public MemoryOutputSink(int capacity) {
+        this.bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Appends the given bytes to the capture buffer.
+     *
+     * @param buffer The reused read buffer.
+     * @param offset Offset of the first valid byte in the buffer.
+     * @param length Number of valid bytes in the buffer.
+     */
+    @Override
+    public synchronized void write(byte[] buffer, int offset, int length) {
+        if (this.size + length > this.bytes.length) {
+            int capacity = Math.max(this.bytes.length << 1, this.size + length);
+            this.bytes = Arrays.copyOf(this.bytes, capacity);
+        }
+        System.arraycopy(buffer, offset, this.bytes, this.size, length);
+        this.size += length;
+    }
+
+    /**
+     * Nothing to do here, the captured bytes stay available.
+     */
+    @Override
+    public void close() {
+
+    }
+
+    /**
+     * Returns the number of captured bytes.
+     *
+     * @return int
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns a copy of all captured bytes.
+     *
+     * @return byte[]
+     */
+    public synchronized byte[] getBytes() {
+        return Arrays.copyOf(this.bytes, this.size);
+    }
+
+    /**
+     * Returns at most the last <b>maxBytes</b> captured bytes.
+     *
+     * @param maxBytes Maximum number of returned bytes.
+     *
+     * @return byte[]
+     */
+    @Override
+    public synchronized byte[] getTail(int maxBytes) {
+        int length = Math.min(this.size, Math.max(maxBytes, 0));
+        return Arrays.copyOfRange(this.bytes, this.size - length, this.size);
+    }
+
+    /**
+     * Returns the captured bytes decoded with the platform's default charset.
+     *
+     * @return String
+     */
+    public String getText() {
+        return this.getText(Charset.defaultCharset());
+    }
+
+    /**
+     * Returns the captured bytes decoded with the given charset.
+     *
+     * @param charset The charset used by the command line tool.
+     *
+     * @return String
+     */
+    public synchronized String getText(Charset charset) {
+        return new String(this.bytes, 0, this.size, charset);
+    }
+
+    /**
+     * Drops all captured bytes, so that this sink can be reused.
+     */
+    public synchronized void reset() {
+        this.size = 0;
+    }
+}
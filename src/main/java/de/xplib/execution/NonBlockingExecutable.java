@@ -50,12 +50,16 @@ import java.util.List;
  * This class is a decorator for executables that runs an executable into a
  * separate thread, so that the execution will not block the application.
  *
+ * @deprecated Starts a new thread per execution and loses all failures, use
+ *             {@link AsyncExecutable} instead.
+ *
  * @author    Manuel Pichler <mapi@phpmd.org>
  * @copyright 2010 Manuel Pichler. All rights reserved.
  * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
  * @version   SVN: $Id$
  * @link      http://phpmd.org
  */
+@Deprecated
 public class NonBlockingExecutable extends Thread implements Executable {
 
     /**
@@ -89,6 +93,31 @@ public class NonBlockingExecutable extends Thread implements Executable {
         return this.executable.getValidExitCodes();
     }
 
+    /**
+     * Returns the matcher that classifies the exit codes of the wrapped cli
+     * script.
+     *
+     * @return The exit code matcher.
+     */
+    @Override
+    public ExitCodeMatcher getExitCodeMatcher() {
+        return this.executable.getExitCodeMatcher();
+    }
+
+    /**
+     * Replaces the valid exit codes of the wrapped cli script with the given
+     * matcher.
+     *
+     * @param matcher The exit code matcher.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setExitCodeMatcher(ExitCodeMatcher matcher) {
+        this.executable.setExitCodeMatcher(matcher);
+        return this;
+    }
+
     /**
      * Returns a list with Strings representing the final command line string.
      *
@@ -139,6 +168,73 @@ public class NonBlockingExecutable extends Thread implements Executable {
         return this;
     }
 
+    /**
+     * Sets the data the cli tool reads from STDIN.
+     *
+     * @param source The STDIN data.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStdin(InputSource source) {
+        this.executable.setStdin(source);
+        return this;
+    }
+
+    /**
+     * Sets the sink that receives everything the cli tool writes to STDOUT.
+     *
+     * @param sink The consumer for STDOUT.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStdout(OutputSink sink) {
+        this.executable.setStdout(sink);
+        return this;
+    }
+
+    /**
+     * Sets the sink that receives everything the cli tool writes to STDERR.
+     *
+     * @param sink The consumer for STDERR.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStderr(OutputSink sink) {
+        this.executable.setStderr(sink);
+        return this;
+    }
+
+    /**
+     * Lets the operating system write STDOUT directly to the given
+     * destination, without passing it through the virtual machine.
+     *
+     * @param redirect The STDOUT destination.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStdoutRedirect(ProcessBuilder.Redirect redirect) {
+        this.executable.setStdoutRedirect(redirect);
+        return this;
+    }
+
+    /**
+     * Lets the operating system write STDERR directly to the given
+     * destination, without passing it through the virtual machine.
+     *
+     * @param redirect The STDERR destination.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStderrRedirect(ProcessBuilder.Redirect redirect) {
+        this.executable.setStderrRedirect(redirect);
+        return this;
+    }
+
     /**
      * Starts the execution of the underlying command line tool.
      *
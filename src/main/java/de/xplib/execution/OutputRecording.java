@@ -0,0 +1,200 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+/**
+ * Captures the output of a single execution in addition to the configured
+ * sinks, so that the execution can be replayed later.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class OutputRecording {
+
+    /**
+     * Maximum number of captured bytes per stream.
+     */
+    private final int limit;
+
+    /**
+     * The configured STDOUT sink, once wrapped.
+     */
+    private OutputSink stdoutSink = null;
+
+    /**
+     * The configured STDERR sink, once wrapped.
+     */
+    private OutputSink stderrSink = null;
+
+    /**
+     * Capture of STDOUT, once wrapped.
+     */
+    private Capture stdout = null;
+
+    /**
+     * Capture of STDERR, once wrapped.
+     */
+    private Capture stderr = null;
+
+    /**
+     * Constructs a new recording.
+     *
+     * @param limit Maximum number of captured bytes per stream.
+     */
+    OutputRecording(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Returns a sink that forwards STDOUT to the given sink and captures it.
+     *
+     * @param sink The configured STDOUT sink.
+     *
+     * @return OutputSink
+     */
+    OutputSink captureStdout(OutputSink sink) {
+        this.stdoutSink = sink;
+        this.stdout     = new Capture(this.limit);
+        return new TeeOutputSink(sink, this.stdout);
+    }
+
+    /**
+     * Returns a sink that forwards STDERR to the given sink and captures it.
+     *
+     * @param sink The configured STDERR sink.
+     *
+     * @return OutputSink
+     */
+    OutputSink captureStderr(OutputSink sink) {
+        this.stderrSink = sink;
+        this.stderr     = new Capture(this.limit);
+        return new TeeOutputSink(sink, this.stderr);
+    }
+
+    /**
+     * Returns the recorded result, or <b>null</b> when the execution timed
+     * out or its output exceeded the limit.
+     *
+     * @param result The result of the recorded execution.
+     *
+     * @return RecordedResult
+     */
+    RecordedResult toRecordedResult(ExecutionResult result) {
+        if (this.stdout == null
+                || this.stderr == null
+                || this.stdout.overflow
+                || this.stderr.overflow
+                || result.isTimedOut()) {
+            return null;
+        }
+        return new RecordedResult(
+            result.getExitCode(),
+            this.stdout.getBytes(),
+            this.stderr.getBytes()
+        );
+    }
+
+    /**
+     * Returns the given result with the configured sinks in place of the
+     * capturing sinks.
+     *
+     * @param result The result of the recorded execution.
+     *
+     * @return ExecutionResult
+     */
+    ExecutionResult restore(ExecutionResult result) {
+        if (this.stdout == null || this.stderr == null) {
+            return result;
+        }
+        return result.withOutput(this.stdoutSink, this.stderrSink);
+    }
+
+    /**
+     * Bounded in-memory capture that gives up when the output exceeds the
+     * limit.
+     */
+    private static final class Capture extends MemoryOutputSink {
+
+        /**
+         * Maximum number of captured bytes.
+         */
+        private final int limit;
+
+        /**
+         * Was the limit exceeded?
+         */
+        private volatile boolean overflow = false;
+
+        /**
+         * Constructs a new capture.
+         *
+         * @param limit Maximum number of captured bytes.
+         */
+        Capture(int limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * Captures the given bytes until the limit is exceeded.
+         *
+         * @param buffer The reused read buffer.
+         * @param offset Offset of the first valid byte in the buffer.
+         * @param length Number of valid bytes in the buffer.
+         */
+        @Override
+        public synchronized void write(byte[] buffer, int offset, int length) {
+            if (this.overflow) {
+                return;
+            }
+            if (this.size() + length > this.limit) {
+                this.overflow = true;
+                this.reset();
+                return;
+            }
+            super.write(buffer, offset, length);
+        }
+    }
+}
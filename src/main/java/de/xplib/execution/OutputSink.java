@@ -0,0 +1,129 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+
+/**
+ * Base interface for a consumer of the output written by a command line tool.
+ *
+ * An output sink receives the raw bytes of STDOUT or STDERR while the
+ * underlying process is still running. Implementations must not keep a
+ * reference to the passed buffer, because it will be reused for the next read.
+ * Implement this interface directly when the output should be handled by a
+ * custom callback.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public interface OutputSink {
+
+    /**
+     * Consumes <b>length</b> bytes of the given buffer, starting at
+     * <b>offset</b>.
+     *
+     * @param buffer The reused read buffer.
+     * @param offset Offset of the first valid byte in the buffer.
+     * @param length Number of valid bytes in the buffer.
+     *
+     * @throws IOException If the sink cannot consume the given bytes.
+     */
+    void write(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Will be called when the command line tool has closed its output stream.
+     *
+     * @throws IOException If the sink cannot be closed.
+     */
+    void close() throws IOException;
+
+    /**
+     * Will be called instead of {@link #close()} when the output could not be
+     * transferred completely. The default implementation closes the sink.
+     *
+     * @param cause The failure that aborted the transfer.
+     *
+     * @throws IOException If the sink cannot be closed.
+     */
+    default void abort(IOException cause) throws IOException {
+        this.close();
+    }
+
+    /**
+     * Returns at most the last <b>maxBytes</b> bytes retained by this sink,
+     * for example to build an error message. The default implementation
+     * retains nothing and returns an empty array.
+     *
+     * @param maxBytes Maximum number of returned bytes.
+     *
+     * @return byte[]
+     */
+    default byte[] getTail(int maxBytes) {
+        return new byte[0];
+    }
+
+    /**
+     * Returns the sink that captures the output of the next execution. The
+     * default implementation returns this sink, so that repeated executions
+     * write into the same sink. Sinks that own per-run resources, like a
+     * temporary file, return a new empty sink.
+     *
+     * @return OutputSink
+     */
+    default OutputSink forExecution() {
+        return this;
+    }
+
+    /**
+     * Releases the resources held for a finished execution. This method is
+     * called when the {@link ExecutionResult} that references this sink is
+     * closed, the default implementation does nothing.
+     *
+     * @throws IOException If a resource cannot be released.
+     */
+    default void release() throws IOException {
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached index of the executables found in the directories of one PATH value.
+ *
+ * Every directory is listed once and the listing is used for all lookups.
+ * Lookups, including misses, are cached by local name. The modification time
+ * of all directories will be checked again when the recheck interval has
+ * elapsed, and changed directories are listed again.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class PathIndex {
+
+    /**
+     * Cache marker for a local name that was not found.
+     */
+    private static final String MISSING = "";
+
+    /**
+     * Are file names case insensitive on this platform?
+     */
+    private static final boolean CASE_INSENSITIVE = File.separatorChar == '\\';
+
+    /**
+     * The indexed PATH value.
+     */
+    private final String path;
+
+    /**
+     * Candidate file extensions, tested in this order.
+     */
+    private final String[] extensions;
+
+    /**
+     * The indexed directories, in PATH order.
+     */
+    private final Directory[] directories;
+
+    /**
+     * Resolved absolute file names, or {@link #MISSING}, by local name.
+     */
+    private final ConcurrentHashMap<String, String> resolved =
+            new ConcurrentHashMap<String, String>();
+
+    /**
+     * Minimum interval between two directory modification checks.
+     */
+    private final long recheckNanos;
+
+    /**
+     * Nano time of the last directory modification check.
+     */
+    private volatile long checkedNanos;
+
+    /**
+     * Constructs a new index for the given PATH value.
+     *
+     * @param path The PATH value.
+     * @param extensions Candidate file extensions, tested in this order.
+     * @param recheckNanos Minimum interval between two directory checks.
+     */
+    PathIndex(String path, String[] extensions, long recheckNanos) {
+        this.path         = path;
+        this.extensions   = extensions;
+        this.recheckNanos = recheckNanos;
+
+        String[] names = path.trim().isEmpty()
+                ? new String[0] : path.split(File.pathSeparator);
+
+        this.directories = new Directory[names.length];
+        for (int i = 0; i < names.length; ++i) {
+            this.directories[i] = new Directory(new File(names[i]));
+        }
+        this.checkedNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the indexed PATH value.
+     *
+     * @return String
+     */
+    String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Returns the absolute file name of the first executable with the given
+     * local name, or <b>null</b> when no such executable exists.
+     *
+     * @param localName Local script file name without a file type extension.
+     *
+     * @return String
+     */
+    String resolve(String localName) {
+        this.recheck();
+
+        String fileName = this.resolved.get(localName);
+        if (fileName == null) {
+            fileName = this.scan(localName);
+            this.resolved.put(localName, fileName);
+        }
+        return MISSING.equals(fileName) ? null : fileName;
+    }
+
+    /**
+     * Checks all directories for modifications when the recheck interval has
+     * elapsed, and drops all cached lookups when a directory has changed.
+     */
+    private void recheck() {
+        long now = System.nanoTime();
+        if (now - this.checkedNanos < this.recheckNanos) {
+            return;
+        }
+        synchronized (this) {
+            if (now - this.checkedNanos < this.recheckNanos) {
+                return;
+            }
+            boolean changed = false;
+            for (Directory directory : this.directories) {
+                changed = directory.refresh() || changed;
+            }
+            if (changed) {
+                this.resolved.clear();
+            }
+            this.checkedNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Searches all directories in PATH order for the given local name.
+     *
+     * @param localName Local script file name without a file type extension.
+     *
+     * @return String
+     */
+    private String scan(String localName) {
+        for (Directory directory : this.directories) {
+            for (String extension : this.extensions) {
+                String fileName = directory.find(localName + extension);
+                if (fileName != null) {
+                    return fileName;
+                }
+            }
+            String fileName = directory.find(localName);
+            if (fileName != null) {
+                return fileName;
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Normalizes the given file name for lookups in a directory listing.
+     *
+     * @param name A local file name.
+     *
+     * @return String
+     */
+    private static String normalize(String name) {
+        if (CASE_INSENSITIVE) {
+            return name.toLowerCase(Locale.ROOT);
+        }
+        return name;
+    }
+
+    /**
+     * A single indexed PATH directory.
+     */
+    private static final class Directory {
+
+        /**
+         * The directory.
+         */
+        private final File file;
+
+        /**
+         * Modification time at the last listing.
+         */
+        private volatile long modified;
+
+        /**
+         * Normalized names of all directory entries, or <b>null</b> when the
+         * directory cannot be listed and must be probed per file.
+         */
+        private volatile Set<String> names;
+
+        /**
+         * Constructs and lists the given directory.
+         *
+         * @param file The directory.
+         */
+        Directory(File file) {
+            this.file = file;
+            this.list();
+        }
+
+        /**
+         * Lists the directory again when its modification time has changed.
+         *
+         * @return <b>true</b> when the directory has changed.
+         */
+        boolean refresh() {
+            if (this.file.lastModified() == this.modified) {
+                return false;
+            }
+            this.list();
+            return true;
+        }
+
+        /**
+         * Returns the absolute name of the given file in this directory, or
+         * <b>null</b> when no such file exists.
+         *
+         * @param name A local file name.
+         *
+         * @return String
+         */
+        String find(String name) {
+            Set<String> listing = this.names;
+            if (listing != null && !listing.contains(normalize(name))) {
+                return null;
+            }
+
+            File candidate = new File(this.file, name);
+            if (listing == null && !candidate.exists()) {
+                return null;
+            }
+            if (!ExecutableUtil.isExecutable(candidate)) {
+                return null;
+            }
+            return candidate.getAbsolutePath();
+        }
+
+        /**
+         * Reads the directory listing and its modification time.
+         */
+        private void list() {
+            this.modified = this.file.lastModified();
+
+            String[] entries = this.file.list();
+            if (entries == null) {
+                if (this.file.exists()) {
+                    this.names = null;
+                } else {
+                    this.names = Collections.<String>emptySet();
+                }
+                return;
+            }
+
+            Set<String> listing = new HashSet<String>(entries.length * 2);
+            for (String entry : entries) {
+                listing.add(normalize(entry));
+            }
+            this.names = listing;
+        }
+    }
+}
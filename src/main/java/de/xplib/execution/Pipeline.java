@@ -0,0 +1,313 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Chain of executables where STDOUT of each stage is connected to STDIN of
+ * the next stage. The stages are connected by operating system pipes, so
+ * that intermediate output never passes through the virtual machine. STDERR
+ * of every stage and STDOUT of the last stage are handled by the configured
+ * sinks and redirects of the single executables. Only the first stage may
+ * have a STDIN source, the pipeline fails with a {@link ValidationException}
+ * when a later stage has one.
+ *
+ * <code>
+ * AbstractExecutable grep = new DefaultExecutable("/bin/grep");
+ * grep.addArgument("error").addArgument("app.log").addRegularExitCode(0);
+ *
+ * MemoryOutputSink count = new MemoryOutputSink();
+ * AbstractExecutable wc = new DefaultExecutable("/usr/bin/wc");
+ * wc.addArgument("-l").addRegularExitCode(0);
+ * wc.setStdout(count);
+ *
+ * Pipeline.of(grep, wc).exec();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class Pipeline {
+
+    /**
+     * The pipeline stages in execution order.
+     */
+    private final List<AbstractExecutable> stages;
+
+    /**
+     * Constructs a new pipeline for the given stages.
+     *
+     * @param stages The pipeline stages in execution order.
+     */
+    private Pipeline(List<AbstractExecutable> stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * Creates a pipeline for the given stages.
+     *
+     * @param stages The pipeline stages in execution order.
+     *
+     * @return Pipeline
+     * @throws ValidationException When no stage was given.
+     */
+    public static Pipeline of(AbstractExecutable... stages) {
+        if (stages.length == 0) {
+            throw new ValidationException(
+                "A pipeline needs at least one stage."
+            );
+        }
+        return new Pipeline(
+            Collections.unmodifiableList(
+                new ArrayList<AbstractExecutable>(Arrays.asList(stages))
+            )
+        );
+    }
+
+    /**
+     * Returns the pipeline stages in execution order.
+     *
+     * @return List<AbstractExecutable>
+     */
+    public List<AbstractExecutable> getStages() {
+        return this.stages;
+    }
+
+    /**
+     * Executes all stages and waits until the last of them has terminated.
+     * When one or more stages fail, the exception of the first failing stage
+     * is thrown after all stages have completed.
+     *
+     * @throws ExecutionException When one of the stages fails.
+     */
+    public void exec() throws ExecutionException {
+        try {
+            List<Execution> executions = this.start();
+
+            List<ExecutionResult> results = new ArrayList<ExecutionResult>();
+            ExecutionException failure = null;
+            for (Execution execution : executions) {
+                int code = execution.getProcess().waitFor();
+                try {
+                    results.add(execution.await(code));
+                } catch (IOException ex) {
+                    if (failure == null) {
+                        failure = new ExecutionException(ex);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            this.complete(results);
+        } catch (IOException ex) {
+            throw new Error(ex);
+        } catch (InterruptedException ex) {
+            throw new Error(ex);
+        }
+    }
+
+    /**
+     * Starts all stages in the common fork join pool.
+     *
+     * @return A future for the results of all stages.
+     * @see #execAsync(Executor)
+     */
+    public CompletableFuture<List<ExecutionResult>> execAsync() {
+        return this.execAsync(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Starts all stages through the given executor and returns immediately.
+     * The returned future completes with the results of all stages in
+     * execution order, or exceptionally with the exception of the first
+     * failing stage.
+     *
+     * @param executor The executor used to launch the processes.
+     *
+     * @return A future for the results of all stages.
+     */
+    public CompletableFuture<List<ExecutionResult>> execAsync(
+            Executor executor
+    ) {
+        return CompletableFuture
+            .supplyAsync(this::launch, executor)
+            .thenCompose(Pipeline::completion)
+            .thenApply(this::complete);
+    }
+
+    /**
+     * Returns the results of the last completed execution of all stages, or
+     * <b>null</b> when the pipeline has not completed yet.
+     *
+     * @return List<ExecutionResult>
+     */
+    public List<ExecutionResult> getResults() {
+        List<ExecutionResult> results = new ArrayList<ExecutionResult>();
+        for (AbstractExecutable stage : this.stages) {
+            if (stage.getResult() == null) {
+                return null;
+            }
+            results.add(stage.getResult());
+        }
+        return results;
+    }
+
+    /**
+     * Starts all stages and wraps checked exceptions in an
+     * {@link ExecutionException}.
+     *
+     * @return The running executions in stage order.
+     * @throws ExecutionException When the pipeline cannot be started.
+     */
+    private List<Execution> launch() throws ExecutionException {
+        try {
+            return this.start();
+        } catch (IOException ex) {
+            throw new ExecutionException(ex);
+        }
+    }
+
+    /**
+     * Validates and starts all stages at once, connected by pipes.
+     *
+     * @return The running executions in stage order.
+     * @throws IOException If one of the processes cannot be started.
+     * @throws ValidationException When a stage after the first one has a
+     *         STDIN source.
+     */
+    private List<Execution> start() throws IOException {
+        List<ProcessBuilder> builders = new ArrayList<ProcessBuilder>();
+        for (int i = 0; i < this.stages.size(); ++i) {
+            AbstractExecutable stage = this.stages.get(i);
+            if (i > 0 && stage.hasStdin()) {
+                throw new ValidationException(
+                    "Only the first pipeline stage may have a STDIN source, "
+                    + "stage " + (i + 1) + " reads STDIN of its predecessor."
+                );
+            }
+            stage.validate();
+            builders.add(stage.newProcessBuilder());
+        }
+
+        long startNanos = System.nanoTime();
+        List<Process> processes = ProcessLauncher.startPipeline(builders);
+
+        List<Execution> executions = new ArrayList<Execution>();
+        for (int i = 0; i < processes.size(); ++i) {
+            executions.add(
+                this.stages.get(i).attach(
+                    builders.get(i).command(),
+                    processes.get(i),
+                    startNanos
+                )
+            );
+        }
+        return executions;
+    }
+
+    /**
+     * Returns a future that completes when all given executions are done.
+     *
+     * @param executions The running executions in stage order.
+     *
+     * @return A future for the results in stage order.
+     */
+    private static CompletableFuture<List<ExecutionResult>> completion(
+            List<Execution> executions
+    ) {
+        List<CompletableFuture<ExecutionResult>> futures =
+            new ArrayList<CompletableFuture<ExecutionResult>>();
+        for (Execution execution : executions) {
+            futures.add(execution.completion());
+        }
+        return CompletableFuture
+            .allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                List<ExecutionResult> results =
+                    new ArrayList<ExecutionResult>();
+                for (CompletableFuture<ExecutionResult> future : futures) {
+                    results.add(future.join());
+                }
+                return results;
+            });
+    }
+
+    /**
+     * Stores the results of all stages and throws the exception of the first
+     * failing stage.
+     *
+     * @param results The results in stage order.
+     *
+     * @return The given results.
+     * @throws ExecutionException When one of the stages failed.
+     */
+    private List<ExecutionResult> complete(List<ExecutionResult> results)
+            throws ExecutionException {
+        ExecutionException failure = null;
+        for (int i = 0; i < results.size(); ++i) {
+            try {
+                this.stages.get(i).complete(results.get(i));
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return Collections.unmodifiableList(results);
+    }
+}
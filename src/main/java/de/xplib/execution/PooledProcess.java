@@ -0,0 +1,100 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Base interface for a long-lived process that handles many requests of a
+ * {@link WorkerPool}, one at a time.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+interface PooledProcess {
+
+    /**
+     * Returns the number of requests handled by this process.
+     *
+     * @return int
+     */
+    int getRequestCount();
+
+    /**
+     * Returns <b>true</b> when this process can handle further requests.
+     *
+     * @return boolean
+     */
+    boolean isUsable();
+
+    /**
+     * Handles a single request and writes its output into the given sinks.
+     *
+     * @param arguments The request arguments.
+     * @param stdout The sink that receives the request STDOUT.
+     * @param stderr The sink that receives the request STDERR.
+     *
+     * @return The exit code of the request.
+     * @throws IOException If the process breaks the protocol or died.
+     */
+    int call(List<String> arguments, OutputSink stdout, OutputSink stderr)
+            throws IOException;
+
+    /**
+     * Terminates this process and kills it when it has not exited on its own
+     * after a short grace period. This method returns immediately, the kill
+     * is scheduled on the {@link TimerWheel}.
+     */
+    void destroy();
+
+    /**
+     * Kills this process immediately, for example when a request timed out.
+     * This method may be called from any thread, a pending {@link #call}
+     * fails with an {@link IOException} afterwards.
+     */
+    void kill();
+}
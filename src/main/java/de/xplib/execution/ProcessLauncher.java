@@ -0,0 +1,126 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Central place through which all native processes are started, so that
+ * the selected {@link LaunchMechanism} can be guarded.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class ProcessLauncher {
+
+    /**
+     * Lock shared with {@link LaunchMechanism#select()}, so that a mechanism
+     * is never selected while the first process is being started.
+     */
+    static final Object LOCK = new Object();
+
+    /**
+     * Was a process already started?
+     */
+    private static volatile boolean started = false;
+
+    /**
+     * Utility class.
+     */
+    private ProcessLauncher() {
+    }
+
+    /**
+     * Starts a process for the given builder.
+     *
+     * @param builder The configured process builder.
+     *
+     * @return Process
+     * @throws IOException If the process cannot be started.
+     */
+    static Process start(ProcessBuilder builder) throws IOException {
+        markStarted();
+        return builder.start();
+    }
+
+    /**
+     * Starts the processes for the given builders, connected by pipes.
+     *
+     * @param builders The configured process builders.
+     *
+     * @return List<Process>
+     * @throws IOException If one of the processes cannot be started.
+     */
+    static List<Process> startPipeline(List<ProcessBuilder> builders)
+            throws IOException {
+        markStarted();
+        return ProcessBuilder.startPipeline(builders);
+    }
+
+    /**
+     * Records that a process is about to be started, after which the launch
+     * mechanism can no longer be changed.
+     */
+    private static void markStarted() {
+        if (started) {
+            return;
+        }
+        synchronized (LOCK) {
+            started = true;
+        }
+    }
+
+    /**
+     * Returns <b>true</b> when a process was already started, which means
+     * that the JDK has already read the launch mechanism.
+     *
+     * @return boolean
+     */
+    static boolean hasStarted() {
+        return started;
+    }
+}
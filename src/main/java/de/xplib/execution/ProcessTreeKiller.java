@@ -0,0 +1,129 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Terminates a process and all of its descendants.
+ *
+ * All processes first receive a polite termination request, which is
+ * SIGTERM on Unix systems. Processes that are still alive after the grace
+ * period are killed forcibly.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class ProcessTreeKiller {
+
+    /**
+     * Empty ctor, this is just a utility class with static methods.
+     */
+    private ProcessTreeKiller() {
+
+    }
+
+    /**
+     * Terminates the given process and all of its descendants.
+     *
+     * @param process The root of the process tree.
+     * @param wheel The wheel used to schedule the forcible kill.
+     * @param graceNanos Time between termination request and forcible kill.
+     */
+    static void terminate(Process process, TimerWheel wheel, long graceNanos) {
+        final List<ProcessHandle> tree = collect(process.toHandle());
+        if (graceNanos <= 0) {
+            kill(tree);
+            return;
+        }
+
+        for (ProcessHandle handle : tree) {
+            handle.destroy();
+        }
+        wheel.schedule(
+            () -> kill(tree),
+            graceNanos,
+            TimeUnit.NANOSECONDS
+        );
+    }
+
+    /**
+     * Forcibly kills all given processes that are still alive, including
+     * descendants they have started in the meantime.
+     *
+     * @param tree The known processes of the tree.
+     */
+    private static void kill(List<ProcessHandle> tree) {
+        List<ProcessHandle> alive = new ArrayList<ProcessHandle>();
+        for (ProcessHandle handle : tree) {
+            if (handle.isAlive()) {
+                alive.addAll(collect(handle));
+            }
+        }
+        for (ProcessHandle handle : alive) {
+            handle.destroyForcibly();
+        }
+    }
+
+    /**
+     * Returns the given process and all of its descendants. The descendants
+     * must be collected before the root is terminated, because they are
+     * re-parented afterwards.
+     *
+     * @param root The root of the process tree.
+     *
+     * @return List<ProcessHandle>
+     */
+    private static List<ProcessHandle> collect(ProcessHandle root) {
+        List<ProcessHandle> tree = root.descendants()
+            .collect(Collectors.toCollection(ArrayList::new));
+        tree.add(root);
+        return tree;
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link ExecutionMetrics} in the Prometheus text exposition format.
+ *
+ * Latencies are exported as histograms in seconds with a fixed set of
+ * buckets, labeled by command.
+ *
+ * <code>
+ * Writer writer = new OutputStreamWriter(exchange.getResponseBody());
+ * ExecutionMetrics.getDefault().export(new PrometheusExporter(writer));
+ * writer.flush();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class PrometheusExporter implements MetricsExporter {
+
+    /**
+     * Upper bounds of the exported histogram buckets, in seconds.
+     */
+    private static final double[] BUCKETS = {
+        0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30, 60, 300, 1800
+    };
+
+    /**
+     * Upper bounds of the exported histogram buckets, in nanoseconds.
+     */
+    private static final long[] BUCKET_NANOS = nanos(BUCKETS);
+
+    /**
+     * The target of the text.
+     */
+    private final Appendable out;
+
+    /**
+     * Constructs a new exporter that writes to the given target.
+     *
+     * @param out The target of the text.
+     */
+    public PrometheusExporter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the current values of the given metrics.
+     *
+     * @param metrics The collected metrics.
+     *
+     * @throws IOException If the target cannot be written.
+     */
+    @Override
+    public void export(ExecutionMetrics metrics) throws IOException {
+        List<CommandMetrics> commands = metrics.getCommands();
+
+        this.histogram(commands, "queue", "Time spent in a scheduler queue.");
+        this.histogram(commands, "spawn", "Time to start the process.");
+        this.histogram(commands, "run", "Time from start to process exit.");
+        this.histogram(commands, "drain", "Time to transfer the output.");
+        this.histogram(commands, "total", "Total time of an execution.");
+        this.histogram(commands, "cpu", "CPU time of an execution.");
+
+        this.header(
+            "execution_exit_codes_total",
+            "counter",
+            "Completed executions by exit code."
+        );
+        for (CommandMetrics command : commands) {
+            for (Map.Entry<Integer, Long> entry
+                    : command.getExitCodeCounts().entrySet()) {
+                this.sample(
+                    "execution_exit_codes_total",
+                    command,
+                    ",code=\"" + entry.getKey() + "\"",
+                    entry.getValue()
+                );
+            }
+        }
+
+        this.header(
+            "execution_failures_total",
+            "counter",
+            "Executions that could not be started or drained."
+        );
+        for (CommandMetrics command : commands) {
+            this.sample(
+                "execution_failures_total",
+                command,
+                "",
+                command.getFailureCount()
+            );
+        }
+
+        this.header(
+            "execution_timeouts_total",
+            "counter",
+            "Executions killed because of a timeout."
+        );
+        for (CommandMetrics command : commands) {
+            this.sample(
+                "execution_timeouts_total",
+                command,
+                "",
+                command.getTimeoutCount()
+            );
+        }
+
+        this.header(
+            "execution_peak_rss_bytes",
+            "gauge",
+            "Largest peak resident set size of an execution."
+        );
+        for (CommandMetrics command : commands) {
+            this.sample(
+                "execution_peak_rss_bytes",
+                command,
+                "",
+                command.getMaxPeakResidentSetSize()
+            );
+        }
+
+        this.header(
+            "execution_in_flight",
+            "gauge",
+            "Currently running executions."
+        );
+        for (CommandMetrics command : commands) {
+            this.sample(
+                "execution_in_flight",
+                command,
+                "",
+                command.getInFlightCount()
+            );
+        }
+    }
+
+    /**
+     * Writes one latency histogram of all commands.
+     *
+     * @param commands The metrics of all commands.
+     * @param phase Name of the measured phase.
+     * @param help Description of the histogram.
+     *
+     * @throws IOException If the target cannot be written.
+     */
+    private void histogram(
+            List<CommandMetrics> commands,
+            String phase,
+            String help
+    ) throws IOException {
+        String name = "execution_" + phase + "_seconds";
+        this.header(name, "histogram", help);
+
+        for (CommandMetrics command : commands) {
+            LatencyHistogram histogram = this.phase(command, phase);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+
+            long[] counts = histogram.getCountsAtOrBelow(BUCKET_NANOS);
+            long total = counts[BUCKETS.length];
+            for (int i = 0; i < BUCKETS.length; ++i) {
+                this.sample(
+                    name + "_bucket",
+                    command,
+                    ",le=\"" + BUCKETS[i] + "\"",
+                    counts[i]
+                );
+            }
+            this.sample(name + "_bucket", command, ",le=\"+Inf\"", total);
+            this.out.append(name).append("_sum");
+            this.labels(command, "");
+            this.out.append(' ')
+                .append(Double.toString(
+                    histogram.getSum(TimeUnit.NANOSECONDS) / 1e9
+                ))
+                .append('\n');
+            this.sample(name + "_count", command, "", total);
+        }
+    }
+
+    /**
+     * Returns the histogram of the given phase.
+     *
+     * @param command The metrics of a command.
+     * @param phase Name of the measured phase.
+     *
+     * @return LatencyHistogram
+     */
+    private LatencyHistogram phase(CommandMetrics command, String phase) {
+        if ("queue".equals(phase)) {
+            return command.getQueueTime();
+        } else if ("spawn".equals(phase)) {
+            return command.getSpawnTime();
+        } else if ("run".equals(phase)) {
+            return command.getRunTime();
+        } else if ("drain".equals(phase)) {
+            return command.getDrainTime();
+        } else if ("cpu".equals(phase)) {
+            return command.getCpuTime();
+        }
+        return command.getTotalTime();
+    }
+
+    /**
+     * Writes the HELP and TYPE lines of a metric.
+     *
+     * @param name Name of the metric.
+     * @param type Prometheus type of the metric.
+     * @param help Description of the metric.
+     *
+     * @throws IOException If the target cannot be written.
+     */
+    private void header(String name, String type, String help)
+            throws IOException {
+        this.out.append("# HELP ").append(name).append(' ').append(help)
+            .append('\n');
+        this.out.append("# TYPE ").append(name).append(' ').append(type)
+            .append('\n');
+    }
+
+    /**
+     * Writes a single sample.
+     *
+     * @param name Name of the sample.
+     * @param command The metrics of the labeled command.
+     * @param labels Additional, already formatted labels.
+     * @param value The sample value.
+     *
+     * @throws IOException If the target cannot be written.
+     */
+    private void sample(
+            String name,
+            CommandMetrics command,
+            String labels,
+            long value
+    ) throws IOException {
+        this.out.append(name);
+        this.labels(command, labels);
+        this.out.append(' ').append(Long.toString(value)).append('\n');
+    }
+
+    /**
+     * Writes the label set of a sample.
+     *
+     * @param command The metrics of the labeled command.
+     * @param labels Additional, already formatted labels.
+     *
+     * @throws IOException If the target cannot be written.
+     */
+    private void labels(CommandMetrics command, String labels)
+            throws IOException {
+        this.out.append("{command=\"")
+            .append(escape(command.getCommand()))
+            .append('"')
+            .append(labels)
+            .append('}');
+    }
+
+    /**
+     * Converts the given bounds from seconds into nanoseconds.
+     *
+     * @param seconds The bounds in seconds.
+     *
+     * @return long[]
+     */
+    private static long[] nanos(double[] seconds) {
+        long[] nanos = new long[seconds.length];
+        for (int i = 0; i < seconds.length; ++i) {
+            nanos[i] = (long) (seconds[i] * 1e9);
+        }
+        return nanos;
+    }
+
+    /**
+     * Escapes a label value.
+     *
+     * @param value The raw label value.
+     *
+     * @return String
+     */
+    private static String escape(String value) {
+        return value
+            .replace("\\", "\\\\")
+            .replace("\"", "\\\"")
+            .replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Output pumper that multiplexes the output streams of all running processes
+ * over a small, fixed number of reactor threads.
+ *
+ * The pipes of a process are not selectable channels, so each reactor thread
+ * polls the available bytes of its registered streams and only reads what can
+ * be read without blocking. Idle reactors back off exponentially. With this
+ * strategy the number of threads stays constant, no matter how many processes
+ * run concurrently.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ReactorOutputPumper implements OutputPumper {
+
+    /**
+     * Shortest idle pause of a reactor thread.
+     */
+    private static final long MIN_BACKOFF_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Longest idle pause of a reactor thread.
+     */
+    private static final long MAX_BACKOFF_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * The shared default instance.
+     */
+    private static ReactorOutputPumper defaultInstance = null;
+
+    /**
+     * The reactors of this pumper.
+     */
+    private final Reactor[] reactors;
+
+    /**
+     * Used to distribute new streams round robin over all reactors.
+     */
+    private final AtomicInteger next = new AtomicInteger(0);
+
+    /**
+     * Constructs a new pumper with one reactor per available processor.
+     */
+    public ReactorOutputPumper() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new pumper with the given number of reactor threads.
+     *
+     * @param threads Number of reactor threads.
+     */
+    public ReactorOutputPumper(int threads) {
+        this.reactors = new Reactor[Math.max(1, threads)];
+        for (int i = 0; i < this.reactors.length; ++i) {
+            this.reactors[i] = new Reactor();
+
+            Thread thread = new Thread(
+                this.reactors[i],
+                "execution-reactor-" + (i + 1)
+            );
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns the shared default reactor pumper.
+     *
+     * @return ReactorOutputPumper
+     */
+    public static synchronized ReactorOutputPumper getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new ReactorOutputPumper();
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Registers the given stream with one of the reactors.
+     *
+     * @param process The running process that owns the stream.
+     * @param stream STDOUT or STDERR of a running process.
+     * @param sink The consumer for the read bytes.
+     *
+     * @return A handle to wait for the end of the transfer.
+     */
+    @Override
+    public OutputPump pump(
+            Process process,
+            InputStream stream,
+            OutputSink sink
+    ) {
+        ReactorPump pump = new ReactorPump(process, stream, sink);
+
+        int index = (this.next.getAndIncrement() & Integer.MAX_VALUE)
+                % this.reactors.length;
+        this.reactors[index].register(pump);
+
+        return pump;
+    }
+
+    /**
+     * A single reactor thread and the streams it is responsible for.
+     */
+    private static final class Reactor implements Runnable {
+
+        /**
+         * Newly registered pumps, not yet seen by the reactor thread.
+         */
+        private final ConcurrentLinkedQueue<ReactorPump> incoming =
+                new ConcurrentLinkedQueue<ReactorPump>();
+
+        /**
+         * The reactor thread, used to wake it up on new registrations.
+         */
+        private volatile Thread thread = null;
+
+        /**
+         * Adds the given pump and wakes up the reactor thread.
+         *
+         * @param pump The new pump.
+         */
+        void register(ReactorPump pump) {
+            this.incoming.offer(pump);
+            LockSupport.unpark(this.thread);
+        }
+
+        /**
+         * Polls all registered pumps until the virtual machine terminates.
+         */
+        @Override
+        public void run() {
+            this.thread = Thread.currentThread();
+
+            List<ReactorPump> pumps = new ArrayList<ReactorPump>();
+            byte[] buffer = new byte[BufferPool.BUFFER_SIZE];
+            long backoff = MIN_BACKOFF_NANOS;
+
+            while (true) {
+                ReactorPump pump;
+                while ((pump = this.incoming.poll()) != null) {
+                    pumps.add(pump);
+                }
+
+                if (pumps.isEmpty()) {
+                    LockSupport.park(this);
+                    backoff = MIN_BACKOFF_NANOS;
+                    continue;
+                }
+
+                boolean progress = false;
+                for (int i = pumps.size() - 1; i >= 0; --i) {
+                    int read = pumps.get(i).poll(buffer);
+                    if (read < 0) {
+                        pumps.set(i, pumps.get(pumps.size() - 1));
+                        pumps.remove(pumps.size() - 1);
+                    }
+                    progress = progress || read != 0;
+                }
+
+                if (progress) {
+                    backoff = MIN_BACKOFF_NANOS;
+                } else {
+                    LockSupport.parkNanos(this, backoff);
+                    backoff = Math.min(backoff << 1, MAX_BACKOFF_NANOS);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Compact per stream state of an output transfer that is multiplexed by a
+ * {@link ReactorOutputPumper}.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+class ReactorPump extends AbstractOutputPump {
+
+    /**
+     * The process that owns the drained stream.
+     */
+    private final Process process;
+
+    /**
+     * Constructs a new pump state.
+     *
+     * @param process The process that owns the drained stream.
+     * @param stream STDOUT or STDERR of the process.
+     * @param sink The consumer for the read bytes.
+     */
+    ReactorPump(Process process, InputStream stream, OutputSink sink) {
+        super(stream, sink);
+        this.process = process;
+    }
+
+    /**
+     * Reads at most one buffer of data without blocking, as long as the
+     * process is alive. Returns the number of transfered bytes or <b>-1</b>
+     * when the stream was drained completely.
+     *
+     * @param buffer The reactor's read buffer.
+     *
+     * @return int
+     */
+    int poll(byte[] buffer) {
+        try {
+            int available = this.stream.available();
+            if (available == 0 && this.process.isAlive()) {
+                return 0;
+            }
+
+            int length = buffer.length;
+            if (available > 0) {
+                length = Math.min(available, length);
+            }
+
+            int read = this.stream.read(buffer, 0, length);
+            if (read < 0) {
+                this.finish();
+                return -1;
+            }
+            this.write(buffer, read);
+            return read;
+        } catch (IOException e) {
+            this.fail(e);
+            this.finish();
+            return -1;
+        } catch (RuntimeException e) {
+            this.fail(new IOException(e));
+            this.finish();
+            return -1;
+        }
+    }
+}
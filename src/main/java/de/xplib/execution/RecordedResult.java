@@ -0,0 +1,120 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+/**
+ * Exit code and complete output of a finished execution, as needed to
+ * replay the execution without starting a process.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class RecordedResult {
+
+    /**
+     * The returned exit code.
+     */
+    private final int exitCode;
+
+    /**
+     * The captured STDOUT.
+     */
+    private final byte[] stdout;
+
+    /**
+     * The captured STDERR.
+     */
+    private final byte[] stderr;
+
+    /**
+     * Constructs a new recorded result.
+     *
+     * @param exitCode The returned exit code.
+     * @param stdout The captured STDOUT.
+     * @param stderr The captured STDERR.
+     */
+    RecordedResult(int exitCode, byte[] stdout, byte[] stderr) {
+        this.exitCode = exitCode;
+        this.stdout   = stdout;
+        this.stderr   = stderr;
+    }
+
+    /**
+     * Returns the returned exit code.
+     *
+     * @return int
+     */
+    int getExitCode() {
+        return this.exitCode;
+    }
+
+    /**
+     * Returns the captured STDOUT, which must not be modified.
+     *
+     * @return byte[]
+     */
+    byte[] getStdout() {
+        return this.stdout;
+    }
+
+    /**
+     * Returns the captured STDERR, which must not be modified.
+     *
+     * @return byte[]
+     */
+    byte[] getStderr() {
+        return this.stderr;
+    }
+
+    /**
+     * Returns the approximate memory size of this result.
+     *
+     * @return long
+     */
+    long size() {
+        return 64L + this.stdout.length + this.stderr.length;
+    }
+}
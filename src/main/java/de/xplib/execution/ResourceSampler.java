@@ -0,0 +1,415 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically samples the resource usage of running native processes.
+ *
+ * A single daemon thread samples all tracked processes at a fixed interval
+ * and stops waking up while no process is tracked. On Linux the CPU times
+ * are read from <b>/proc/&lt;pid&gt;/stat</b>, the peak resident set size
+ * from <b>status</b> and the storage I/O from <b>io</b>. On other platforms
+ * only the total CPU time from {@link ProcessHandle.Info} is available.
+ *
+ * The JDK reaps a process as soon as it exits, so no sample can be taken at
+ * the exit. The collected values are lower bounds that may miss up to one
+ * interval of consumption. Choose a shorter interval for short running
+ * tools when the numbers are used for capacity planning.
+ *
+ * <code>
+ * AbstractExecutable exec = new DefaultExecutable("/usr/bin/phpmd");
+ * exec.setResourceSampler(ResourceSampler.getDefault());
+ * exec.exec();
+ *
+ * ResourceUsage usage = exec.getResult().getResourceUsage();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ResourceSampler {
+
+    /**
+     * Length of a clock tick in <b>/proc/&lt;pid&gt;/stat</b>, which the
+     * kernel always reports in USER_HZ of 100 per second.
+     */
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / 100;
+
+    /**
+     * The process information directory.
+     */
+    private static final File PROC = new File("/proc");
+
+    /**
+     * The shared default sampler.
+     */
+    private static final ResourceSampler DEFAULT =
+            new ResourceSampler(100, TimeUnit.MILLISECONDS);
+
+    /**
+     * Time between two samples.
+     */
+    private final long intervalNanos;
+
+    /**
+     * All tracked processes.
+     */
+    private final Set<Tracker> trackers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Thread that takes the samples, created on first use.
+     */
+    private ScheduledExecutorService timer = null;
+
+    /**
+     * The periodic sampling task or <b>null</b> while nothing is tracked.
+     */
+    private ScheduledFuture<?> task = null;
+
+    /**
+     * Constructs a new sampler with the given interval.
+     *
+     * @param interval Time between two samples.
+     * @param unit Time unit of the interval.
+     */
+    public ResourceSampler(long interval, TimeUnit unit) {
+        this.intervalNanos = Math.max(1, unit.toNanos(interval));
+    }
+
+    /**
+     * Returns the shared default sampler, which takes a sample every 100
+     * milliseconds.
+     *
+     * @return ResourceSampler
+     */
+    public static ResourceSampler getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the time between two samples.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getInterval(TimeUnit unit) {
+        return unit.convert(this.intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of currently tracked processes.
+     *
+     * @return int
+     */
+    public int getTrackedCount() {
+        return this.trackers.size();
+    }
+
+    /**
+     * Starts tracking the given process and takes a first sample.
+     *
+     * @param process The native process.
+     *
+     * @return Tracker
+     */
+    Tracker track(Process process) {
+        Tracker tracker = new Tracker(this, process);
+        tracker.sample();
+
+        this.trackers.add(tracker);
+        this.schedule();
+        return tracker;
+    }
+
+    /**
+     * Starts the periodic sampling, unless it is already running.
+     */
+    private synchronized void schedule() {
+        if (this.task != null) {
+            return;
+        }
+        if (this.timer == null) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(
+                new DaemonThreadFactory("execution-sampler-")
+            );
+        }
+        this.task = this.timer.scheduleWithFixedDelay(
+            this::sampleAll,
+            this.intervalNanos,
+            this.intervalNanos,
+            TimeUnit.NANOSECONDS
+        );
+    }
+
+    /**
+     * Stops tracking the given tracker and the periodic sampling, when it
+     * was the last one.
+     *
+     * @param tracker The tracker to remove.
+     */
+    private synchronized void untrack(Tracker tracker) {
+        this.trackers.remove(tracker);
+        if (this.trackers.isEmpty() && this.task != null) {
+            this.task.cancel(false);
+            this.task = null;
+        }
+    }
+
+    /**
+     * Takes a sample of all tracked processes.
+     */
+    private void sampleAll() {
+        for (Tracker tracker : this.trackers) {
+            try {
+                tracker.sample();
+            } catch (RuntimeException e) {
+                // Ignore, the next interval will try again
+            }
+        }
+    }
+
+    /**
+     * Reads the current resource usage of the given process, or returns
+     * <b>null</b> when the process has already exited.
+     *
+     * @param process The native process.
+     *
+     * @return ResourceUsage
+     */
+    static ResourceUsage sample(Process process) {
+        ResourceUsage usage = readProc(process.pid());
+        if (usage == null) {
+            usage = readInfo(process);
+        }
+        // The pid may already belong to another process after an exit
+        if (usage == null || !process.isAlive()) {
+            return null;
+        }
+        return usage;
+    }
+
+    /**
+     * Reads the resource usage of the given process from <b>/proc</b>.
+     *
+     * @param pid The process id.
+     *
+     * @return The usage or <b>null</b> without procfs.
+     */
+    private static ResourceUsage readProc(long pid) {
+        File directory = new File(PROC, Long.toString(pid));
+
+        String stat = read(new File(directory, "stat"));
+        if (stat == null) {
+            return null;
+        }
+        // The command name in parenthesis may contain blanks
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2)
+            .trim()
+            .split(" +");
+        long user = (Long.parseLong(fields[11]) + Long.parseLong(fields[13]))
+            * TICK_NANOS;
+        long system = (Long.parseLong(fields[12]) + Long.parseLong(fields[14]))
+            * TICK_NANOS;
+
+        long peakRss = -1;
+        String status = read(new File(directory, "status"));
+        if (status != null) {
+            long kilobytes = field(status, "VmHWM:");
+            if (kilobytes >= 0) {
+                peakRss = kilobytes * 1024;
+            }
+        }
+
+        long readBytes = -1;
+        long writeBytes = -1;
+        String io = read(new File(directory, "io"));
+        if (io != null) {
+            readBytes = field(io, "read_bytes:");
+            writeBytes = field(io, "write_bytes:");
+        }
+
+        return new ResourceUsage(
+            user,
+            system,
+            user + system,
+            peakRss,
+            readBytes,
+            writeBytes,
+            1
+        );
+    }
+
+    /**
+     * Reads the total CPU time of the given process from the JDK.
+     *
+     * @param process The native process.
+     *
+     * @return The usage or <b>null</b> when not available.
+     */
+    private static ResourceUsage readInfo(Process process) {
+        Optional<Duration> cpu = process.info().totalCpuDuration();
+        if (!cpu.isPresent()) {
+            return null;
+        }
+        return new ResourceUsage(-1, -1, cpu.get().toNanos(), -1, -1, -1, 1);
+    }
+
+    /**
+     * Returns the numeric value of a <b>name: value</b> line.
+     *
+     * @param content The file content.
+     * @param name The name including the colon.
+     *
+     * @return The value or <b>-1</b>.
+     */
+    private static long field(String content, String name) {
+        for (String line : content.split("\n")) {
+            if (line.startsWith(name)) {
+                String value = line.substring(name.length()).trim();
+                int blank = value.indexOf(' ');
+                if (blank > 0) {
+                    value = value.substring(0, blank);
+                }
+                try {
+                    return Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a small procfs file.
+     *
+     * @param file The procfs file.
+     *
+     * @return The content or <b>null</b> when it cannot be read.
+     */
+    private static String read(File file) {
+        try {
+            return new String(
+                Files.readAllBytes(file.toPath()),
+                StandardCharsets.ISO_8859_1
+            );
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Collects the samples of a single process.
+     */
+    static final class Tracker {
+
+        /**
+         * The owning sampler.
+         */
+        private final ResourceSampler sampler;
+
+        /**
+         * The tracked process.
+         */
+        private final Process process;
+
+        /**
+         * All samples taken so far or <b>null</b>.
+         */
+        private ResourceUsage usage = null;
+
+        /**
+         * Constructs a new tracker.
+         *
+         * @param sampler The owning sampler.
+         * @param process The tracked process.
+         */
+        private Tracker(ResourceSampler sampler, Process process) {
+            this.sampler = sampler;
+            this.process = process;
+        }
+
+        /**
+         * Takes a sample, when the process is still running.
+         */
+        synchronized void sample() {
+            ResourceUsage sample = ResourceSampler.sample(this.process);
+            if (sample == null) {
+                return;
+            }
+            if (this.usage == null) {
+                this.usage = sample;
+            } else {
+                this.usage = this.usage.merge(sample);
+            }
+        }
+
+        /**
+         * Stops tracking and returns all samples taken.
+         *
+         * @return The usage or <b>null</b> when no sample was taken.
+         */
+        synchronized ResourceUsage stop() {
+            this.sample();
+            this.sampler.untrack(this);
+            return this.usage;
+        }
+    }
+}
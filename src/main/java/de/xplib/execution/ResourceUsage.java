@@ -0,0 +1,250 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resources consumed by a native process, as seen by the last sample taken
+ * before it exited.
+ *
+ * Values that are not available on the current platform are <b>-1</b>.
+ * Because the JDK reaps a process as soon as it exits, the consumption of
+ * the time between the last sample and the exit is not included. All
+ * counters are therefore lower bounds, accurate to one sampling interval.
+ * A process that runs shorter than one interval only reports the sample
+ * taken right after it was started.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class ResourceUsage {
+
+    /**
+     * CPU time spent in user mode or <b>-1</b>.
+     */
+    private final long userNanos;
+
+    /**
+     * CPU time spent in kernel mode or <b>-1</b>.
+     */
+    private final long systemNanos;
+
+    /**
+     * Total CPU time or <b>-1</b>.
+     */
+    private final long cpuNanos;
+
+    /**
+     * Peak resident set size in bytes or <b>-1</b>.
+     */
+    private final long peakRss;
+
+    /**
+     * Bytes read from storage or <b>-1</b>.
+     */
+    private final long readBytes;
+
+    /**
+     * Bytes written to storage or <b>-1</b>.
+     */
+    private final long writeBytes;
+
+    /**
+     * Number of samples taken while the process was running.
+     */
+    private final int samples;
+
+    /**
+     * Constructs a new resource usage.
+     *
+     * @param userNanos CPU time spent in user mode or <b>-1</b>.
+     * @param systemNanos CPU time spent in kernel mode or <b>-1</b>.
+     * @param cpuNanos Total CPU time or <b>-1</b>.
+     * @param peakRss Peak resident set size in bytes or <b>-1</b>.
+     * @param readBytes Bytes read from storage or <b>-1</b>.
+     * @param writeBytes Bytes written to storage or <b>-1</b>.
+     * @param samples Number of samples taken.
+     */
+    ResourceUsage(
+            long userNanos,
+            long systemNanos,
+            long cpuNanos,
+            long peakRss,
+            long readBytes,
+            long writeBytes,
+            int samples
+    ) {
+        this.userNanos   = userNanos;
+        this.systemNanos = systemNanos;
+        this.cpuNanos    = cpuNanos;
+        this.peakRss     = peakRss;
+        this.readBytes   = readBytes;
+        this.writeBytes  = writeBytes;
+        this.samples     = samples;
+    }
+
+    /**
+     * Returns the CPU time spent in user mode, including reaped children of
+     * the process, or <b>-1</b>.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getUserTime(TimeUnit unit) {
+        return convert(this.userNanos, unit);
+    }
+
+    /**
+     * Returns the CPU time spent in kernel mode, including reaped children
+     * of the process, or <b>-1</b>.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getSystemTime(TimeUnit unit) {
+        return convert(this.systemNanos, unit);
+    }
+
+    /**
+     * Returns the total CPU time or <b>-1</b>.
+     *
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    public long getCpuTime(TimeUnit unit) {
+        return convert(this.cpuNanos, unit);
+    }
+
+    /**
+     * Returns the peak resident set size in bytes or <b>-1</b>.
+     *
+     * @return long
+     */
+    public long getPeakResidentSetSize() {
+        return this.peakRss;
+    }
+
+    /**
+     * Returns the number of bytes read from storage or <b>-1</b>.
+     *
+     * @return long
+     */
+    public long getReadBytes() {
+        return this.readBytes;
+    }
+
+    /**
+     * Returns the number of bytes written to storage or <b>-1</b>.
+     *
+     * @return long
+     */
+    public long getWriteBytes() {
+        return this.writeBytes;
+    }
+
+    /**
+     * Returns the number of samples taken while the process was running.
+     *
+     * @return int
+     */
+    public int getSampleCount() {
+        return this.samples;
+    }
+
+    /**
+     * Combines this earlier sample with a later one. Counters are taken from
+     * the later sample, the peak resident set size is the maximum of both.
+     *
+     * @param later The later sample.
+     *
+     * @return ResourceUsage
+     */
+    ResourceUsage merge(ResourceUsage later) {
+        return new ResourceUsage(
+            later.userNanos,
+            later.systemNanos,
+            later.cpuNanos,
+            Math.max(this.peakRss, later.peakRss),
+            later.readBytes,
+            later.writeBytes,
+            this.samples + later.samples
+        );
+    }
+
+    /**
+     * Returns a string representation of this usage.
+     *
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return "cpu=" + this.getCpuTime(TimeUnit.MILLISECONDS) + "ms"
+            + " user=" + this.getUserTime(TimeUnit.MILLISECONDS) + "ms"
+            + " system=" + this.getSystemTime(TimeUnit.MILLISECONDS) + "ms"
+            + " peakRss=" + this.peakRss
+            + " read=" + this.readBytes
+            + " write=" + this.writeBytes;
+    }
+
+    /**
+     * Converts a nano second value that may be unknown.
+     *
+     * @param nanos The value or <b>-1</b>.
+     * @param unit The requested time unit.
+     *
+     * @return long
+     */
+    private static long convert(long nanos, TimeUnit unit) {
+        if (nanos < 0) {
+            return -1;
+        }
+        return unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+}
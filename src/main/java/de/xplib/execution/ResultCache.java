@@ -0,0 +1,516 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache for the exit code and output of deterministic command line tool
+ * invocations.
+ *
+ * An entry is identified by a SHA-256 digest over the command line, the
+ * values of selected environment variables, size and modification time of
+ * the executable and the content hashes of all declared input files. Entries
+ * are kept in an in-memory LRU and, optionally, in a directory on disk, one
+ * file per digest. Both levels are evicted by size. Only successful
+ * invocations are cached.
+ *
+ * <code>
+ * ResultCache cache = new ResultCache(new File("/var/cache/phpmd"));
+ *
+ * AbstractExecutable exec = new DefaultExecutable("/usr/bin/phpmd");
+ * exec.addArgument("src/Foo.php").addRegularExitCode(0);
+ * exec.setResultCache(cache).addCacheInput(new File("src/Foo.php"));
+ * exec.exec();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ResultCache {
+
+    /**
+     * Default maximum size of the in-memory entries.
+     */
+    private static final long DEFAULT_MEMORY_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Default maximum size of the on-disk entries.
+     */
+    private static final long DEFAULT_DISK_SIZE = 1024L * 1024 * 1024;
+
+    /**
+     * Default maximum size of the output of a single entry.
+     */
+    private static final int DEFAULT_ENTRY_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Directory of the on-disk entries or <b>null</b>.
+     */
+    private final File directory;
+
+    /**
+     * In-memory entries in access order.
+     */
+    private final LinkedHashMap<String, RecordedResult> entries =
+            new LinkedHashMap<String, RecordedResult>(16, 0.75f, true);
+
+    /**
+     * Content hashes of input files, by absolute path.
+     */
+    private final FileDigests digests = new FileDigests();
+
+    /**
+     * Total size of the in-memory entries.
+     */
+    private long memorySize = 0;
+
+    /**
+     * Total size of the on-disk entries or <b>-1</b> when not yet known.
+     */
+    private long diskSize = -1;
+
+    /**
+     * Maximum size of the in-memory entries.
+     */
+    private volatile long maximumMemorySize = DEFAULT_MEMORY_SIZE;
+
+    /**
+     * Maximum size of the on-disk entries.
+     */
+    private volatile long maximumDiskSize = DEFAULT_DISK_SIZE;
+
+    /**
+     * Maximum size of the output of a single entry.
+     */
+    private volatile int maximumEntrySize = DEFAULT_ENTRY_SIZE;
+
+    /**
+     * Number of cache hits.
+     */
+    private final AtomicLong hits = new AtomicLong(0);
+
+    /**
+     * Number of cache misses.
+     */
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * Constructs a new cache that keeps its entries in memory only.
+     */
+    public ResultCache() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new cache that stores its entries in the given directory.
+     *
+     * @param directory Directory of the on-disk entries or <b>null</b>.
+     */
+    public ResultCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Sets the maximum size of all in-memory entries in bytes.
+     *
+     * @param bytes Maximum size of the in-memory entries.
+     *
+     * @return The entire cache.
+     */
+    public ResultCache setMaximumMemorySize(long bytes) {
+        this.maximumMemorySize = Math.max(0, bytes);
+        synchronized (this.entries) {
+            this.evictMemory();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of all on-disk entries in bytes.
+     *
+     * @param bytes Maximum size of the on-disk entries.
+     *
+     * @return The entire cache.
+     */
+    public ResultCache setMaximumDiskSize(long bytes) {
+        this.maximumDiskSize = Math.max(0, bytes);
+        return this;
+    }
+
+    /**
+     * Sets the maximum size of the output of a single invocation. Larger
+     * outputs will not be cached.
+     *
+     * @param bytes Maximum size of a single entry.
+     *
+     * @return The entire cache.
+     */
+    public ResultCache setMaximumEntrySize(int bytes) {
+        this.maximumEntrySize = Math.max(0, bytes);
+        return this;
+    }
+
+    /**
+     * Returns the number of invocations that were answered from the cache.
+     *
+     * @return long
+     */
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    /**
+     * Returns the number of invocations that were not found in the cache.
+     *
+     * @return long
+     */
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * Drops all in-memory entries and all remembered file hashes. The on-disk
+     * entries are kept.
+     */
+    public void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+            this.memorySize = 0;
+        }
+        this.digests.clear();
+    }
+
+    /**
+     * Calculates the digest that identifies an invocation.
+     *
+     * @param commandLine The command line of the invocation.
+     * @param environment Names of the relevant environment variables.
+     * @param inputs The input files of the invocation.
+     *
+     * @return String
+     * @throws IOException If an input file cannot be read.
+     */
+    String key(
+            List<String> commandLine,
+            List<String> environment,
+            List<File> inputs
+    ) throws IOException {
+        MessageDigest digest = FileDigests.newDigest();
+        for (String argument : commandLine) {
+            FileDigests.update(digest, "arg", argument);
+        }
+        for (String name : environment) {
+            FileDigests.update(digest, "env", name + "=" + System.getenv(name));
+        }
+
+        File executable = new File(commandLine.get(0));
+        FileDigests.update(
+            digest,
+            "exe",
+            executable.length() + ":" + executable.lastModified()
+        );
+
+        for (File input : inputs) {
+            FileDigests.update(digest, "in", input.getPath());
+            FileDigests.update(digest, "hash", this.digests.hash(input));
+        }
+        return FileDigests.hex(digest.digest());
+    }
+
+    /**
+     * Returns a recording that captures output up to the maximum entry size.
+     *
+     * @return OutputRecording
+     */
+    OutputRecording newRecording() {
+        return new OutputRecording(this.maximumEntrySize);
+    }
+
+    /**
+     * Returns the cached result for the given key.
+     *
+     * @param key The invocation digest.
+     *
+     * @return The cached result or <b>null</b>.
+     * @throws IOException If the on-disk entry cannot be read.
+     */
+    RecordedResult get(String key) throws IOException {
+        RecordedResult entry = this.load(key);
+        if (entry == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the given result, unless its output exceeds the maximum entry
+     * size. A failing on-disk store is ignored, because a failing cache must
+     * not fail the execution.
+     *
+     * @param key The invocation digest.
+     * @param entry The result to store.
+     */
+    void put(String key, RecordedResult entry) {
+        if (entry.getStdout().length + entry.getStderr().length
+                > this.maximumEntrySize) {
+            return;
+        }
+        this.putMemory(key, entry);
+        if (this.directory != null) {
+            try {
+                this.putDisk(key, entry);
+            } catch (IOException e) {
+                // Ignore, the entry is still available in memory
+            }
+        }
+    }
+
+    /**
+     * Returns the entry for the given key from memory or disk.
+     *
+     * @param key The invocation digest.
+     *
+     * @return The entry or <b>null</b>.
+     * @throws IOException If the on-disk entry cannot be read.
+     */
+    private RecordedResult load(String key) throws IOException {
+        synchronized (this.entries) {
+            RecordedResult entry = this.entries.get(key);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        if (this.directory == null) {
+            return null;
+        }
+
+        File file = this.file(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        RecordedResult entry;
+        DataInputStream in = new DataInputStream(
+            Files.newInputStream(file.toPath())
+        );
+        try {
+            int exitCode = in.readInt();
+            byte[] stdout = new byte[in.readInt()];
+            in.readFully(stdout);
+            byte[] stderr = new byte[in.readInt()];
+            in.readFully(stderr);
+            entry = new RecordedResult(exitCode, stdout, stderr);
+        } catch (IOException e) {
+            Files.deleteIfExists(file.toPath());
+            return null;
+        } finally {
+            in.close();
+        }
+        file.setLastModified(System.currentTimeMillis());
+
+        this.putMemory(key, entry);
+        return entry;
+    }
+
+    /**
+     * Stores the given entry in memory and evicts the least recently used
+     * entries.
+     *
+     * @param key The invocation digest.
+     * @param entry The entry to store.
+     */
+    private void putMemory(String key, RecordedResult entry) {
+        synchronized (this.entries) {
+            RecordedResult previous = this.entries.put(key, entry);
+            if (previous != null) {
+                this.memorySize -= previous.size();
+            }
+            this.memorySize += entry.size();
+            this.evictMemory();
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the in-memory entries fit
+     * into the configured size.
+     */
+    private void evictMemory() {
+        Iterator<RecordedResult> it = this.entries.values().iterator();
+        while (this.memorySize > this.maximumMemorySize && it.hasNext()) {
+            this.memorySize -= it.next().size();
+            it.remove();
+        }
+    }
+
+    /**
+     * Writes the given entry atomically into its file and evicts the least
+     * recently used files.
+     *
+     * @param key The invocation digest.
+     * @param entry The entry to store.
+     *
+     * @throws IOException If the entry cannot be written.
+     */
+    private void putDisk(String key, RecordedResult entry)
+            throws IOException {
+        File file = this.file(key);
+        File parent = file.getParentFile();
+        parent.mkdirs();
+
+        File temp = File.createTempFile(key, ".tmp", parent);
+        DataOutputStream out = new DataOutputStream(
+            Files.newOutputStream(temp.toPath())
+        );
+        try {
+            out.writeInt(entry.getExitCode());
+            out.writeInt(entry.getStdout().length);
+            out.write(entry.getStdout());
+            out.writeInt(entry.getStderr().length);
+            out.write(entry.getStderr());
+        } finally {
+            out.close();
+        }
+
+        long replaced = file.length();
+        try {
+            Files.move(
+                temp.toPath(),
+                file.toPath(),
+                StandardCopyOption.ATOMIC_MOVE
+            );
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(
+                temp.toPath(),
+                file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING
+            );
+        }
+        this.evictDisk(file.length() - replaced);
+    }
+
+    /**
+     * Adds the given number of bytes to the on-disk size and deletes the
+     * least recently used files when the configured size is exceeded.
+     *
+     * @param added Size of the added file minus the size of the replaced
+     *        file, if any.
+     */
+    private synchronized void evictDisk(long added) {
+        if (this.diskSize < 0) {
+            this.diskSize = 0;
+            for (File file : this.files()) {
+                this.diskSize += file.length();
+            }
+        } else {
+            this.diskSize += added;
+        }
+        if (this.diskSize <= this.maximumDiskSize) {
+            return;
+        }
+
+        List<File> files = this.files();
+        files.sort(Comparator.comparingLong(File::lastModified));
+
+        long target = this.maximumDiskSize - this.maximumDiskSize / 10;
+        for (File file : files) {
+            if (this.diskSize <= target) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                this.diskSize -= length;
+            }
+        }
+    }
+
+    /**
+     * Returns all on-disk entry files.
+     *
+     * @return List<File>
+     */
+    private List<File> files() {
+        List<File> files = new ArrayList<File>();
+        File[] parents = this.directory.listFiles();
+        if (parents == null) {
+            return files;
+        }
+        for (File parent : parents) {
+            File[] children = parent.listFiles();
+            if (children != null) {
+                files.addAll(Arrays.asList(children));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Returns the file of the on-disk entry for the given key.
+     *
+     * @param key The invocation digest.
+     *
+     * @return File
+     */
+    private File file(String key) {
+        return new File(new File(this.directory, key.substring(0, 2)), key);
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.List;
+
+/**
+ * Executable that runs its command line in a pooled, long-lived shell
+ * session instead of starting a new process.
+ *
+ * This reduces the overhead of many small commands, like stat checks or
+ * git plumbing commands. The executable is resolved by the shell, a missing
+ * executable results in exit code <b>127</b>. STDIN of the command is
+ * connected to <b>/dev/null</b>. Each command runs in its own subshell, and
+ * a command that exceeds the timeout set by
+ * {@link #setTimeout(long, java.util.concurrent.TimeUnit)} is killed
+ * together with its session.
+ *
+ * <code>
+ * Executable exec = new ShellExecutable("git");
+ * exec.addArgument("rev-parse").addArgument("HEAD").addRegularExitCode(0);
+ * exec.exec();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ShellExecutable extends WorkerExecutable {
+
+    /**
+     * Constructs a new executable that uses the default session pool.
+     *
+     * @param executable Name of the executable.
+     */
+    public ShellExecutable(String executable) {
+        this(ShellSessionPool.getDefault(), executable);
+    }
+
+    /**
+     * Constructs a new executable that uses the given session pool.
+     *
+     * @param pool The pool that runs the command.
+     * @param executable Name of the executable.
+     */
+    public ShellExecutable(ShellSessionPool pool, String executable) {
+        super(pool);
+        this.addArgument(executable);
+    }
+
+    /**
+     * Returns the executable followed by its arguments.
+     *
+     * @return List<String>
+     */
+    @Override
+    public List<String> getCommandLine() {
+        return this.getArguments();
+    }
+}
@@ -0,0 +1,397 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single long-lived shell process that runs one command after another.
+ *
+ * Each command is followed by a unique sentinel on STDOUT and STDERR, the
+ * STDOUT sentinel also carries the exit status of the command. Everything
+ * in front of a sentinel belongs to the output of the command. STDERR is
+ * read by a pooled thread while STDOUT is read by the calling thread, so
+ * that a command that writes to both streams cannot block the session.
+ *
+ * Every command runs in its own subshell, so that builtins like <b>cd</b>,
+ * <b>exit</b> or <b>exec</b> cannot change or terminate the session.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class ShellSession implements PooledProcess {
+
+    /**
+     * Shared pool of STDERR reader threads.
+     */
+    private static final ExecutorService EXECUTOR =
+        Executors.newCachedThreadPool(
+            new DaemonThreadFactory("execution-session-")
+        );
+
+    /**
+     * Milliseconds a shell gets to exit on its own once STDIN was closed.
+     */
+    private static final long EXIT_GRACE_MILLIS = 2000;
+
+    /**
+     * The native shell process.
+     */
+    private final Process process;
+
+    /**
+     * Command stream, connected to STDIN of the shell.
+     */
+    private final OutputStream commands;
+
+    /**
+     * Reader for STDOUT of the shell.
+     */
+    private final SentinelReader stdout;
+
+    /**
+     * Reader for STDERR of the shell.
+     */
+    private final SentinelReader stderr;
+
+    /**
+     * Random prefix of all sentinels of this session.
+     */
+    private final String sentinel =
+        "__execution_" + UUID.randomUUID().toString().replace("-", "");
+
+    /**
+     * Number of commands run by this session.
+     */
+    private int requestCount = 0;
+
+    /**
+     * Did the last command fail on protocol level?
+     */
+    private volatile boolean broken = false;
+
+    /**
+     * Was this session killed? Unlike <b>broken</b>, this flag is never
+     * reset by a request that completes after the kill.
+     */
+    private volatile boolean killed = false;
+
+    /**
+     * Starts a new shell process.
+     *
+     * @param shell The shell command line.
+     *
+     * @throws IOException If the process cannot be started.
+     */
+    ShellSession(List<String> shell) throws IOException {
+        this.process  = ProcessLauncher.start(new ProcessBuilder(shell));
+        this.commands = new BufferedOutputStream(
+            this.process.getOutputStream()
+        );
+        this.stdout   = new SentinelReader(this.process.getInputStream());
+        this.stderr   = new SentinelReader(this.process.getErrorStream());
+    }
+
+    /**
+     * Returns the number of commands run by this session.
+     *
+     * @return int
+     */
+    @Override
+    public int getRequestCount() {
+        return this.requestCount;
+    }
+
+    /**
+     * Returns <b>true</b> when this session can run further commands.
+     *
+     * @return boolean
+     */
+    @Override
+    public boolean isUsable() {
+        return !this.broken && !this.killed && this.process.isAlive();
+    }
+
+    /**
+     * Runs the given command line in a subshell of this session. STDIN of
+     * the command is connected to <b>/dev/null</b>.
+     *
+     * @param arguments The executable followed by its arguments.
+     * @param out The sink that receives STDOUT of the command.
+     * @param err The sink that receives STDERR of the command.
+     *
+     * @return The exit status of the command.
+     * @throws IOException If the shell has terminated.
+     */
+    @Override
+    public int call(List<String> arguments, OutputSink out, OutputSink err)
+            throws IOException {
+        this.broken = true;
+
+        String marker = this.sentinel + "_" + (++this.requestCount);
+
+        StringBuilder script = new StringBuilder("( ");
+        for (String argument : arguments) {
+            script.append(quote(argument)).append(' ');
+        }
+        script.append("\n) </dev/null; printf '\\n%s %d\\n' ")
+            .append(marker)
+            .append(" $?; printf '\\n%s\\n' ")
+            .append(marker)
+            .append(" >&2\n");
+
+        this.commands.write(
+            script.toString().getBytes(StandardCharsets.UTF_8)
+        );
+        this.commands.flush();
+
+        Future<String> errors = EXECUTOR.submit(
+            () -> this.stderr.readUntil(marker, err)
+        );
+        try {
+            int status = Integer.parseInt(
+                this.stdout.readUntil(marker, out).trim()
+            );
+            errors.get();
+
+            this.broken = false;
+            return status;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (NumberFormatException e) {
+            throw new IOException(e);
+        } finally {
+            if (this.broken) {
+                this.kill();
+            }
+        }
+    }
+
+    /**
+     * Terminates the shell by closing its STDIN, and kills it when it does
+     * not exit on its own within a short grace period, without blocking the
+     * caller. A session that broke the protocol is killed immediately.
+     */
+    @Override
+    public void destroy() {
+        if (this.broken || this.killed) {
+            this.kill();
+            return;
+        }
+        try {
+            this.commands.close();
+        } catch (IOException e) {
+            // Ignore, the shell has already exited
+        }
+        TimerWheel.getDefault().schedule(
+            () -> {
+                if (this.process.isAlive()) {
+                    this.kill();
+                }
+            },
+            EXIT_GRACE_MILLIS,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Kills the shell and all commands started by it immediately.
+     */
+    @Override
+    public void kill() {
+        this.killed = true;
+        ProcessTreeKiller.terminate(
+            this.process,
+            TimerWheel.getDefault(),
+            0
+        );
+    }
+
+    /**
+     * Quotes the given argument for the shell.
+     *
+     * @param argument The raw argument.
+     *
+     * @return String
+     */
+    private static String quote(String argument) {
+        return "'" + argument.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * Splits a shell output stream at the sentinel lines.
+     */
+    private static final class SentinelReader {
+
+        /**
+         * The buffered shell output.
+         */
+        private final InputStream stream;
+
+        /**
+         * Constructs a new reader for the given stream.
+         *
+         * @param stream STDOUT or STDERR of the shell.
+         */
+        SentinelReader(InputStream stream) {
+            this.stream = new BufferedInputStream(stream);
+        }
+
+        /**
+         * Transfers all output in front of the given sentinel into the given
+         * sink and returns the remainder of the sentinel line. The newline
+         * that is written in front of each sentinel is dropped.
+         *
+         * @param marker The expected sentinel.
+         * @param sink The sink that receives the command output.
+         *
+         * @return String
+         * @throws IOException If the shell has terminated.
+         */
+        String readUntil(String marker, OutputSink sink) throws IOException {
+            byte[] expected = marker.getBytes(StandardCharsets.US_ASCII);
+            byte[] chunk = BufferPool.acquire();
+            try {
+                int size = 0;
+                int matched = 0;
+                boolean lineStart = true;
+                boolean firstLine = true;
+
+                while (true) {
+                    int b = this.read();
+                    if (lineStart) {
+                        if (b == expected[matched]) {
+                            if (++matched == expected.length) {
+                                break;
+                            }
+                            continue;
+                        }
+                        lineStart = false;
+                        if (!firstLine) {
+                            size = append(sink, chunk, size, '\n');
+                        }
+                        for (int i = 0; i < matched; ++i) {
+                            size = append(sink, chunk, size, expected[i]);
+                        }
+                        matched = 0;
+                    }
+                    if (b == '\n') {
+                        lineStart = true;
+                        firstLine = false;
+                        continue;
+                    }
+                    size = append(sink, chunk, size, b);
+                }
+
+                sink.write(chunk, 0, size);
+                sink.close();
+            } finally {
+                BufferPool.release(chunk);
+            }
+
+            StringBuilder rest = new StringBuilder();
+            for (int b = this.read(); b != '\n'; b = this.read()) {
+                rest.append((char) b);
+            }
+            return rest.toString();
+        }
+
+        /**
+         * Reads the next byte.
+         *
+         * @return int
+         * @throws IOException If the shell has terminated.
+         */
+        private int read() throws IOException {
+            int b = this.stream.read();
+            if (b < 0) {
+                throw new EOFException("The shell session has terminated.");
+            }
+            return b;
+        }
+
+        /**
+         * Appends a byte to the given chunk and flushes the chunk into the
+         * sink when it is full.
+         *
+         * @param sink The sink that receives the command output.
+         * @param chunk The pending output.
+         * @param size Number of pending bytes.
+         * @param b The byte to append.
+         *
+         * @return The new number of pending bytes.
+         * @throws IOException If the sink fails.
+         */
+        private static int append(
+                OutputSink sink,
+                byte[] chunk,
+                int size,
+                int b
+        ) throws IOException {
+            if (size == chunk.length) {
+                sink.write(chunk, 0, size);
+                size = 0;
+            }
+            chunk[size] = (byte) b;
+            return size + 1;
+        }
+    }
+}
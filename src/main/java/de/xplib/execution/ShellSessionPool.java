@@ -0,0 +1,108 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+
+/**
+ * Pool of long-lived shell sessions that run bursts of small commands
+ * without starting a new process from the virtual machine for each of them.
+ *
+ * Every command runs in a subshell of a pooled session, so that commands
+ * like <b>cd</b>, <b>export</b>, <b>exit</b> or <b>exec</b> cannot change
+ * or terminate the session for later commands. External tools are started
+ * by the shell, which is still much cheaper than a process started from
+ * the virtual machine.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ShellSessionPool extends WorkerPool {
+
+    /**
+     * The shared default instance.
+     */
+    private static ShellSessionPool defaultInstance = null;
+
+    /**
+     * Constructs a new pool of <b>/bin/sh</b> sessions.
+     */
+    public ShellSessionPool() {
+        this("/bin/sh");
+    }
+
+    /**
+     * Constructs a new pool for the given POSIX shell.
+     *
+     * @param shell The shell command line.
+     */
+    public ShellSessionPool(String... shell) {
+        super(shell);
+    }
+
+    /**
+     * Returns the shared default pool of <b>/bin/sh</b> sessions.
+     *
+     * @return ShellSessionPool
+     */
+    public static synchronized ShellSessionPool getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new ShellSessionPool();
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Starts a new shell session.
+     *
+     * @return PooledProcess
+     * @throws IOException If the shell cannot be started.
+     */
+    @Override
+    PooledProcess start() throws IOException {
+        return new ShellSession(this.getCommand());
+    }
+}
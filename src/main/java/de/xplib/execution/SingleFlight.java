@@ -0,0 +1,258 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces identical executions that run at the same time.
+ *
+ * When an executable that uses a single flight group is executed while an
+ * execution with the same command line and working directory is already
+ * running, no second process is started. Instead the caller waits for the
+ * running execution, and its output is replayed into the caller's sinks.
+ * Executables with a STDIN source or an output redirect are never coalesced,
+ * because their input or output cannot be shared.
+ *
+ * <code>
+ * AbstractExecutable exec = new DefaultExecutable("/usr/bin/pdepend");
+ * exec.addArgument("--version").addRegularExitCode(0);
+ * exec.setSingleFlight(SingleFlight.getDefault());
+ * exec.exec();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class SingleFlight {
+
+    /**
+     * Default maximum size of the shared output per stream.
+     */
+    private static final int DEFAULT_OUTPUT_LIMIT = 16 * 1024 * 1024;
+
+    /**
+     * The shared default instance.
+     */
+    private static final SingleFlight DEFAULT_INSTANCE = new SingleFlight();
+
+    /**
+     * Running executions by command line.
+     */
+    private final ConcurrentHashMap<List<String>, Flight> flights =
+            new ConcurrentHashMap<List<String>, Flight>();
+
+    /**
+     * Number of executions that joined a running execution.
+     */
+    private final AtomicLong coalesced = new AtomicLong(0);
+
+    /**
+     * Maximum size of the shared output per stream.
+     */
+    private volatile int outputLimit = DEFAULT_OUTPUT_LIMIT;
+
+    /**
+     * Returns the group shared by all executables that were not configured
+     * otherwise.
+     *
+     * @return SingleFlight
+     */
+    public static SingleFlight getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Sets the maximum size of the output that is shared per stream. When a
+     * running execution writes more output, the waiting callers start their
+     * own execution.
+     *
+     * @param bytes Maximum size of the shared output per stream.
+     *
+     * @return The entire group.
+     */
+    public SingleFlight setOutputLimit(int bytes) {
+        this.outputLimit = Math.max(0, bytes);
+        return this;
+    }
+
+    /**
+     * Returns the number of executions that joined a running execution
+     * instead of starting a process.
+     *
+     * @return long
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Returns the number of currently running executions.
+     *
+     * @return int
+     */
+    public int getInFlightCount() {
+        return this.flights.size();
+    }
+
+    /**
+     * Joins the running execution for the given command line, or registers
+     * a new one, for which the caller becomes the leader.
+     *
+     * @param commandLine The command line of the execution.
+     *
+     * @return Flight
+     */
+    Flight join(List<String> commandLine) {
+        List<String> key = new ArrayList<String>(commandLine.size() + 1);
+        key.add(System.getProperty("user.dir"));
+        key.addAll(commandLine);
+
+        Flight created = new Flight(
+            key,
+            new CompletableFuture<RecordedResult>(),
+            true
+        );
+        Flight running = this.flights.putIfAbsent(key, created);
+        if (running == null) {
+            return created;
+        }
+        this.coalesced.incrementAndGet();
+        return new Flight(key, running.future, false);
+    }
+
+    /**
+     * View of a single running execution, for the leader that runs the
+     * process or for one of the callers waiting for it.
+     */
+    final class Flight {
+
+        /**
+         * Key of this flight.
+         */
+        private final List<String> key;
+
+        /**
+         * Completes with the recorded result of the leader, or with
+         * <b>null</b> when the result cannot be shared.
+         */
+        private final CompletableFuture<RecordedResult> future;
+
+        /**
+         * Is this the view of the caller that runs the process?
+         */
+        private final boolean leader;
+
+        /**
+         * Constructs a new flight view.
+         *
+         * @param key Key of this flight.
+         * @param future The shared result future.
+         * @param leader Is this the view of the caller that runs the process?
+         */
+        private Flight(
+                List<String> key,
+                CompletableFuture<RecordedResult> future,
+                boolean leader
+        ) {
+            this.key    = key;
+            this.future = future;
+            this.leader = leader;
+        }
+
+        /**
+         * Returns <b>true</b> for the caller that has to run the process.
+         *
+         * @return boolean
+         */
+        boolean isLeader() {
+            return this.leader;
+        }
+
+        /**
+         * Returns a recording for the output of the leader.
+         *
+         * @return OutputRecording
+         */
+        OutputRecording newRecording() {
+            return new OutputRecording(SingleFlight.this.outputLimit);
+        }
+
+        /**
+         * Returns a future for the recorded result of the leader.
+         *
+         * @return CompletableFuture<RecordedResult>
+         */
+        CompletableFuture<RecordedResult> getFuture() {
+            return this.future;
+        }
+
+        /**
+         * Ends this flight with the recorded result of the leader, or with
+         * <b>null</b> when the result cannot be shared.
+         *
+         * @param result The recorded result or <b>null</b>.
+         */
+        void complete(RecordedResult result) {
+            SingleFlight.this.flights.remove(this.key, this);
+            this.future.complete(result);
+        }
+
+        /**
+         * Ends this flight with the failure of the leader.
+         *
+         * @param failure The failure of the leader.
+         */
+        void fail(Throwable failure) {
+            SingleFlight.this.flights.remove(this.key, this);
+            this.future.completeExceptionally(failure);
+        }
+    }
+}
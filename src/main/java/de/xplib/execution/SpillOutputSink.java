@@ -0,0 +1,387 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Output sink implementation that captures all received bytes in memory up
+ * to a threshold and spills them into a temporary file afterwards.
+ *
+ * Small outputs never touch the disk, while large outputs, like XML reports
+ * of several hundred MB, never occupy more heap than the threshold. The
+ * temporary file will be deleted by {@link #delete()}, which is also called
+ * when the {@link ExecutionResult} that references this sink is closed.
+ *
+ * A sink passed to an executable acts as a template: every execution
+ * captures into a new sink with the same settings, which is available from
+ * its {@link ExecutionResult}. This way repeated executions never share a
+ * temporary file, and releasing an older result never drops the output of a
+ * newer one.
+ *
+ * <code>
+ * AbstractExecutable exec = new DefaultExecutable("phpmd");
+ * exec.setStdout(new SpillOutputSink(1024 * 1024));
+ * exec.exec();
+ *
+ * try (ExecutionResult result = exec.getResult()) {
+ *     SpillOutputSink report = (SpillOutputSink) result.getStdout();
+ *     parse(report.getInputStream());
+ * }
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class SpillOutputSink implements OutputSink {
+
+    /**
+     * Default number of bytes kept in memory.
+     */
+    public static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Maximum number of bytes kept in memory.
+     */
+    private final int threshold;
+
+    /**
+     * Directory for the temporary file or <b>null</b> for the default
+     * temporary directory.
+     */
+    private final File directory;
+
+    /**
+     * The in-memory bytes, until the output was spilled.
+     */
+    private byte[] bytes = new byte[1024];
+
+    /**
+     * Total number of captured bytes.
+     */
+    private long size = 0;
+
+    /**
+     * The temporary file or <b>null</b> while the output is kept in memory.
+     */
+    private File file = null;
+
+    /**
+     * The opened temporary file stream or <b>null</b>.
+     */
+    private OutputStream stream = null;
+
+    /**
+     * Constructs a new sink that keeps up to 1 MiB in memory.
+     */
+    public SpillOutputSink() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a new sink that keeps up to <b>threshold</b> bytes in memory.
+     *
+     * @param threshold Maximum number of bytes kept in memory.
+     */
+    public SpillOutputSink(int threshold) {
+        this(threshold, null);
+    }
+
+    /**
+     * Constructs a new sink that spills into the given directory.
+     *
+     * @param threshold Maximum number of bytes kept in memory.
+     * @param directory Directory for the temporary file or <b>null</b>.
+     */
+    public SpillOutputSink(int threshold, File directory) {
+        this.threshold = Math.max(threshold, 0);
+        this.directory = directory;
+    }
+
+    /**
+     * Returns a new empty sink with the same settings, so that every
+     * execution spills into its own temporary file.
+     *
+     * @return OutputSink
+     */
+    @Override
+    public OutputSink forExecution() {
+        return new SpillOutputSink(this.threshold, this.directory);
+    }
+
+    /**
+     * Appends the given bytes to the memory buffer or the temporary file.
+     *
+     * @param buffer The reused read buffer.
+     * @param offset Offset of the first valid byte in the buffer.
+     * @param length Number of valid bytes in the buffer.
+     *
+     * @throws IOException If the temporary file cannot be written.
+     */
+    @Override
+    public synchronized void write(byte[] buffer, int offset, int length)
+            throws IOException {
+        if (this.file == null && this.size + length > this.threshold) {
+            this.spill();
+        }
+
+        if (this.file == null) {
+            int required = (int) this.size + length;
+            if (required > this.bytes.length) {
+                int capacity = Math.min(
+                    Math.max(this.bytes.length << 1, required),
+                    Math.max(this.threshold, required)
+                );
+                this.bytes = Arrays.copyOf(this.bytes, capacity);
+            }
+            System.arraycopy(
+                buffer,
+                offset,
+                this.bytes,
+                (int) this.size,
+                length
+            );
+        } else {
+            if (this.stream == null) {
+                this.stream = new FileOutputStream(this.file, true);
+            }
+            this.stream.write(buffer, offset, length);
+        }
+        this.size += length;
+    }
+
+    /**
+     * Closes the temporary file stream, the captured bytes stay available.
+     *
+     * @throws IOException If the temporary file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.stream != null) {
+            try {
+                this.stream.close();
+            } finally {
+                this.stream = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of captured bytes.
+     *
+     * @return long
+     */
+    public synchronized long size() {
+        return this.size;
+    }
+
+    /**
+     * Returns <b>true</b> when the output was written to a temporary file.
+     *
+     * @return boolean
+     */
+    public synchronized boolean isSpilled() {
+        return this.file != null;
+    }
+
+    /**
+     * Returns the temporary file or <b>null</b> when the output is still kept
+     * in memory.
+     *
+     * @return File
+     */
+    public synchronized File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Returns at most the last <b>maxBytes</b> captured bytes, or an empty
+     * array when the temporary file cannot be read.
+     *
+     * @param maxBytes Maximum number of returned bytes.
+     *
+     * @return byte[]
+     */
+    @Override
+    public synchronized byte[] getTail(int maxBytes) {
+        int length = (int) Math.min(this.size, Math.max(maxBytes, 0));
+        if (this.file == null) {
+            return Arrays.copyOfRange(
+                this.bytes,
+                (int) this.size - length,
+                (int) this.size
+            );
+        }
+
+        byte[] tail = new byte[length];
+        try {
+            this.flush();
+            RandomAccessFile in = new RandomAccessFile(this.file, "r");
+            try {
+                in.seek(this.size - length);
+                in.readFully(tail);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return new byte[0];
+        }
+        return tail;
+    }
+
+    /**
+     * Returns a stream over all captured bytes.
+     *
+     * @return InputStream
+     * @throws IOException If the temporary file cannot be opened.
+     */
+    public synchronized InputStream getInputStream() throws IOException {
+        if (this.file == null) {
+            return new ByteArrayInputStream(this.bytes, 0, (int) this.size);
+        }
+        this.flush();
+        return Files.newInputStream(this.file.toPath());
+    }
+
+    /**
+     * Returns a read only buffer over all captured bytes. A spilled output
+     * will be mapped into memory instead of being read into the heap.
+     *
+     * @return ByteBuffer
+     * @throws IOException If the temporary file cannot be mapped.
+     */
+    public synchronized ByteBuffer getByteBuffer() throws IOException {
+        if (this.file == null) {
+            return ByteBuffer
+                .wrap(this.bytes, 0, (int) this.size)
+                .asReadOnlyBuffer();
+        }
+        this.flush();
+
+        FileChannel channel = FileChannel.open(
+            this.file.toPath(),
+            StandardOpenOption.READ
+        );
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Drops all captured bytes and deletes the temporary file, so that this
+     * sink can be reused.
+     *
+     * @throws IOException If the temporary file cannot be deleted.
+     */
+    public synchronized void delete() throws IOException {
+        File spilled = this.file;
+
+        this.close();
+        this.bytes = new byte[1024];
+        this.size  = 0;
+        this.file  = null;
+
+        if (spilled != null) {
+            Files.deleteIfExists(spilled.toPath());
+        }
+    }
+
+    /**
+     * Deletes the temporary file, once the result of the execution is closed.
+     *
+     * @throws IOException If the temporary file cannot be deleted.
+     */
+    @Override
+    public void release() throws IOException {
+        this.delete();
+    }
+
+    /**
+     * Moves the in-memory bytes into a new temporary file.
+     *
+     * @throws IOException If the temporary file cannot be created.
+     */
+    private void spill() throws IOException {
+        File temp = File.createTempFile("execution-", ".out", this.directory);
+
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(this.bytes, 0, (int) this.size);
+        } catch (IOException e) {
+            out.close();
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+
+        this.file   = temp;
+        this.stream = out;
+        this.bytes  = null;
+    }
+
+    /**
+     * Flushes pending bytes, so that readers see the complete output.
+     *
+     * @throws IOException If the temporary file cannot be written.
+     */
+    private void flush() throws IOException {
+        if (this.stream != null) {
+            this.stream.flush();
+        }
+    }
+}
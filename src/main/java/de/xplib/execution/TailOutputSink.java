@@ -0,0 +1,251 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Output sink implementation that keeps only the last received bytes in a
+ * fixed size ring buffer.
+ *
+ * This is the default capture for STDERR, so that a noisy command line tool
+ * never occupies more memory than the configured capacity. The bytes are
+ * only decoded when the text is requested.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class TailOutputSink implements OutputSink {
+
+    /**
+     * Default number of retained bytes.
+     */
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    /**
+     * Initial size of the ring buffer, once the first byte was received.
+     */
+    private static final int INITIAL_SIZE = 256;
+
+    /**
+     * Maximum number of retained bytes.
+     */
+    private final int capacity;
+
+    /**
+     * The ring buffer, which grows up to the capacity as bytes arrive.
+     */
+    private byte[] ring = new byte[0];
+
+    /**
+     * Total number of received bytes.
+     */
+    private long total = 0;
+
+    /**
+     * Constructs a new tail sink that keeps the last 64 KiB.
+     */
+    public TailOutputSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new tail sink that keeps the given number of bytes.
+     *
+     * @param capacity Maximum number of retained bytes.
+     */
+    public TailOutputSink(int capacity) {
+        this.capacity = Math.max(capacity, 16);
+    }
+
+    /**
+     * Appends the given bytes to the ring buffer and overwrites the oldest
+     * bytes when the buffer is full.
+     *
+     * @param buffer The reused read buffer.
+     * @param offset Offset of the first valid byte in the buffer.
+     * @param length Number of valid bytes in the buffer.
+     */
+    @Override
+    public synchronized void write(byte[] buffer, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        int capacity = this.capacity;
+        if (length > capacity) {
+            offset += length - capacity;
+            this.total += length - capacity;
+            length = capacity;
+        }
+        this.grow(length);
+
+        int position = (int) (this.total % capacity);
+        int first = Math.min(length, capacity - position);
+        System.arraycopy(buffer, offset, this.ring, position, first);
+        System.arraycopy(buffer, offset + first, this.ring, 0, length - first);
+
+        this.total += length;
+    }
+
+    /**
+     * Grows the ring buffer, so that the given number of additional bytes
+     * fits without wrapping around before the capacity is reached. The ring
+     * only wraps around once it has reached its capacity, so the retained
+     * bytes always start at index <b>0</b> while it grows.
+     *
+     * @param length Number of additional bytes.
+     */
+    private void grow(int length) {
+        if (this.ring.length == this.capacity
+                || this.total + length <= this.ring.length) {
+            return;
+        }
+        long required = Math.max(this.total + length, INITIAL_SIZE);
+        int size = (int) Math.min(
+            Math.max(required, (long) this.ring.length << 1),
+            this.capacity
+        );
+        this.ring = Arrays.copyOf(this.ring, size);
+    }
+
+    /**
+     * Nothing to do here, the retained bytes stay available.
+     */
+    @Override
+    public void close() {
+
+    }
+
+    /**
+     * Returns the number of retained bytes.
+     *
+     * @return int
+     */
+    public synchronized int size() {
+        return (int) Math.min(this.total, this.capacity);
+    }
+
+    /**
+     * Returns the total number of received bytes, including the bytes that
+     * were already dropped.
+     *
+     * @return long
+     */
+    public synchronized long getTotalBytes() {
+        return this.total;
+    }
+
+    /**
+     * Returns <b>true</b> when older bytes were dropped.
+     *
+     * @return boolean
+     */
+    public synchronized boolean isTruncated() {
+        return this.total > this.capacity;
+    }
+
+    /**
+     * Returns a copy of the retained bytes in the order they were received.
+     *
+     * @return byte[]
+     */
+    public synchronized byte[] getBytes() {
+        return this.getTail(this.capacity);
+    }
+
+    /**
+     * Returns at most the last <b>maxBytes</b> retained bytes in the order
+     * they were received.
+     *
+     * @param maxBytes Maximum number of returned bytes.
+     *
+     * @return byte[]
+     */
+    @Override
+    public synchronized byte[] getTail(int maxBytes) {
+        int size = Math.min(this.size(), Math.max(maxBytes, 0));
+        byte[] bytes = new byte[size];
+        if (size == 0) {
+            return bytes;
+        }
+
+        int start = (int) ((this.total - size) % this.ring.length);
+        int first = Math.min(size, this.ring.length - start);
+        System.arraycopy(this.ring, start, bytes, 0, first);
+        System.arraycopy(this.ring, 0, bytes, first, size - first);
+
+        return bytes;
+    }
+
+    /**
+     * Returns the retained bytes decoded with the platform's default charset.
+     *
+     * @return String
+     */
+    public String getText() {
+        return this.getText(Charset.defaultCharset());
+    }
+
+    /**
+     * Returns the retained bytes decoded with the given charset. The first
+     * character may be incomplete when older bytes were dropped.
+     *
+     * @param charset The charset used by the command line tool.
+     *
+     * @return String
+     */
+    public String getText(Charset charset) {
+        return new String(this.getBytes(), charset);
+    }
+
+    /**
+     * Drops all retained bytes, so that this sink can be reused.
+     */
+    public synchronized void reset() {
+        this.total = 0;
+    }
+}
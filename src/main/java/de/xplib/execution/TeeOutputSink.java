@@ -0,0 +1,198 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+
+/**
+ * Output sink that forwards all received bytes to several other sinks, for
+ * example to a file and to an in-memory capture.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class TeeOutputSink implements OutputSink {
+
+    /**
+     * The target sinks.
+     */
+    private final OutputSink[] sinks;
+
+    /**
+     * Constructs a new tee for the given sinks.
+     *
+     * @param sinks The target sinks.
+     */
+    public TeeOutputSink(OutputSink... sinks) {
+        this.sinks = sinks.clone();
+    }
+
+    /**
+     * Forwards the given bytes to all target sinks.
+     *
+     * @param buffer The reused read buffer.
+     * @param offset Offset of the first valid byte in the buffer.
+     * @param length Number of valid bytes in the buffer.
+     *
+     * @throws IOException If one of the target sinks fails.
+     */
+    @Override
+    public void write(byte[] buffer, int offset, int length)
+            throws IOException {
+        for (OutputSink sink : this.sinks) {
+            sink.write(buffer, offset, length);
+        }
+    }
+
+    /**
+     * Returns the tail of the first target sink that retains any bytes.
+     *
+     * @param maxBytes Maximum number of returned bytes.
+     *
+     * @return byte[]
+     */
+    @Override
+    public byte[] getTail(int maxBytes) {
+        for (OutputSink sink : this.sinks) {
+            byte[] tail = sink.getTail(maxBytes);
+            if (tail.length > 0) {
+                return tail;
+            }
+        }
+        return new byte[0];
+    }
+
+    /**
+     * Returns a tee over the execution sinks of all targets, or this tee when
+     * every target is reused across executions.
+     *
+     * @return OutputSink
+     */
+    @Override
+    public OutputSink forExecution() {
+        OutputSink[] targets = new OutputSink[this.sinks.length];
+        boolean reused = true;
+        for (int i = 0; i < targets.length; ++i) {
+            targets[i] = this.sinks[i].forExecution();
+            reused = reused && targets[i] == this.sinks[i];
+        }
+        if (reused) {
+            return this;
+        }
+        return new TeeOutputSink(targets);
+    }
+
+    /**
+     * Releases the resources of all target sinks, even when one of them fails.
+     *
+     * @throws IOException The first failure of a target sink.
+     */
+    @Override
+    public void release() throws IOException {
+        IOException failure = null;
+        for (OutputSink sink : this.sinks) {
+            try {
+                sink.release();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Closes all target sinks, even when one of them fails.
+     *
+     * @throws IOException The first failure of a target sink.
+     */
+    @Override
+    public void close() throws IOException {
+        this.finish(null);
+    }
+
+    /**
+     * Aborts all target sinks, even when one of them fails.
+     *
+     * @param cause The failure that aborted the transfer.
+     *
+     * @throws IOException The first failure of a target sink.
+     */
+    @Override
+    public void abort(IOException cause) throws IOException {
+        this.finish(cause);
+    }
+
+    /**
+     * Closes or aborts all target sinks, even when one of them fails.
+     *
+     * @param cause The failure that aborted the transfer or <b>null</b>.
+     *
+     * @throws IOException The first failure of a target sink.
+     */
+    private void finish(IOException cause) throws IOException {
+        IOException failure = null;
+        for (OutputSink sink : this.sinks) {
+            try {
+                if (cause == null) {
+                    sink.close();
+                } else {
+                    sink.abort(cause);
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
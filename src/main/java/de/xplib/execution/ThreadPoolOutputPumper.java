@@ -0,0 +1,121 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Output pumper that drains every stream with blocking reads in a pooled
+ * thread.
+ *
+ * This is the default strategy used by {@link AbstractExecutable}. Threads of
+ * the shared default pool are reused between executions, so that no thread is
+ * created per process as long as enough idle pump threads exist.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ThreadPoolOutputPumper implements OutputPumper {
+
+    /**
+     * The shared default instance.
+     */
+    private static ThreadPoolOutputPumper defaultInstance = null;
+
+    /**
+     * The executor that runs the single pumps.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new pumper that uses the given executor. The executor must
+     * be able to run two pumps per concurrently running process.
+     *
+     * @param executor The executor that runs the single pumps.
+     */
+    public ThreadPoolOutputPumper(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the shared default pumper that is backed by a cached pool of
+     * daemon threads.
+     *
+     * @return ThreadPoolOutputPumper
+     */
+    public static synchronized ThreadPoolOutputPumper getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new ThreadPoolOutputPumper(
+                Executors.newCachedThreadPool(
+                    new DaemonThreadFactory("execution-pump-")
+                )
+            );
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Starts to transfer all bytes from the given stream into the given sink.
+     *
+     * @param process The running process that owns the stream.
+     * @param stream STDOUT or STDERR of a running process.
+     * @param sink The consumer for the read bytes.
+     *
+     * @return A handle to wait for the end of the transfer.
+     */
+    @Override
+    public OutputPump pump(
+            Process process,
+            InputStream stream,
+            OutputSink sink
+    ) {
+        StreamPump pump = new StreamPump(stream, sink);
+        this.executor.execute(pump);
+        return pump;
+    }
+}
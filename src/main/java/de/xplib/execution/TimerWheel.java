@@ -0,0 +1,306 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel that runs all scheduled tasks on a single thread.
+ *
+ * New timeouts are hashed into one of the wheel's buckets by their deadline,
+ * so that scheduling and cancelling is constant time and no thread or
+ * scheduled future is needed per timeout. Tasks are run with the precision of
+ * one tick and must be short, because they block all other timeouts.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public final class TimerWheel {
+
+    /**
+     * Default duration of a single tick.
+     */
+    private static final long DEFAULT_TICK_MILLIS = 10;
+
+    /**
+     * Default number of buckets, must be a power of two.
+     */
+    private static final int DEFAULT_BUCKETS = 512;
+
+    /**
+     * The shared default instance.
+     */
+    private static TimerWheel defaultInstance = null;
+
+    /**
+     * Duration of a single tick.
+     */
+    private final long tickNanos;
+
+    /**
+     * The wheel's buckets, only accessed by the worker thread.
+     */
+    private final List<List<Timeout>> buckets;
+
+    /**
+     * Mask to map a tick to a bucket.
+     */
+    private final int mask;
+
+    /**
+     * Newly scheduled timeouts, not yet hashed into a bucket.
+     */
+    private final ConcurrentLinkedQueue<Timeout> pending =
+            new ConcurrentLinkedQueue<Timeout>();
+
+    /**
+     * Nano time when the worker thread was started.
+     */
+    private final long startNanos;
+
+    /**
+     * Constructs a new wheel with a tick of 10 milliseconds and 512 buckets.
+     */
+    public TimerWheel() {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_BUCKETS);
+    }
+
+    /**
+     * Constructs a new wheel and starts its worker thread.
+     *
+     * @param tick Duration of a single tick.
+     * @param unit Time unit of the tick duration.
+     * @param buckets Number of buckets, rounded up to a power of two.
+     */
+    public TimerWheel(long tick, TimeUnit unit, int buckets) {
+        int size = Integer.highestOneBit(Math.max(1, buckets - 1)) << 1;
+
+        this.tickNanos = Math.max(1, unit.toNanos(tick));
+        this.mask      = size - 1;
+        this.buckets   = new ArrayList<List<Timeout>>(size);
+        for (int i = 0; i < size; ++i) {
+            this.buckets.add(new ArrayList<Timeout>());
+        }
+        this.startNanos = System.nanoTime();
+
+        Thread worker = new Thread(new Worker(), "execution-timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Returns the wheel shared by all executables.
+     *
+     * @return TimerWheel
+     */
+    public static synchronized TimerWheel getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new TimerWheel();
+        }
+        return defaultInstance;
+    }
+
+    /**
+     * Schedules the given task to run once after the given delay.
+     *
+     * @param task The task to run.
+     * @param delay The delay.
+     * @param unit Time unit of the delay.
+     *
+     * @return A handle to cancel the task.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(
+            task,
+            System.nanoTime() + unit.toNanos(Math.max(0, delay))
+        );
+        this.pending.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public static final class Timeout {
+
+        /**
+         * The task to run.
+         */
+        private final Runnable task;
+
+        /**
+         * Nano time when the task should run.
+         */
+        private final long deadline;
+
+        /**
+         * Remaining full wheel rotations before the task is due.
+         */
+        private long rounds = 0;
+
+        /**
+         * Was this timeout cancelled?
+         */
+        private volatile boolean cancelled = false;
+
+        /**
+         * Constructs a new timeout.
+         *
+         * @param task The task to run.
+         * @param deadline Nano time when the task should run.
+         */
+        Timeout(Runnable task, long deadline) {
+            this.task     = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Prevents the task from running, if it has not run yet.
+         */
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+        /**
+         * Tests if this timeout was cancelled.
+         *
+         * @return boolean
+         */
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+    }
+
+    /**
+     * The worker that advances the wheel once per tick.
+     */
+    private final class Worker implements Runnable {
+
+        /**
+         * The current tick.
+         */
+        private long tick = 0;
+
+        /**
+         * Advances the wheel until the virtual machine terminates.
+         */
+        @Override
+        public void run() {
+            TimerWheel wheel = TimerWheel.this;
+            while (true) {
+                long deadline = wheel.startNanos
+                        + (this.tick + 1) * wheel.tickNanos;
+                long wait;
+                while ((wait = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, wait);
+                }
+
+                this.transferPending();
+                this.expire(wheel.buckets.get((int) (this.tick & wheel.mask)));
+                ++this.tick;
+            }
+        }
+
+        /**
+         * Hashes all newly scheduled timeouts into their buckets.
+         */
+        private void transferPending() {
+            TimerWheel wheel = TimerWheel.this;
+
+            Timeout timeout;
+            while ((timeout = wheel.pending.poll()) != null) {
+                if (timeout.cancelled) {
+                    continue;
+                }
+                long due = Math.max(
+                    (timeout.deadline - wheel.startNanos) / wheel.tickNanos,
+                    this.tick
+                );
+                timeout.rounds = (due - this.tick) / wheel.buckets.size();
+                wheel.buckets.get((int) (due & wheel.mask)).add(timeout);
+            }
+        }
+
+        /**
+         * Runs all due timeouts of the given bucket and drops cancelled ones.
+         *
+         * @param bucket The bucket of the current tick.
+         */
+        private void expire(List<Timeout> bucket) {
+            for (int i = bucket.size() - 1; i >= 0; --i) {
+                Timeout timeout = bucket.get(i);
+                if (!timeout.cancelled && timeout.rounds > 0) {
+                    --timeout.rounds;
+                    continue;
+                }
+
+                bucket.set(i, bucket.get(bucket.size() - 1));
+                bucket.remove(bucket.size() - 1);
+
+                if (!timeout.cancelled) {
+                    this.run(timeout);
+                }
+            }
+        }
+
+        /**
+         * Runs the task of the given timeout and ignores all failures.
+         *
+         * @param timeout The due timeout.
+         */
+        private void run(Timeout timeout) {
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                // A failing task must not stop the wheel
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache for successful executable existence checks, shared by all
+ * {@link AbstractExecutable} instances that use the same cache.
+ *
+ * Only positive results are cached, so that a missing executable is reported
+ * as soon as it appears. Entries expire after the configured time to live and
+ * can be dropped explicitly when binaries were redeployed.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class ValidationCache {
+
+    /**
+     * Default time to live of a cached validation.
+     */
+    private static final long DEFAULT_TTL_SECONDS = 10;
+
+    /**
+     * Default maximum number of cached validations.
+     */
+    private static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    /**
+     * The shared default instance.
+     */
+    private static final ValidationCache DEFAULT_INSTANCE =
+            new ValidationCache();
+
+    /**
+     * Expiry nano times of the cached validations, by absolute path.
+     */
+    private final ConcurrentHashMap<String, Long> entries =
+            new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Time to live of a cached validation, <b>0</b> disables caching.
+     */
+    private volatile long ttlNanos =
+            TimeUnit.SECONDS.toNanos(DEFAULT_TTL_SECONDS);
+
+    /**
+     * Maximum number of cached validations.
+     */
+    private volatile int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    /**
+     * Returns the cache shared by all executables that were not configured
+     * otherwise.
+     *
+     * @return ValidationCache
+     */
+    public static ValidationCache getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Sets the time to live of a cached validation. A value of <b>0</b>
+     * disables caching.
+     *
+     * @param ttl The time to live.
+     * @param unit Time unit of the time to live.
+     *
+     * @return The entire cache.
+     */
+    public ValidationCache setTimeToLive(long ttl, TimeUnit unit) {
+        this.ttlNanos = unit.toNanos(Math.max(0, ttl));
+        this.entries.clear();
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of cached validations.
+     *
+     * @param maximumSize Maximum number of cached validations.
+     *
+     * @return The entire cache.
+     */
+    public ValidationCache setMaximumSize(int maximumSize) {
+        this.maximumSize = Math.max(1, maximumSize);
+        return this;
+    }
+
+    /**
+     * Tests if the given executable exists, using a cached result when one is
+     * available.
+     *
+     * @param executable Name of the configured executable.
+     *
+     * @return boolean
+     */
+    public boolean exists(String executable) {
+        File file = new File(executable);
+        if (this.ttlNanos == 0) {
+            return file.exists();
+        }
+
+        String path = file.getAbsolutePath();
+        long now = System.nanoTime();
+
+        Long expiry = this.entries.get(path);
+        if (expiry != null && expiry - now > 0) {
+            return true;
+        }
+        if (!file.exists()) {
+            this.entries.remove(path);
+            return false;
+        }
+
+        if (expiry == null && this.entries.size() >= this.maximumSize) {
+            this.evict(now);
+        }
+        this.entries.put(path, now + this.ttlNanos);
+        return true;
+    }
+
+    /**
+     * Drops the cached validation of the given executable, so that the next
+     * execution checks the file system again.
+     *
+     * @param executable Name of the configured executable.
+     */
+    public void revalidate(String executable) {
+        this.entries.remove(new File(executable).getAbsolutePath());
+    }
+
+    /**
+     * Drops all cached validations.
+     */
+    public void revalidateAll() {
+        this.entries.clear();
+    }
+
+    /**
+     * Removes all expired entries and, when that is not enough, arbitrary
+     * entries until there is space for a new entry.
+     *
+     * @param now The current nano time.
+     */
+    private void evict(long now) {
+        Iterator<Map.Entry<String, Long>> it =
+                this.entries.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue() - now <= 0) {
+                it.remove();
+            }
+        }
+
+        it = this.entries.entrySet().iterator();
+        while (it.hasNext() && this.entries.size() >= this.maximumSize) {
+            it.next();
+            it.remove();
+        }
+    }
+}
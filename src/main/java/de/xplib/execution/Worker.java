@@ -0,0 +1,245 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single long-lived worker process that speaks the protocol described in
+ * {@link WorkerPool}.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+final class Worker implements PooledProcess {
+
+    /**
+     * Milliseconds a worker gets to exit on its own once STDIN was closed.
+     */
+    private static final long EXIT_GRACE_MILLIS = 2000;
+
+    /**
+     * The native worker process.
+     */
+    private final Process process;
+
+    /**
+     * Request stream, connected to STDIN of the worker.
+     */
+    private final DataOutputStream requests;
+
+    /**
+     * Response stream, connected to STDOUT of the worker.
+     */
+    private final DataInputStream responses;
+
+    /**
+     * Number of requests handled by this worker.
+     */
+    private int requestCount = 0;
+
+    /**
+     * Did the last request fail on protocol level?
+     */
+    private volatile boolean broken = false;
+
+    /**
+     * Was this worker killed? Unlike <b>broken</b>, this flag is never reset by
+     * a request that completes after the kill.
+     */
+    private volatile boolean killed = false;
+
+    /**
+     * Starts a new worker process.
+     *
+     * @param command The worker command line.
+     *
+     * @throws IOException If the process cannot be started.
+     */
+    Worker(List<String> command) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        this.process   = ProcessLauncher.start(builder);
+        this.requests  = new DataOutputStream(
+            new BufferedOutputStream(this.process.getOutputStream())
+        );
+        this.responses = new DataInputStream(
+            new BufferedInputStream(this.process.getInputStream())
+        );
+    }
+
+    /**
+     * Returns the number of requests handled by this worker.
+     *
+     * @return int
+     */
+    @Override
+    public int getRequestCount() {
+        return this.requestCount;
+    }
+
+    /**
+     * Returns <b>true</b> when this worker can handle further requests.
+     *
+     * @return boolean
+     */
+    @Override
+    public boolean isUsable() {
+        return !this.broken && !this.killed && this.process.isAlive();
+    }
+
+    /**
+     * Sends the given arguments to the worker and writes the response output
+     * into the given sinks.
+     *
+     * @param arguments The request arguments.
+     * @param stdout The sink that receives the response STDOUT.
+     * @param stderr The sink that receives the response STDERR.
+     *
+     * @return The exit code of the request.
+     * @throws IOException If the worker breaks the protocol or died.
+     */
+    @Override
+    public int call(
+            List<String> arguments,
+            OutputSink stdout,
+            OutputSink stderr
+    ) throws IOException {
+        this.broken = true;
+        ++this.requestCount;
+
+        this.requests.writeInt(arguments.size());
+        for (String argument : arguments) {
+            byte[] bytes = argument.getBytes(StandardCharsets.UTF_8);
+            this.requests.writeInt(bytes.length);
+            this.requests.write(bytes);
+        }
+        this.requests.flush();
+
+        int exitCode = this.responses.readInt();
+        this.readFrame(stdout);
+        this.readFrame(stderr);
+
+        this.broken = false;
+        return exitCode;
+    }
+
+    /**
+     * Terminates the worker process by closing its STDIN, and kills it when
+     * it does not exit on its own within a short grace period, without
+     * blocking the caller. A worker that broke the protocol is killed
+     * immediately, because it may still wait for the rest of a request.
+     */
+    @Override
+    public void destroy() {
+        if (this.broken || this.killed) {
+            this.kill();
+            return;
+        }
+        try {
+            this.requests.close();
+        } catch (IOException e) {
+            // Ignore, the worker has already exited
+        }
+        TimerWheel.getDefault().schedule(
+            () -> {
+                if (this.process.isAlive()) {
+                    this.kill();
+                }
+            },
+            EXIT_GRACE_MILLIS,
+            TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Kills the worker process and all processes started by it immediately.
+     */
+    @Override
+    public void kill() {
+        this.killed = true;
+        ProcessTreeKiller.terminate(
+            this.process,
+            TimerWheel.getDefault(),
+            0
+        );
+    }
+
+    /**
+     * Reads a length-prefixed output frame into the given sink.
+     *
+     * @param sink The sink that receives the frame content.
+     *
+     * @throws IOException If the frame is invalid or incomplete.
+     */
+    private void readFrame(OutputSink sink) throws IOException {
+        int remaining = this.responses.readInt();
+        if (remaining < 0) {
+            throw new IOException("Invalid worker frame length " + remaining);
+        }
+
+        byte[] buffer = BufferPool.acquire();
+        try {
+            while (remaining > 0) {
+                int length = Math.min(remaining, buffer.length);
+                this.responses.readFully(buffer, 0, length);
+                sink.write(buffer, 0, length);
+                remaining -= length;
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        sink.close();
+    }
+}
@@ -0,0 +1,407 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executable that sends its arguments as a single request to a long-lived
+ * worker process of a {@link WorkerPool}, instead of starting a new process.
+ *
+ * Exit codes, output sinks, {@link #exitCode()} and the thrown exceptions
+ * behave like those of a {@link DefaultExecutable}. STDIN sources and
+ * redirects are not supported, because all requests share the pipes of the
+ * worker process, the corresponding setters throw a
+ * {@link ValidationException}.
+ *
+ * <code>
+ * WorkerPool pool = new WorkerPool("php", "worker.php").setMaxRequests(500);
+ *
+ * Executable exec = new WorkerExecutable(pool);
+ * exec.addArgument("--format=xml").addRegularExitCode(0);
+ * exec.exec();
+ * </code>
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class WorkerExecutable implements Executable {
+
+    /**
+     * The pool that handles the requests.
+     */
+    private final WorkerPool pool;
+
+    /**
+     * The request arguments.
+     */
+    private final List<String> arguments = new ArrayList<String>();
+
+    /**
+     * Classifies the returned exit codes.
+     */
+    private volatile ExitCodeMatcher exitCodes = ExitCodeMatcher.none();
+
+    /**
+     * Sink for the response STDOUT or <b>null</b> when the output should be
+     * discarded.
+     */
+    private OutputSink stdoutSink = null;
+
+    /**
+     * Sink for the response STDERR or <b>null</b> when the tail of the output
+     * should be captured.
+     */
+    private OutputSink stderrSink = null;
+
+    /**
+     * Timeout of a single request or <b>0</b> to wait forever.
+     */
+    private volatile long timeoutNanos = 0;
+
+    /**
+     * Result of the last completed request.
+     */
+    private volatile ExecutionResult result = null;
+
+    /**
+     * Registry that receives the metrics of this executable or <b>null</b>.
+     */
+    private ExecutionMetrics metrics = ExecutionMetrics.getDefault();
+
+    /**
+     * Constructs a new executable for the given worker pool.
+     *
+     * @param pool The pool that handles the requests.
+     */
+    public WorkerExecutable(WorkerPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sends the arguments to an idle worker and waits for the response.
+     *
+     * @throws ExecutionException When the worker fails or returns an invalid
+     *         exit code.
+     */
+    @Override
+    public void exec() throws ExecutionException {
+        OutputSink stdout = new DiscardOutputSink();
+        if (this.stdoutSink != null) {
+            stdout = this.stdoutSink.forExecution();
+        }
+        OutputSink stderr = new TailOutputSink();
+        if (this.stderrSink != null) {
+            stderr = this.stderrSink.forExecution();
+        }
+
+        CommandMetrics command = null;
+        if (this.metrics != null) {
+            command = this.metrics.command(this.getCommandLine());
+            command.started();
+        }
+
+        long startNanos = System.nanoTime();
+        boolean failed = true;
+        int code;
+        try {
+            code = this.pool.call(
+                new ArrayList<String>(this.arguments),
+                stdout,
+                stderr,
+                this.timeoutNanos
+            );
+            failed = false;
+        } catch (InterruptedException ex) {
+            throw new Error(ex);
+        } finally {
+            if (command != null) {
+                command.finished(failed);
+            }
+        }
+        long endNanos = System.nanoTime();
+
+        if (command != null) {
+            command.requested(startNanos, endNanos, code);
+        }
+
+        ExecutionResult last = new ExecutionResult(
+            this.getCommandLine(),
+            code,
+            this.exitCodes.outcome(code),
+            false,
+            stdout,
+            stderr,
+            startNanos,
+            endNanos,
+            endNanos
+        );
+        this.result = last;
+
+        if (last.getOutcome() == ExitCodeOutcome.FAILURE) {
+            throw new ExecutionFailedException(last);
+        }
+    }
+
+    /**
+     * Kills the worker and fails with an {@link ExecutionTimeoutException},
+     * when a request, including the wait for an idle worker, takes longer
+     * than the given timeout. A timeout of <b>0</b> disables this limit.
+     *
+     * @param timeout The request timeout.
+     * @param unit Time unit of the timeout.
+     *
+     * @return The entire executable.
+     */
+    public WorkerExecutable setTimeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(Math.max(0, timeout));
+        return this;
+    }
+
+    /**
+     * Sets the registry that receives the request times and the exit codes
+     * of this executable. Pass <b>null</b> to disable metrics.
+     *
+     * @param metrics The metrics registry.
+     *
+     * @return The entire executable.
+     */
+    public WorkerExecutable setMetrics(ExecutionMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Returns the result of the last completed request or <b>null</b>.
+     *
+     * @return ExecutionResult
+     */
+    public ExecutionResult getResult() {
+        return this.result;
+    }
+
+    /**
+     * Returns a copy of the request arguments.
+     *
+     * @return List<String>
+     */
+    List<String> getArguments() {
+        return new ArrayList<String>(this.arguments);
+    }
+
+    /**
+     * Returns a list with integer values representing valid exit codes.
+     *
+     * @return List<Integer>
+     */
+    @Override
+    public List<Integer> getValidExitCodes() {
+        return this.exitCodes.toList();
+    }
+
+    /**
+     * Returns the matcher that classifies the returned exit codes.
+     *
+     * @return The exit code matcher.
+     */
+    @Override
+    public ExitCodeMatcher getExitCodeMatcher() {
+        return this.exitCodes;
+    }
+
+    /**
+     * Replaces the matcher that classifies the returned exit codes.
+     *
+     * @param matcher The new exit code matcher.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setExitCodeMatcher(ExitCodeMatcher matcher) {
+        this.exitCodes = matcher;
+        return this;
+    }
+
+    /**
+     * Returns the worker command line followed by the request arguments.
+     *
+     * @return List<String>
+     */
+    @Override
+    public List<String> getCommandLine() {
+        List<String> commandLine = new ArrayList<String>(
+            this.pool.getCommand()
+        );
+        commandLine.addAll(this.arguments);
+        return commandLine;
+    }
+
+    /**
+     * Adds the given string to the request arguments.
+     *
+     * @param argument Simple string argument.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable addArgument(String argument) {
+        this.arguments.add(argument);
+        return this;
+    }
+
+    /**
+     * Adds the given argument object to the request arguments.
+     *
+     * @param argument An argument object.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable addArgument(Argument argument) {
+        return argument.toArgument(this);
+    }
+
+    /**
+     * Adds a regular exit code.
+     *
+     * @param regularExitCode A regular/none error exit code.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable addRegularExitCode(Integer regularExitCode) {
+        this.exitCodes = this.exitCodes.with(regularExitCode);
+        return this;
+    }
+
+    /**
+     * Not supported, all requests share the STDIN pipe of the worker.
+     *
+     * @param source The STDIN data.
+     *
+     * @return Never.
+     * @throws ValidationException Always.
+     */
+    @Override
+    public Executable setStdin(InputSource source) {
+        throw new ValidationException(
+            "Worker requests cannot read from STDIN."
+        );
+    }
+
+    /**
+     * Sets the sink that receives the response STDOUT.
+     *
+     * @param sink The consumer for STDOUT.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStdout(OutputSink sink) {
+        this.stdoutSink = sink;
+        return this;
+    }
+
+    /**
+     * Sets the sink that receives the response STDERR.
+     *
+     * @param sink The consumer for STDERR.
+     *
+     * @return The entire executable.
+     */
+    @Override
+    public Executable setStderr(OutputSink sink) {
+        this.stderrSink = sink;
+        return this;
+    }
+
+    /**
+     * Not supported, all requests share the STDOUT pipe of the worker.
+     *
+     * @param redirect The STDOUT destination.
+     *
+     * @return Never.
+     * @throws ValidationException Always.
+     */
+    @Override
+    public Executable setStdoutRedirect(ProcessBuilder.Redirect redirect) {
+        throw new ValidationException(
+            "Worker responses cannot be redirected."
+        );
+    }
+
+    /**
+     * Not supported, all requests share the STDOUT pipe of the worker.
+     *
+     * @param redirect The STDERR destination.
+     *
+     * @return Never.
+     * @throws ValidationException Always.
+     */
+    @Override
+    public Executable setStderrRedirect(ProcessBuilder.Redirect redirect) {
+        throw new ValidationException(
+            "Worker responses cannot be redirected."
+        );
+    }
+
+    /**
+     * Returns the exit code of the last request.
+     *
+     * @return The exit code returned by the worker.
+     * @throws ExecutionException When no request has completed yet.
+     */
+    @Override
+    public int exitCode() {
+        ExecutionResult last = this.result;
+        if (last == null) {
+            throw new ExecutionException("Process still running...");
+        }
+        return last.getExitCode();
+    }
+}
@@ -0,0 +1,410 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of long-lived worker processes that amortize the startup costs of a
+ * command line tool over many requests.
+ *
+ * A worker reads requests from STDIN and writes responses to STDOUT, all
+ * integers are 32 bit big endian values:
+ *
+ * <pre>
+ * request:  count, count * (length, UTF-8 argument bytes)
+ * response: exit code, length, STDOUT bytes, length, STDERR bytes
+ * </pre>
+ *
+ * A worker must exit when its STDIN is closed. Requests are dispatched to
+ * idle workers, new workers are started on demand up to the configured
+ * maximum. A worker is replaced after a configurable number of requests or
+ * when it breaks the protocol. Use a {@link WorkerExecutable} to run single
+ * requests with the usual {@link Executable} semantics.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+public class WorkerPool implements AutoCloseable {
+
+    /**
+     * The worker command line.
+     */
+    private final List<String> command;
+
+    /**
+     * Guards the pool state.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when a worker becomes idle or a worker slot becomes free.
+     */
+    private final Condition available = this.lock.newCondition();
+
+    /**
+     * Idle workers, the most recently used worker first.
+     */
+    private final Deque<PooledProcess> idle = new ArrayDeque<PooledProcess>();
+
+    /**
+     * Number of started and not yet destroyed workers.
+     */
+    private int workerCount = 0;
+
+    /**
+     * Maximum number of concurrently running workers.
+     */
+    private int maxWorkers = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of requests after which a worker will be replaced, <b>0</b>
+     * means never.
+     */
+    private int maxRequests = 0;
+
+    /**
+     * Was this pool closed?
+     */
+    private boolean closed = false;
+
+    /**
+     * Constructs a new pool for the given worker command line.
+     *
+     * @param command The worker command line.
+     */
+    public WorkerPool(String... command) {
+        this(Arrays.asList(command));
+    }
+
+    /**
+     * Constructs a new pool for the given worker command line.
+     *
+     * @param command The worker command line.
+     */
+    public WorkerPool(List<String> command) {
+        this.command = Collections.unmodifiableList(
+            new ArrayList<String>(command)
+        );
+    }
+
+    /**
+     * Returns the worker command line.
+     *
+     * @return List<String>
+     */
+    public List<String> getCommand() {
+        return this.command;
+    }
+
+    /**
+     * Sets the maximum number of concurrently running workers.
+     *
+     * @param maxWorkers Maximum number of workers.
+     *
+     * @return The entire pool.
+     */
+    public WorkerPool setMaxWorkers(int maxWorkers) {
+        this.lock.lock();
+        try {
+            this.maxWorkers = Math.max(1, maxWorkers);
+            this.available.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the number of requests after which a worker will be replaced by a
+     * fresh process. A value of <b>0</b> disables recycling.
+     *
+     * @param maxRequests Number of requests per worker.
+     *
+     * @return The entire pool.
+     */
+    public WorkerPool setMaxRequests(int maxRequests) {
+        this.lock.lock();
+        try {
+            this.maxRequests = Math.max(0, maxRequests);
+        } finally {
+            this.lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of running workers.
+     *
+     * @return int
+     */
+    public int getWorkerCount() {
+        this.lock.lock();
+        try {
+            return this.workerCount;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Sends a single request to an idle worker and blocks until the response
+     * was received.
+     *
+     * The timeout covers the wait for an idle worker and the request itself.
+     * A worker that exceeds the timeout is killed and replaced.
+     *
+     * @param arguments The request arguments.
+     * @param stdout The sink that receives the response STDOUT.
+     * @param stderr The sink that receives the response STDERR.
+     * @param timeoutNanos The timeout or <b>0</b> to wait forever.
+     *
+     * @return The exit code of the request.
+     * @throws ExecutionException If no worker can be started or the worker
+     *         breaks the protocol.
+     * @throws ExecutionTimeoutException If the request exceeds the timeout.
+     * @throws InterruptedException If the current thread was interrupted
+     *         while waiting for an idle worker.
+     */
+    int call(
+            List<String> arguments,
+            OutputSink stdout,
+            OutputSink stderr,
+            long timeoutNanos
+    ) throws InterruptedException {
+        long startNanos = System.nanoTime();
+
+        PooledProcess worker = this.acquire(startNanos, timeoutNanos);
+        if (worker == null) {
+            throw this.timedOut(startNanos);
+        }
+
+        AtomicBoolean expired = new AtomicBoolean(false);
+        TimerWheel.Timeout timer = null;
+        if (timeoutNanos > 0) {
+            long remaining = timeoutNanos - (System.nanoTime() - startNanos);
+            timer = TimerWheel.getDefault().schedule(
+                () -> {
+                    expired.set(true);
+                    worker.kill();
+                },
+                Math.max(remaining, 0),
+                TimeUnit.NANOSECONDS
+            );
+        }
+
+        try {
+            int code = worker.call(arguments, stdout, stderr);
+            if (expired.get()) {
+                throw this.timedOut(startNanos);
+            }
+            return code;
+        } catch (IOException e) {
+            if (expired.get()) {
+                throw this.timedOut(startNanos);
+            }
+            throw new ExecutionException(e);
+        } finally {
+            if (timer != null) {
+                timer.cancel();
+            }
+            this.release(worker);
+        }
+    }
+
+    /**
+     * Terminates all idle workers and all busy workers once they have
+     * finished their current request.
+     */
+    @Override
+    public void close() {
+        List<PooledProcess> workers;
+
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.workerCount -= this.idle.size();
+
+            workers = new ArrayList<PooledProcess>(this.idle);
+            this.idle.clear();
+            this.available.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+
+        for (PooledProcess worker : workers) {
+            worker.destroy();
+        }
+    }
+
+    /**
+     * Creates the exception for a request that exceeded its timeout.
+     *
+     * @param startNanos Start time of the request.
+     *
+     * @return ExecutionTimeoutException
+     */
+    private ExecutionTimeoutException timedOut(long startNanos) {
+        return new ExecutionTimeoutException(
+            this.command.get(0),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)
+        );
+    }
+
+    /**
+     * Returns an idle worker, starts a new one or waits until one becomes
+     * available.
+     *
+     * @param startNanos Start time of the request.
+     * @param timeoutNanos The timeout or <b>0</b> to wait forever.
+     *
+     * @return The worker or <b>null</b> when the timeout has elapsed.
+     * @throws InterruptedException If the current thread was interrupted.
+     */
+    private PooledProcess acquire(long startNanos, long timeoutNanos)
+            throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            while (true) {
+                if (this.closed) {
+                    throw new ExecutionException("Worker pool was closed.");
+                }
+                PooledProcess worker = this.idle.pollFirst();
+                if (worker != null) {
+                    if (worker.isUsable()) {
+                        return worker;
+                    }
+                    --this.workerCount;
+                    worker.destroy();
+                    continue;
+                }
+                if (this.workerCount < this.maxWorkers) {
+                    ++this.workerCount;
+                    break;
+                }
+                if (timeoutNanos <= 0) {
+                    this.available.await();
+                    continue;
+                }
+                long remaining =
+                    timeoutNanos - (System.nanoTime() - startNanos);
+                if (remaining <= 0) {
+                    return null;
+                }
+                this.available.awaitNanos(remaining);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        try {
+            return this.start();
+        } catch (IOException e) {
+            this.discard();
+            throw new ExecutionException(e);
+        }
+    }
+
+    /**
+     * Starts a new worker process.
+     *
+     * @return PooledProcess
+     * @throws IOException If the process cannot be started.
+     */
+    PooledProcess start() throws IOException {
+        return new Worker(this.command);
+    }
+
+    /**
+     * Returns the given worker into the pool, or replaces it when it is
+     * broken or has handled too many requests.
+     *
+     * @param worker The previously acquired worker.
+     */
+    private void release(PooledProcess worker) {
+        this.lock.lock();
+        try {
+            boolean retire = this.closed
+                || !worker.isUsable()
+                || (this.maxRequests > 0
+                    && worker.getRequestCount() >= this.maxRequests);
+
+            if (!retire) {
+                this.idle.addFirst(worker);
+                this.available.signal();
+                return;
+            }
+        } finally {
+            this.lock.unlock();
+        }
+
+        worker.destroy();
+        this.discard();
+    }
+
+    /**
+     * Frees the slot of a destroyed or never started worker.
+     */
+    private void discard() {
+        this.lock.lock();
+        try {
+            --this.workerCount;
+            this.available.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void testLimitGrowsForFastSuccessfulSamples() {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(1, 4, 100);
+
+        for (int i = 0; i < 100; ++i) {
+            limiter.onSample("/bin/true", 1000, true, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    public void testLimitShrinksForSlowSamples() {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(1, 20, 100);
+
+        limiter.onSample("/bin/true", 1000, true, 20);
+        limiter.onSample("/bin/true", 5000, true, 20);
+
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitShrinksForFailuresButNotBelowMinimum() {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(2, 3, 100);
+
+        for (int i = 0; i < 20; ++i) {
+            limiter.onSample("/bin/false", 1000, false, 3);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitDoesNotGrowWhenItIsNotUsed() {
+        AdaptiveConcurrencyLimiter limiter =
+                new AdaptiveConcurrencyLimiter(1, 10, 100);
+
+        for (int i = 0; i < 100; ++i) {
+            limiter.onSample("/bin/true", 1000, true, 1);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchExecutorTest {
+
+    @Test(timeout=10000)
+    public void testExecuteSplitsItemsByItemLimit() {
+        BatchResult result = newExecutor().setMaxItems(10).execute(items(95));
+
+        assertEquals(10, result.getBatches().size());
+        assertEquals(5, result.getBatches().get(9).getItems().size());
+        assertTrue(result.isSuccessful());
+    }
+
+    @Test(timeout=10000)
+    public void testExecuteSplitsItemsByArgumentBytes() {
+        BatchResult result = newExecutor()
+            .setMaxArgumentBytes(200)
+            .execute(items(20));
+
+        List<String> all = new ArrayList<String>();
+        for (Batch batch : result.getBatches()) {
+            assertTrue(batch.getItems().size() < 20);
+            all.addAll(batch.getItems());
+        }
+        assertTrue(result.getBatches().size() > 1);
+        assertEquals(items(20), all);
+    }
+
+    @Test(timeout=10000)
+    public void testExecutePacksAllItemsIntoOneInvocationBySystemLimit() {
+        BatchResult result = newExecutor().execute(items(1000));
+
+        assertEquals(1, result.getBatches().size());
+        assertTrue(BatchExecutor.getSystemArgMax() > 4096);
+    }
+
+    @Test(timeout=10000)
+    public void testExecuteAttributesFailuresToBatchItems() {
+        List<String> items = items(30);
+        items.set(15, "bad");
+
+        BatchResult result = newExecutor()
+            .setMaxItems(10)
+            .setConcurrency(2)
+            .execute(items);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(1, result.getFailedBatches().size());
+        assertEquals(items.subList(10, 20), result.getFailedItems());
+        assertEquals(
+            1,
+            result.getFailedBatches().get(0).getResult().getExitCode()
+        );
+    }
+
+    @Test(timeout=10000)
+    public void testExecuteMergesOutputAndOutcomeInInputOrder() {
+        List<String> items = items(30);
+        items.set(25, "warn");
+
+        BatchResult result = new BatchExecutor(() -> {
+            AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+            exec.addArgument("-c")
+                .addArgument(
+                    "for i in \"$@\"; do echo \"$i\"; echo \"e$i\" >&2; "
+                    + "[ \"$i\" = warn ] && exit 2; done; exit 0"
+                )
+                .addArgument("sh");
+            exec.setExitCodeMatcher(
+                ExitCodeMatcher.of(0).withOutcome(2, ExitCodeOutcome.WARNING)
+            );
+            exec.setStdout(new MemoryOutputSink());
+            return exec;
+        }).setMaxItems(3).setConcurrency(4).execute(items);
+
+        StringBuilder stdout = new StringBuilder();
+        StringBuilder stderr = new StringBuilder();
+        for (String item : items) {
+            stdout.append(item).append('\n');
+            stderr.append('e').append(item).append('\n');
+            if ("warn".equals(item)) {
+                break;
+            }
+        }
+        for (String item : items.subList(27, 30)) {
+            stdout.append(item).append('\n');
+            stderr.append('e').append(item).append('\n');
+        }
+
+        assertEquals(ExitCodeOutcome.WARNING, result.getOutcome());
+        assertEquals(stdout.toString(), result.getStdoutText());
+        assertEquals(stderr.toString(), result.getStderrText());
+    }
+
+    @Test(timeout=10000)
+    public void testExecuteReportsFailureAsMergedOutcome() {
+        List<String> items = items(30);
+        items.set(15, "bad");
+
+        BatchResult result = newExecutor().setMaxItems(10).execute(items);
+
+        assertEquals(ExitCodeOutcome.FAILURE, result.getOutcome());
+    }
+
+    private static BatchExecutor newExecutor() {
+        return new BatchExecutor(() -> {
+            AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+            exec.addArgument("-c")
+                .addArgument(
+                    "for i in \"$@\"; do [ \"$i\" = bad ] && exit 1; done; "
+                    + "exit 0"
+                )
+                .addArgument("sh")
+                .addRegularExitCode(0);
+            return exec;
+        });
+    }
+
+    private static List<String> items(int count) {
+        String[] items = new String[count];
+        for (int i = 0; i < count; ++i) {
+            items[i] = "item-" + i;
+        }
+        return new ArrayList<String>(Arrays.asList(items));
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CommandTemplateTest {
+
+    @Test
+    public void testBindReplacesAllSlots() {
+        CommandTemplate template = CommandTemplate.compile(
+            new DefaultExecutable("/usr/bin/phpmd")
+                .addArgument(new Placeholder("source"))
+                .addArgument("xml")
+                .addArgument(new Placeholder("rules"))
+                .addArgument(new Placeholder("source"))
+        );
+
+        assertEquals(Arrays.asList("source", "rules"), template.getSlotNames());
+        assertEquals(
+            Arrays.asList("/usr/bin/phpmd", "src", "xml", "codesize", "src"),
+            template.bind("src", "codesize")
+        );
+    }
+
+    @Test
+    public void testBindByName() {
+        CommandTemplate template = CommandTemplate.compile(
+            new DefaultExecutable("/bin/echo")
+                .addArgument(new Placeholder("text"))
+        );
+
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("text", "hello");
+
+        assertEquals(
+            Arrays.asList("/bin/echo", "hello"),
+            template.bind(values)
+        );
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testBindThrowsExceptionForMissingValues() {
+        CommandTemplate template = CommandTemplate.compile(
+            new DefaultExecutable("/bin/echo")
+                .addArgument(new Placeholder("text"))
+        );
+        template.bind();
+    }
+
+    @Test
+    public void testNewExecutableCopiesValidExitCodes() {
+        CommandTemplate template = CommandTemplate.compile(
+            new DefaultExecutable("/bin/sh")
+                .addArgument("-c")
+                .addArgument(new Placeholder("script"))
+                .addRegularExitCode(0)
+                .addRegularExitCode(3)
+        );
+
+        Executable exec = template.newExecutable("exit 3");
+        exec.exec();
+
+        assertEquals(3, exec.exitCode());
+    }
+
+    @Test
+    public void testCopiedExecutableDoesNotShareCommandLine() {
+        Executable original = new DefaultExecutable("/bin/echo");
+        Executable copy = new DefaultExecutable(original);
+
+        copy.addArgument("hello");
+
+        assertEquals(1, original.getCommandLine().size());
+    }
+}
@@ -42,12 +42,17 @@
 
 package de.xplib.execution;
 
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
 public class DefaultExecutableTest {
 
     public DefaultExecutableTest() {
@@ -83,4 +88,163 @@ public class DefaultExecutableTest {
         Executable exec = new DefaultExecutable("");
         exec.exec();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExecDrainsOutputLargerThanThePipeBuffer() {
+        MemoryOutputSink stdout = new MemoryOutputSink();
+        MemoryOutputSink stderr = new MemoryOutputSink();
+
+        Executable exec = new DefaultExecutable("/bin/sh")
+            .addArgument("-c")
+            .addArgument(
+                "head -c 200000 /dev/zero; head -c 100000 /dev/zero >&2"
+            )
+            .addRegularExitCode(0)
+            .setStdout(stdout)
+            .setStderr(stderr);
+        exec.exec();
+
+        assertEquals(200000, stdout.size());
+        assertEquals(100000, stderr.size());
+    }
+
+    @Test
+    public void testExecUsesCapturedStderrAsErrorMessage() {
+        Executable exec = new DefaultExecutable("/bin/sh")
+            .addArgument("-c")
+            .addArgument("echo broken >&2; exit 3")
+            .addRegularExitCode(0);
+        try {
+            exec.exec();
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertEquals("broken", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testExecDrainsOutputWithReactorPumper() {
+        MemoryOutputSink stdout = new MemoryOutputSink();
+
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.setOutputPumper(new ReactorOutputPumper(1));
+        exec.addArgument("-c")
+            .addArgument("head -c 200000 /dev/zero; echo done >&2")
+            .addRegularExitCode(0)
+            .setStdout(stdout);
+        exec.exec();
+
+        assertEquals(200000, stdout.size());
+    }
+
+    @Test(timeout=10000)
+    public void testExecReportsFailingSinkAndKeepsDraining() {
+        Executable exec = new DefaultExecutable("/bin/sh")
+            .addArgument("-c")
+            .addArgument("head -c 200000 /dev/zero")
+            .addRegularExitCode(0)
+            .setStdout(new FailingOutputSink());
+        try {
+            exec.exec();
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertEquals(
+                "Broken sink",
+                e.getCause().getCause().getMessage()
+            );
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testExecAsyncReportsFailingSinkAsExecutionException() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c")
+            .addArgument("head -c 200000 /dev/zero")
+            .addRegularExitCode(0)
+            .setStdout(new FailingOutputSink());
+        try {
+            exec.execAsync().join();
+            fail("CompletionException expected");
+        } catch (CompletionException e) {
+            assertEquals(ExecutionException.class, e.getCause().getClass());
+            assertEquals(
+                "Broken sink",
+                e.getCause().getCause().getCause().getMessage()
+            );
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testReactorSurvivesFailingSink() {
+        ReactorOutputPumper pumper = new ReactorOutputPumper(1);
+
+        AbstractExecutable broken = new DefaultExecutable("/bin/sh");
+        broken.setOutputPumper(pumper);
+        broken.addArgument("-c")
+            .addArgument("head -c 200000 /dev/zero")
+            .addRegularExitCode(0)
+            .setStdout(new FailingOutputSink());
+        try {
+            broken.exec();
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            // Expected
+        }
+
+        MemoryOutputSink stdout = new MemoryOutputSink();
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.setOutputPumper(pumper);
+        exec.addArgument("-c")
+            .addArgument("head -c 200000 /dev/zero")
+            .addRegularExitCode(0)
+            .setStdout(stdout);
+        exec.exec();
+
+        assertEquals(200000, stdout.size());
+    }
+
+    @Test(timeout=10000, expected=ExecutionTimeoutException.class)
+    public void testExecKillsProcessTreeOnTimeout() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.setTimeout(200, TimeUnit.MILLISECONDS);
+        exec.setKillGracePeriod(100, TimeUnit.MILLISECONDS);
+        exec.addArgument("-c")
+            .addArgument("sleep 30 & wait")
+            .addRegularExitCode(0);
+        exec.exec();
+    }
+
+    @Test(timeout=10000, expected=ExecutionTimeoutException.class)
+    public void testExecKillsSilentProcessOnIdleTimeout() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.setIdleTimeout(300, TimeUnit.MILLISECONDS);
+        exec.addArgument("-c")
+            .addArgument("echo started; exec sleep 30")
+            .addRegularExitCode(0);
+        exec.exec();
+    }
+
+    @Test(timeout=10000)
+    public void testExecDoesNotKillProcessThatKeepsWriting() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.setIdleTimeout(400, TimeUnit.MILLISECONDS);
+        exec.addArgument("-c")
+            .addArgument("for i in 1 2 3 4; do echo $i; sleep 0.2; done")
+            .addRegularExitCode(0);
+        exec.exec();
+
+        assertEquals(0, exec.exitCode());
+    }
+
+    static final class FailingOutputSink implements OutputSink {
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            throw new IllegalStateException("Broken sink");
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutableUtilTest {
+
+    @Test
+    public void testFindExecutableOnUsersPathReturnsAbsoluteCommand() {
+        Executable exec = ExecutableUtil.findExecutableOnUsersPath("sh");
+
+        assertNotNull(exec);
+        assertTrue(exec.getCommandLine().get(0).endsWith("sh"));
+        assertTrue(exec.getCommandLine().get(0).startsWith("/"));
+    }
+
+    @Test
+    public void testFindExecutableOnUsersPathReturnsNullForUnknownTool() {
+        String name = "no-such-tool-4711";
+
+        assertNull(ExecutableUtil.findExecutableOnUsersPath(name));
+        assertNull(ExecutableUtil.findExecutableOnUsersPath(name));
+    }
+
+    @Test
+    public void testFindExecutableOnUsersPathReturnsFreshInstances() {
+        Executable first  = ExecutableUtil.findExecutableOnUsersPath("sh");
+        Executable second = ExecutableUtil.findExecutableOnUsersPath("sh");
+
+        first.addArgument("-c");
+
+        assertEquals(1, second.getCommandLine().size());
+    }
+
+    @Test
+    public void testFindExecutablesOnUsersPathSkipsUnknownTools() {
+        Map<String, Executable> found =
+                ExecutableUtil.findExecutablesOnUsersPath(
+                    "sh", "no-such-tool-4711", "ls"
+                );
+
+        assertEquals(2, found.size());
+        assertTrue(found.containsKey("sh"));
+        assertTrue(found.containsKey("ls"));
+        assertFalse(found.containsKey("no-such-tool-4711"));
+    }
+}
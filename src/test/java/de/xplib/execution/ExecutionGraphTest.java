@@ -0,0 +1,166 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutionGraphTest {
+
+    @Test(timeout=10000)
+    public void testExecuteRunsIndependentNodesInParallel() {
+        ExecutionGraph graph = new ExecutionGraph();
+        ExecutionGraph.Node a = graph.add("a", shell("sleep 0.1"));
+        ExecutionGraph.Node b = graph.add("b", shell("sleep 0.5"), a);
+        ExecutionGraph.Node c = graph.add("c", shell("sleep 0.5"), a);
+        ExecutionGraph.Node d = graph.add("d", shell("exit 0"), b, c);
+
+        long start = System.nanoTime();
+        GraphResult result = graph.execute();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result.isSuccessful());
+        assertTrue(millis < 1000);
+        assertEquals(0, d.getResult().getExitCode());
+    }
+
+    @Test(timeout=10000)
+    public void testExecuteSkipsDependentsOfFailedNode() {
+        ExecutionGraph graph = new ExecutionGraph();
+        ExecutionGraph.Node a = graph.add("a", shell("exit 0"));
+        ExecutionGraph.Node b = graph.add("b", shell("exit 1"), a);
+        ExecutionGraph.Node c = graph.add("c", shell("exit 0"), a);
+        ExecutionGraph.Node d = graph.add("d", shell("exit 0"), b, c);
+        ExecutionGraph.Node e = graph.add("e", shell("exit 0"), d);
+
+        GraphResult result = graph.execute();
+
+        assertFalse(result.isSuccessful());
+        assertTrue(c.isSuccessful());
+        assertEquals(Arrays.asList(b), result.getFailedNodes());
+        assertEquals(Arrays.asList(d, e), result.getSkippedNodes());
+        assertNull(d.getResult());
+        assertTrue(d.getFailure().getMessage().contains("[b]"));
+    }
+
+    @Test(timeout=10000)
+    public void testCriticalPathFollowsSlowestChain() {
+        ExecutionGraph graph = new ExecutionGraph();
+        ExecutionGraph.Node a = graph.add("a", shell("exit 0"));
+        ExecutionGraph.Node b = graph.add("b", shell("sleep 0.5"), a);
+        graph.add("c", shell("exit 0"), a);
+        ExecutionGraph.Node d = graph.add("d", shell("exit 0"), b);
+
+        GraphResult result = graph.execute();
+
+        assertEquals(Arrays.asList(a, b, d), result.getCriticalPath());
+        assertTrue(result.getCriticalPathTime(TimeUnit.MILLISECONDS) >= 500);
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testAddRejectsDuplicateNodeName() {
+        ExecutionGraph graph = new ExecutionGraph();
+        graph.add("a", shell("exit 0"));
+        graph.add("a", shell("exit 0"));
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testAddRejectsNodeOfOtherGraph() {
+        ExecutionGraph.Node a = new ExecutionGraph().add("a", shell("exit 0"));
+        new ExecutionGraph().add("b", shell("exit 0"), a);
+    }
+
+    @Test(timeout=10000)
+    public void testExecuteCanBeRepeated() {
+        ExecutionGraph graph = new ExecutionGraph();
+        ExecutionGraph.Node a = graph.add("a", shell("exit 0"));
+
+        graph.execute();
+        GraphResult result = graph.execute();
+
+        assertTrue(result.isSuccessful());
+        assertSame(a, result.getNodes().get(0));
+    }
+
+    @Test(timeout=10000)
+    public void testNodeDropsResultOfPreviousRunWhenStartFails()
+            throws Exception {
+        File script = File.createTempFile("graph", ".sh");
+        Files.write(
+            script.toPath(),
+            "#!/bin/sh\nexit 0\n".getBytes(StandardCharsets.US_ASCII)
+        );
+        assertTrue(script.setExecutable(true));
+
+        AbstractExecutable exec = new DefaultExecutable(script.getPath());
+        exec.addRegularExitCode(0);
+
+        ExecutionGraph graph = new ExecutionGraph();
+        ExecutionGraph.Node a = graph.add("a", exec);
+
+        assertTrue(graph.execute().isSuccessful());
+        assertNotNull(a.getResult());
+
+        assertTrue(script.delete());
+        assertFalse(graph.execute().isSuccessful());
+        assertNotNull(a.getFailure());
+        assertNull(a.getResult());
+    }
+
+    private static AbstractExecutable shell(String script) {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c").addArgument(script).addRegularExitCode(0);
+        return exec;
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutionMetricsTest {
+
+    @Test(timeout=10000)
+    public void testExecRecordsPhasesAndExitCodes() {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+
+        newExecutable(metrics, "exit 0").exec();
+        newExecutable(metrics, "exit 3").exec();
+
+        CommandMetrics sh = metrics.getCommand("/bin/sh");
+        assertEquals(2, sh.getSpawnTime().getCount());
+        assertEquals(2, sh.getRunTime().getCount());
+        assertEquals(2, sh.getDrainTime().getCount());
+        assertEquals(2, sh.getTotalTime().getCount());
+        assertEquals(Long.valueOf(1), sh.getExitCodeCounts().get(0));
+        assertEquals(Long.valueOf(1), sh.getExitCodeCounts().get(3));
+        assertEquals(0, sh.getInFlightCount());
+    }
+
+    @Test(timeout=10000)
+    public void testPooledRequestsRecordNoSpawnOrDrainTime() {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        ShellSessionPool pool = new ShellSessionPool();
+        try {
+            for (int i = 0; i < 2; ++i) {
+                new ShellExecutable(pool, "true")
+                    .setMetrics(metrics)
+                    .addRegularExitCode(0)
+                    .exec();
+            }
+        } finally {
+            pool.close();
+        }
+
+        CommandMetrics command = metrics.getCommand("true");
+        assertEquals(0, command.getSpawnTime().getCount());
+        assertEquals(2, command.getRunTime().getCount());
+        assertEquals(0, command.getDrainTime().getCount());
+        assertEquals(2, command.getTotalTime().getCount());
+        assertEquals(Long.valueOf(2), command.getExitCodeCounts().get(0));
+    }
+
+    @Test(timeout=10000)
+    public void testExecAsyncTracksInFlightExecutions() {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+
+        CompletableFuture<ExecutionResult> future =
+            newExecutable(metrics, "sleep 0.3").execAsync();
+        while (metrics.getCommand("/bin/sh") == null) {
+            Thread.yield();
+        }
+        CommandMetrics sh = metrics.getCommand("/bin/sh");
+        while (sh.getInFlightCount() == 0 && !future.isDone()) {
+            Thread.yield();
+        }
+        assertEquals(1, sh.getInFlightCount());
+
+        future.join();
+        assertEquals(0, sh.getInFlightCount());
+        assertTrue(sh.getRunTime().getMax(TimeUnit.MILLISECONDS) >= 250);
+    }
+
+    @Test(timeout=10000)
+    public void testDisabledMetricsRecordNothing() {
+        newExecutable(null, "exit 0").exec();
+
+        assertNull(new ExecutionMetrics().getCommand("/bin/sh"));
+    }
+
+    @Test(timeout=10000)
+    public void testPrometheusTextContainsAllMetrics() {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        newExecutable(metrics, "exit 0").exec();
+
+        String text = metrics.toPrometheusText();
+
+        assertTrue(text.contains("# TYPE execution_total_seconds histogram"));
+        assertTrue(text.contains(
+            "execution_total_seconds_bucket{command=\"/bin/sh\",le=\"+Inf\"} 1"
+        ));
+        assertTrue(text.contains(
+            "execution_total_seconds_count{command=\"/bin/sh\"} 1"
+        ));
+        assertTrue(text.contains(
+            "execution_exit_codes_total{command=\"/bin/sh\",code=\"0\"} 1"
+        ));
+        assertTrue(text.contains("execution_in_flight{command=\"/bin/sh\"} 0"));
+    }
+
+    private static AbstractExecutable newExecutable(
+            ExecutionMetrics metrics,
+            String script
+    ) {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c")
+            .addArgument(script)
+            .addRegularExitCode(0)
+            .addRegularExitCode(3);
+        exec.setMetrics(metrics);
+        return exec;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ExecutionSchedulerTest {
+
+    @Test(expected=ExecutionRejectedException.class)
+    public void testSubmitRejectsWhenQueueIsFull() {
+        ExecutionScheduler scheduler = new ExecutionScheduler(
+            1, 1, ExecutionScheduler.Backpressure.REJECT
+        );
+        scheduler.submit(sleep("0.5"));
+        scheduler.submit(sleep("0.5"));
+        scheduler.submit(sleep("0.5"));
+    }
+
+    @Test
+    public void testSubmitStartsHigherPriorityFirst() throws Exception {
+        ExecutionScheduler scheduler = new ExecutionScheduler(
+            1, 10, ExecutionScheduler.Backpressure.BLOCK
+        );
+        final List<String> order =
+                Collections.synchronizedList(new ArrayList<String>());
+
+        CompletableFuture<ExecutionResult> first =
+                scheduler.submit(sleep("0.2"));
+        CompletableFuture<ExecutionResult> low =
+                scheduler.submit(sleep("0"), -1);
+        CompletableFuture<ExecutionResult> high =
+                scheduler.submit(sleep("0"), 1);
+
+        assertEquals(2, scheduler.getQueueDepth());
+
+        CompletableFuture.allOf(
+            first,
+            low.thenRun(() -> order.add("low")),
+            high.thenRun(() -> order.add("high"))
+        ).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("high", "low"), order);
+        assertEquals(3, scheduler.getStartedCount());
+    }
+
+    @Test(timeout=10000, expected=ExecutionRejectedException.class)
+    public void testSubmitRejectsWhenQueueIsFullBelowGlobalLimit() {
+        ExecutionScheduler scheduler = new ExecutionScheduler(
+            4, 1, ExecutionScheduler.Backpressure.REJECT
+        );
+        scheduler.setCommandLimit("/bin/sleep", 1);
+
+        scheduler.submit(sleep("0.5"));
+        scheduler.submit(sleep("0.5"));
+        assertEquals(1, scheduler.getRunningCount());
+        assertEquals(1, scheduler.getQueueDepth());
+
+        scheduler.submit(sleep("0.5"));
+    }
+
+    @Test(timeout=10000)
+    public void testSubmitStartsOtherCommandWhileQueueIsFull()
+            throws Exception {
+        ExecutionScheduler scheduler = new ExecutionScheduler(
+            4, 1, ExecutionScheduler.Backpressure.REJECT
+        );
+        scheduler.setCommandLimit("/bin/sleep", 1);
+
+        scheduler.submit(sleep("0.2"));
+        scheduler.submit(sleep("0.2"));
+
+        AbstractExecutable exec = new DefaultExecutable("/bin/true");
+        exec.addRegularExitCode(0);
+        scheduler.submit(exec).get(10, TimeUnit.SECONDS);
+    }
+
+    private AbstractExecutable sleep(String seconds) {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sleep");
+        exec.addArgument(seconds).addRegularExitCode(0);
+        return exec;
+    }
+}
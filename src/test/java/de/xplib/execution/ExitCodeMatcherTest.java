@@ -0,0 +1,121 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExitCodeMatcherTest {
+
+    @Test
+    public void testNoneMatchesNothing() {
+        assertFalse(ExitCodeMatcher.none().matches(0));
+        assertTrue(ExitCodeMatcher.none().toList().isEmpty());
+    }
+
+    @Test
+    public void testOfMatchesGivenCodesOnly() {
+        ExitCodeMatcher matcher = ExitCodeMatcher.of(0, 2, 300, -1);
+
+        assertTrue(matcher.matches(0));
+        assertTrue(matcher.matches(2));
+        assertTrue(matcher.matches(300));
+        assertTrue(matcher.matches(-1));
+        assertFalse(matcher.matches(1));
+        assertFalse(matcher.matches(301));
+        assertEquals(Arrays.asList(0, 2, -1, 300), matcher.toList());
+    }
+
+    @Test
+    public void testRangeMatchesInclusiveBounds() {
+        ExitCodeMatcher matcher = ExitCodeMatcher.range(60, 70);
+
+        assertFalse(matcher.matches(59));
+        assertTrue(matcher.matches(60));
+        assertTrue(matcher.matches(64));
+        assertTrue(matcher.matches(70));
+        assertFalse(matcher.matches(71));
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testRangeRejectsHugeRangesOutsideOfBitSet() {
+        ExitCodeMatcher.range(0, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testAnyButMatchesEverythingExceptGivenCodes() {
+        ExitCodeMatcher matcher = ExitCodeMatcher.anyBut(2);
+
+        assertTrue(matcher.matches(0));
+        assertTrue(matcher.matches(1000));
+        assertFalse(matcher.matches(2));
+    }
+
+    @Test
+    public void testWithOutcomeMapsWarnings() {
+        ExitCodeMatcher matcher = ExitCodeMatcher.of(0)
+            .withOutcome(2, ExitCodeOutcome.WARNING);
+
+        assertEquals(ExitCodeOutcome.SUCCESS, matcher.outcome(0));
+        assertEquals(ExitCodeOutcome.WARNING, matcher.outcome(2));
+        assertEquals(ExitCodeOutcome.FAILURE, matcher.outcome(1));
+        assertTrue(matcher.matches(2));
+    }
+
+    @Test
+    public void testExecReportsWarningOutcome() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.setExitCodeMatcher(
+            ExitCodeMatcher.of(0).withOutcome(2, ExitCodeOutcome.WARNING)
+        );
+        exec.addArgument("-c").addArgument("exit 2");
+        exec.exec();
+
+        assertEquals(2, exec.exitCode());
+        assertEquals(ExitCodeOutcome.WARNING, exec.getResult().getOutcome());
+    }
+}
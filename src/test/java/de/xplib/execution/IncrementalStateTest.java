@@ -0,0 +1,277 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalStateTest {
+
+    private File directory;
+
+    private File input;
+
+    private File output;
+
+    private File counter;
+
+    private File state;
+
+    @Before
+    public void setUp() throws Exception {
+        this.directory = Files.createTempDirectory("incremental").toFile();
+        this.input = new File(this.directory, "input.txt");
+        this.output = new File(this.directory, "output.txt");
+        this.counter = new File(this.directory, "counter.txt");
+        this.state = new File(this.directory, "state/incremental.bin");
+        write(this.input, "first");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        delete(this.directory);
+    }
+
+    @Test(timeout=10000)
+    public void testExecSkipsUnchangedInvocation() throws Exception {
+        IncrementalState state = new IncrementalState(this.state);
+
+        this.run(state, 0);
+        this.run(state, 0);
+
+        assertEquals(1, this.runs());
+        assertEquals(1, state.getUpToDateCount());
+        assertEquals(1, state.getOutOfDateCount());
+    }
+
+    @Test(timeout=10000)
+    public void testExecReturnsRecordedExitCode() throws Exception {
+        IncrementalState state = new IncrementalState(this.state);
+
+        this.run(state, 0);
+        AbstractExecutable exec = this.run(state, 0);
+
+        assertEquals(0, exec.exitCode());
+        assertEquals(1, this.runs());
+    }
+
+    @Test(timeout=10000)
+    public void testExecRunsAgainWhenInputChanged() throws Exception {
+        IncrementalState state = new IncrementalState(this.state);
+
+        this.run(state, 0);
+        write(this.input, "second input");
+        this.run(state, 0);
+
+        assertEquals(2, this.runs());
+        assertEquals("second input", read(this.output));
+    }
+
+    @Test(timeout=10000)
+    public void testExecRunsAgainWhenOutputIsMissing() throws Exception {
+        IncrementalState state = new IncrementalState(this.state);
+
+        this.run(state, 0);
+        assertTrue(this.output.delete());
+        this.run(state, 0);
+
+        assertEquals(2, this.runs());
+        assertTrue(this.output.exists());
+    }
+
+    @Test(timeout=10000)
+    public void testStateSurvivesRestart() throws Exception {
+        this.run(new IncrementalState(this.state), 0);
+        IncrementalState state = new IncrementalState(this.state);
+        this.run(state, 0);
+
+        assertTrue(this.state.isFile());
+        assertEquals(1, this.runs());
+        assertEquals(1, state.getUpToDateCount());
+    }
+
+    @Test(timeout=10000)
+    public void testFailedExecutionIsNotRecorded() throws Exception {
+        IncrementalState state = new IncrementalState(this.state);
+
+        for (int i = 0; i < 2; ++i) {
+            try {
+                this.run(state, 1);
+            } catch (ExecutionFailedException e) {
+                // Expected
+            }
+        }
+
+        assertEquals(2, this.runs());
+    }
+
+    @Test(timeout=10000)
+    public void testClearForgetsRecordedExecutions() throws Exception {
+        IncrementalState state = new IncrementalState(this.state);
+
+        this.run(state, 0);
+        state.clear();
+        this.run(state, 0);
+
+        assertEquals(2, this.runs());
+    }
+
+    @Test(timeout=10000)
+    public void testAppendedRecordsSurviveRestartAndCompaction()
+            throws Exception {
+        IncrementalState state = new IncrementalState(this.state);
+        for (int i = 0; i < 300; ++i) {
+            target(state, i).record(0);
+        }
+        this.append(new byte[] {0, 42, 'x'});
+
+        IncrementalState restarted = new IncrementalState(this.state);
+        for (int i = 0; i < 300; ++i) {
+            assertTrue(target(restarted, i).isUpToDate());
+        }
+        assertEquals(300, restarted.getUpToDateCount());
+
+        target(restarted, 300).record(0);
+        assertTrue(
+            target(new IncrementalState(this.state), 300).isUpToDate()
+        );
+    }
+
+    @Test(timeout=10000)
+    public void testRecordAppendsInsteadOfRewritingTheStateFile()
+            throws Exception {
+        IncrementalState state = new IncrementalState(this.state);
+        target(state, 0).record(0);
+        byte[] snapshot = Files.readAllBytes(this.state.toPath());
+
+        target(state, 1).record(0);
+        target(state, 2).record(0);
+
+        byte[] bytes = Files.readAllBytes(this.state.toPath());
+        assertTrue(bytes.length > snapshot.length);
+        assertArrayEquals(
+            snapshot,
+            Arrays.copyOf(bytes, snapshot.length)
+        );
+    }
+
+    @Test(timeout=10000, expected=ValidationException.class)
+    public void testExecRejectsStdinInIncrementalMode() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/cat");
+        exec.addRegularExitCode(0);
+        exec.setStdin(InputSources.file(this.input));
+        exec.setIncrementalState(new IncrementalState(this.state));
+        exec.exec();
+    }
+
+    private AbstractExecutable run(IncrementalState state, int code) {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c")
+            .addArgument(
+                "echo run >> '" + this.counter + "'; "
+                + "cat '" + this.input + "' > '" + this.output + "'; "
+                + "exit " + code
+            )
+            .addRegularExitCode(0);
+        exec.setIncrementalState(state)
+            .addIncrementalInput(this.input)
+            .addIncrementalOutput(this.output);
+        exec.exec();
+        return exec;
+    }
+
+    private void append(byte[] bytes) throws Exception {
+        Files.write(
+            this.state.toPath(),
+            bytes,
+            StandardOpenOption.APPEND
+        );
+    }
+
+    private static IncrementalState.Target target(
+            IncrementalState state,
+            int i
+    ) throws Exception {
+        return state.target(
+            Arrays.asList("/bin/sh", "-c", "exit " + i),
+            Collections.<File>emptyList(),
+            Collections.<File>emptyList()
+        );
+    }
+
+    private int runs() throws Exception {
+        return Files.readAllLines(this.counter.toPath()).size();
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(
+            Files.readAllBytes(file.toPath()),
+            StandardCharsets.UTF_8
+        );
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
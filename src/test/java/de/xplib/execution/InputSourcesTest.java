@@ -0,0 +1,154 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class InputSourcesTest {
+
+    @Test(timeout=10000)
+    public void testExecWritesByteBufferToStdin() {
+        MemoryOutputSink stdout = new MemoryOutputSink();
+
+        cat(InputSources.bytes(ascii("hello")), stdout).exec();
+
+        assertEquals("hello", stdout.getText());
+    }
+
+    @Test(timeout=10000)
+    public void testExecStreamsInputLargerThanThePipeBuffer() {
+        byte[] data = new byte[4 * 1024 * 1024];
+        Arrays.fill(data, (byte) 'x');
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+
+        MemoryOutputSink stdout = new MemoryOutputSink();
+        cat(InputSources.buffer(direct), stdout).exec();
+
+        assertArrayEquals(data, stdout.getBytes());
+        assertEquals(0, direct.position());
+    }
+
+    @Test(timeout=10000)
+    public void testExecRedirectsStdinFromFile() throws Exception {
+        File file = tempFile("first\nsecond\n");
+
+        MemoryOutputSink stdout = new MemoryOutputSink();
+        cat(InputSources.file(file), stdout).exec();
+
+        assertEquals("first\nsecond\n", stdout.getText());
+    }
+
+    @Test(timeout=10000)
+    public void testExecWritesMappedFileRegion() throws Exception {
+        File file = tempFile("0123456789");
+
+        MemoryOutputSink stdout = new MemoryOutputSink();
+        cat(InputSources.mapped(file, 3, 4), stdout).exec();
+
+        assertEquals("3456", stdout.getText());
+    }
+
+    @Test(timeout=10000)
+    public void testExecRequestsProducerChunksUntilNull() {
+        final int[] produced = new int[] {0};
+        InputProducer producer = () -> {
+            if (produced[0] == 1000) {
+                return null;
+            }
+            ++produced[0];
+            return ByteBuffer.wrap(ascii("line\n"));
+        };
+
+        MemoryOutputSink stdout = new MemoryOutputSink();
+        AbstractExecutable exec = new DefaultExecutable("/usr/bin/wc");
+        exec.addArgument("-l").addRegularExitCode(0);
+        exec.setStdin(InputSources.producer(producer));
+        exec.setStdout(stdout);
+        exec.exec();
+
+        assertEquals("1000", stdout.getText().trim());
+    }
+
+    @Test(timeout=10000)
+    public void testExecIgnoresInputNotReadByTheProcess() {
+        byte[] data = new byte[1024 * 1024];
+
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c").addArgument("exit 0").addRegularExitCode(0);
+        exec.setStdin(InputSources.bytes(data));
+        exec.exec();
+
+        assertEquals(0, exec.exitCode());
+    }
+
+    private static AbstractExecutable cat(
+            InputSource source,
+            OutputSink stdout
+    ) {
+        AbstractExecutable exec = new DefaultExecutable("/bin/cat");
+        exec.addRegularExitCode(0);
+        exec.setStdin(source);
+        exec.setStdout(stdout);
+        return exec;
+    }
+
+    private static File tempFile(String content) throws Exception {
+        File file = File.createTempFile("stdin", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), ascii(content));
+        return file;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testRecordCountsSumAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.record(3000);
+        histogram.record(-5);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(4000, histogram.getSum(TimeUnit.NANOSECONDS));
+        assertEquals(3000, histogram.getMax(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testPercentileIsWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i * 1000000L);
+        }
+
+        long p50 = histogram.getPercentile(50, TimeUnit.MILLISECONDS);
+        long p99 = histogram.getPercentile(99, TimeUnit.MILLISECONDS);
+
+        assertTrue(p50 >= 500 && p50 <= 500 * 1.125);
+        assertTrue(p99 >= 990 && p99 <= 1000);
+        assertEquals(1000, histogram.getPercentile(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPercentileOfEmptyHistogramIsZero() {
+        assertEquals(
+            0,
+            new LatencyHistogram().getPercentile(99, TimeUnit.NANOSECONDS)
+        );
+    }
+
+    @Test
+    public void testCountAtOrBelow() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5);
+        histogram.record(1000000);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1, histogram.getCountAtOrBelow(7));
+        assertEquals(2, histogram.getCountAtOrBelow(2000000));
+        assertEquals(3, histogram.getCountAtOrBelow(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testCountAtOrBelowIncludesBucketContainingTheBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+
+        assertEquals(1, histogram.getCountAtOrBelow(1000));
+        assertEquals(0, histogram.getCountAtOrBelow(959));
+    }
+
+    @Test
+    public void testCountsAtOrBelowEndWithTheTotal() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5);
+        histogram.record(1000);
+        histogram.record(1000000);
+
+        long[] counts = histogram.getCountsAtOrBelow(
+            new long[] {0, 7, 1000, 2000000}
+        );
+
+        assertEquals(5, counts.length);
+        assertEquals(0, counts[0]);
+        assertEquals(1, counts[1]);
+        assertEquals(2, counts[2]);
+        assertEquals(3, counts[3]);
+        assertEquals(3, counts[4]);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchMechanismTest {
+
+    @Test
+    public void testDefaultDependsOnTheRuntimeVersion() {
+        boolean linux = System.getProperty("os.name").startsWith("Linux");
+        LaunchMechanism expected = LaunchMechanism.POSIX_SPAWN;
+        if (linux && Runtime.version().feature() < 12) {
+            expected = LaunchMechanism.VFORK;
+        }
+        assertEquals(expected, LaunchMechanism.getDefault());
+    }
+
+    @Test
+    public void testDefaultIsUsedWhenPropertyIsUnset() {
+        if (System.getProperty(LaunchMechanism.PROPERTY) == null
+                && LaunchMechanism.getCurrent() != null) {
+            assertEquals(
+                LaunchMechanism.getDefault(),
+                LaunchMechanism.getCurrent()
+            );
+        }
+    }
+
+    @Test
+    public void testSelectCurrentMechanismIsAlwaysAllowed() {
+        LaunchMechanism current = LaunchMechanism.getCurrent();
+        if (current != null) {
+            current.select();
+            assertEquals(current, LaunchMechanism.getCurrent());
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testSelectDifferentMechanismFailsAfterFirstProcess() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c").addArgument("exit 0").addRegularExitCode(0);
+        exec.exec();
+
+        LaunchMechanism current = LaunchMechanism.getCurrent();
+        assertTrue(LaunchMechanism.FORK.isSupported());
+        if (current == LaunchMechanism.FORK) {
+            LaunchMechanism.POSIX_SPAWN.select();
+        } else {
+            LaunchMechanism.FORK.select();
+        }
+    }
+}
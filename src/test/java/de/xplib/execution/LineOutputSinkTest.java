@@ -0,0 +1,295 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LineOutputSinkTest {
+
+    @Test
+    public void testWriteSplitsLinesAcrossChunks() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        LineOutputSink sink = new LineOutputSink(lines::add);
+
+        write(sink, "foo\r\nba");
+        write(sink, "r\n\nbaz");
+        sink.close();
+
+        assertEquals(Arrays.asList("foo", "bar", "", "baz"), lines);
+    }
+
+    @Test
+    public void testWriteAppliesPrefixFilter() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        LineOutputSink sink = new LineOutputSink(
+            lines::add,
+            LineFilters.prefix("ERROR", StandardCharsets.UTF_8)
+        );
+
+        write(sink, "INFO a\nERROR b\nERR c\nERROR d\n");
+        sink.close();
+
+        assertEquals(Arrays.asList("ERROR b", "ERROR d"), lines);
+    }
+
+    @Test
+    public void testWriteAppliesRegexFilter() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        LineOutputSink sink = new LineOutputSink(
+            lines::add,
+            LineFilters.regex(Pattern.compile("line \\d+$"))
+        );
+
+        write(sink, "line 1\nline x\nfoo line 22\n");
+        sink.close();
+
+        assertEquals(Arrays.asList("line 1", "foo line 22"), lines);
+    }
+
+    @Test
+    public void testWriteTruncatesLongLines() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        LineOutputSink sink = new LineOutputSink(
+            lines::add,
+            LineFilters.all(),
+            StandardCharsets.UTF_8,
+            4
+        );
+
+        write(sink, "abcdefgh\nxy\n");
+        sink.close();
+
+        assertEquals(Arrays.asList("abcd", "xy"), lines);
+    }
+
+    @Test(timeout=10000)
+    public void testPublisherDeliversLinesOnDemand() throws Exception {
+        final List<String> lines = new ArrayList<String>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        LinePublisher publisher = new LinePublisher();
+        publisher.subscribe(new Flow.Subscriber<String>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(String item) {
+                lines.add(item);
+                this.subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        Executable exec = new DefaultExecutable("/bin/sh")
+            .addArgument("-c")
+            .addArgument("seq 1 20000")
+            .addRegularExitCode(0)
+            .setStdout(publisher);
+        exec.exec();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(20000, lines.size());
+        assertEquals("20000", lines.get(19999));
+    }
+
+    private static void write(OutputSink sink, String text) throws Exception {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        sink.write(bytes, 0, bytes.length);
+    }
+
+    @Test(timeout=10000)
+    public void testLinePublisherFailsNonPositiveRequest() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        new LinePublisher().subscribe(subscriber);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, subscriber.completions);
+    }
+
+    @Test(timeout=10000)
+    public void testLinePublisherSignalsPumpFailureAsError() {
+        LinePublisher publisher = new LinePublisher();
+        RecordingSubscriber subscriber =
+            new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        Executable exec = new DefaultExecutable("/bin/sh")
+            .addArgument("-c")
+            .addArgument("echo line")
+            .addRegularExitCode(0)
+            .setStdout(new TeeOutputSink(
+                publisher,
+                new DefaultExecutableTest.FailingOutputSink()
+            ));
+        try {
+            exec.exec();
+        } catch (ExecutionException e) {
+            // Expected
+        }
+
+        assertTrue(subscriber.error != null);
+        assertEquals(0, subscriber.completions);
+    }
+
+    @Test(timeout=10000)
+    public void testLinePublisherEmitsNothingBeforeOnSubscribeReturned()
+            throws Exception {
+        final LinePublisher publisher = new LinePublisher();
+        final AtomicBoolean subscribing = new AtomicBoolean(false);
+        final AtomicBoolean overlapped = new AtomicBoolean(false);
+        final CountDownLatch received = new CountDownLatch(1);
+
+        Thread pump = new Thread(() -> {
+            try {
+                write(publisher, "line\n");
+            } catch (Exception e) {
+                // Reported by the missing line
+            }
+        });
+        pump.start();
+
+        publisher.subscribe(new Flow.Subscriber<String>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscribing.set(true);
+                subscription.request(1);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                subscribing.set(false);
+            }
+
+            @Override
+            public void onNext(String item) {
+                overlapped.set(subscribing.get());
+                received.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertFalse(overlapped.get());
+        pump.join();
+    }
+
+    @Test(timeout=10000)
+    public void testLinePublisherCloseDoesNotWaitForSubscriber()
+            throws Exception {
+        LinePublisher publisher = new LinePublisher();
+        publisher.close();
+
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        publisher.subscribe(subscriber);
+
+        assertEquals(1, subscriber.completions);
+    }
+
+    private static final class RecordingSubscriber
+            implements Flow.Subscriber<String> {
+
+        private final long initial;
+
+        private volatile Throwable error = null;
+
+        private volatile int completions = 0;
+
+        RecordingSubscriber(long initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(this.initial);
+        }
+
+        @Override
+        public void onNext(String item) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            ++this.completions;
+        }
+    }
+}
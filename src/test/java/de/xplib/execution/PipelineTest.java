@@ -0,0 +1,157 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PipelineTest {
+
+    @Test(timeout=10000)
+    public void testExecConnectsStagesThroughPipes() {
+        MemoryOutputSink stdout = new MemoryOutputSink();
+
+        AbstractExecutable seq = new DefaultExecutable("/usr/bin/seq");
+        seq.addArgument("1").addArgument("50000").addRegularExitCode(0);
+
+        AbstractExecutable wc = new DefaultExecutable("/usr/bin/wc");
+        wc.addArgument("-l").addRegularExitCode(0);
+        wc.setStdout(stdout);
+
+        Pipeline pipeline = Pipeline.of(seq, wc);
+        pipeline.exec();
+
+        assertEquals("50000", stdout.getText().trim());
+        assertEquals(2, pipeline.getResults().size());
+    }
+
+    @Test(timeout=10000)
+    public void testExecReportsFailingSinkAsExecutionException() {
+        AbstractExecutable seq = new DefaultExecutable("/usr/bin/seq");
+        seq.addArgument("1").addArgument("1000").addRegularExitCode(0);
+
+        AbstractExecutable cat = new DefaultExecutable("/bin/cat");
+        cat.addRegularExitCode(0);
+        cat.setStdout(new DefaultExecutableTest.FailingOutputSink());
+
+        try {
+            Pipeline.of(seq, cat).exec();
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertEquals(
+                "Broken sink",
+                e.getCause().getCause().getMessage()
+            );
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testExecRejectsStdinSourceOfLaterStage() {
+        AbstractExecutable echo = new DefaultExecutable("/bin/echo");
+        echo.addArgument("hello").addRegularExitCode(0);
+
+        AbstractExecutable cat = new DefaultExecutable("/bin/cat");
+        cat.addRegularExitCode(0);
+        cat.setStdin(InputSources.bytes(new byte[] {'x'}));
+
+        try {
+            Pipeline.of(echo, cat).exec();
+            fail("ValidationException expected");
+        } catch (ValidationException e) {
+            assertNull(echo.getResult());
+        }
+    }
+
+    @Test(timeout=10000, expected=ExecutionException.class)
+    public void testExecThrowsWhenOneStageFails() {
+        AbstractExecutable fail = new DefaultExecutable("/bin/sh");
+        fail.addArgument("-c").addArgument("exit 3").addRegularExitCode(0);
+
+        AbstractExecutable cat = new DefaultExecutable("/bin/cat");
+        cat.addRegularExitCode(0);
+
+        Pipeline.of(fail, cat).exec();
+    }
+
+    @Test(timeout=10000)
+    public void testExecAsyncReturnsResultsInStageOrder() throws Exception {
+        AbstractExecutable echo = new DefaultExecutable("/bin/echo");
+        echo.addArgument("hello").addRegularExitCode(0);
+
+        AbstractExecutable tr = new DefaultExecutable("/usr/bin/tr");
+        tr.addArgument("a-z").addArgument("A-Z").addRegularExitCode(0);
+
+        List<ExecutionResult> results =
+            Pipeline.of(echo, tr).execAsync().get();
+
+        assertEquals("/bin/echo", results.get(0).getCommandLine().get(0));
+        assertEquals("/usr/bin/tr", results.get(1).getCommandLine().get(0));
+        assertNotNull(tr.getResult());
+    }
+
+    @Test(timeout=10000)
+    public void testExecRedirectsLastStageToFile() throws Exception {
+        File file = File.createTempFile("pipeline", ".txt");
+        file.deleteOnExit();
+
+        AbstractExecutable echo = new DefaultExecutable("/bin/echo");
+        echo.addArgument("hello").addRegularExitCode(0);
+
+        AbstractExecutable tr = new DefaultExecutable("/usr/bin/tr");
+        tr.addArgument("a-z").addArgument("A-Z").addRegularExitCode(0);
+        tr.setStdoutRedirect(ProcessBuilder.Redirect.to(file));
+
+        Pipeline.of(echo, tr).exec();
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals("HELLO\n", new String(bytes, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResourceSamplerTest {
+
+    @Test(timeout=10000)
+    public void testExecCollectsResourceUsage() {
+        ResourceSampler sampler = newSampler();
+
+        AbstractExecutable exec = newExecutable(
+            "i=0; while [ $i -lt 300000 ]; do i=$((i+1)); done"
+        );
+        exec.setResourceSampler(sampler).exec();
+
+        ResourceUsage usage = exec.getResult().getResourceUsage();
+        assertNotNull(usage);
+        assertTrue(usage.getSampleCount() > 1);
+        assertLowerBound(usage, exec.getResult());
+        assertEquals(0, sampler.getTrackedCount());
+    }
+
+    @Test(timeout=10000)
+    public void testRunShorterThanIntervalReportsOnlyFirstSample() {
+        ResourceSampler sampler = new ResourceSampler(10, TimeUnit.SECONDS);
+
+        AbstractExecutable exec = newExecutable(
+            "i=0; while [ $i -lt 50000 ]; do i=$((i+1)); done"
+        );
+        exec.setResourceSampler(sampler).exec();
+
+        ResourceUsage usage = exec.getResult().getResourceUsage();
+        if (usage != null) {
+            assertEquals(1, usage.getSampleCount());
+            assertLowerBound(usage, exec.getResult());
+        }
+        assertEquals(0, sampler.getTrackedCount());
+    }
+
+    @Test(timeout=10000)
+    public void testFailingSinkStopsTracking() {
+        ResourceSampler sampler = newSampler();
+
+        AbstractExecutable exec = newExecutable("echo output");
+        exec.setStdout(new DefaultExecutableTest.FailingOutputSink());
+        try {
+            exec.setResourceSampler(sampler).exec();
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertEquals(0, sampler.getTrackedCount());
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testFailingSinkStopsTrackingOfAsyncExecution() {
+        ResourceSampler sampler = newSampler();
+
+        AbstractExecutable exec = newExecutable("echo output");
+        exec.setStdout(new DefaultExecutableTest.FailingOutputSink());
+        exec.setResourceSampler(sampler);
+        try {
+            exec.execAsync().join();
+            fail("CompletionException expected");
+        } catch (CompletionException e) {
+            assertEquals(0, sampler.getTrackedCount());
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testProcfsProvidesDetailedUsage() {
+        if (!new File("/proc/self/stat").isFile()) {
+            return;
+        }
+        ResourceSampler sampler = newSampler();
+
+        AbstractExecutable exec = newExecutable("sleep 0.2");
+        exec.setResourceSampler(sampler).exec();
+
+        ResourceUsage usage = exec.getResult().getResourceUsage();
+        assertTrue(usage.getUserTime(TimeUnit.NANOSECONDS) >= 0);
+        assertTrue(usage.getSystemTime(TimeUnit.NANOSECONDS) >= 0);
+        assertTrue(usage.getPeakResidentSetSize() > 0);
+    }
+
+    @Test(timeout=10000)
+    public void testResultWithoutSamplerHasNoUsage() {
+        AbstractExecutable exec = newExecutable("exit 0");
+        exec.exec();
+
+        assertNull(exec.getResult().getResourceUsage());
+    }
+
+    @Test(timeout=10000)
+    public void testUsageIsRecordedInMetrics() {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        ResourceSampler sampler = newSampler();
+
+        AbstractExecutable exec = newExecutable("sleep 0.2");
+        exec.setMetrics(metrics);
+        exec.setResourceSampler(sampler).exec();
+
+        CommandMetrics sh = metrics.getCommand("/bin/sh");
+        assertEquals(1, sh.getCpuTime().getCount());
+    }
+
+    private static void assertLowerBound(
+            ResourceUsage usage,
+            ExecutionResult result
+    ) {
+        long cpu = usage.getCpuTime(TimeUnit.MILLISECONDS);
+        long total = result.getTotalTime(TimeUnit.MILLISECONDS);
+
+        assertTrue(cpu >= 0);
+        // One clock tick of rounding in /proc/<pid>/stat
+        assertTrue(cpu <= total + 10);
+    }
+
+    private static ResourceSampler newSampler() {
+        return new ResourceSampler(20, TimeUnit.MILLISECONDS);
+    }
+
+    private static AbstractExecutable newExecutable(String script) {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c").addArgument(script).addRegularExitCode(0);
+        return exec;
+    }
+}
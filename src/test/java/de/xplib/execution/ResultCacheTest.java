@@ -0,0 +1,227 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResultCacheTest {
+
+    private File directory;
+
+    private File input;
+
+    private File counter;
+
+    @Before
+    public void setUp() throws Exception {
+        this.directory = Files.createTempDirectory("result-cache").toFile();
+        this.input = new File(this.directory, "input.txt");
+        this.counter = new File(this.directory, "counter.txt");
+        write(this.input, "first");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        delete(this.directory);
+    }
+
+    @Test(timeout=10000)
+    public void testExecReplaysCachedOutputWithoutStartingAProcess()
+            throws Exception {
+        ResultCache cache = new ResultCache();
+
+        assertEquals("first", this.run(cache));
+        assertEquals("first", this.run(cache));
+
+        assertEquals(1, this.runs());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test(timeout=10000)
+    public void testExecRunsAgainWhenAnInputFileChanges() throws Exception {
+        ResultCache cache = new ResultCache();
+
+        assertEquals("first", this.run(cache));
+        write(this.input, "second!");
+        assertEquals("second!", this.run(cache));
+
+        assertEquals(2, this.runs());
+    }
+
+    @Test(timeout=10000)
+    public void testExecReadsEntriesFromDisk() throws Exception {
+        File store = new File(this.directory, "store");
+
+        assertEquals("first", this.run(new ResultCache(store)));
+        assertEquals("first", this.run(new ResultCache(store)));
+
+        assertEquals(1, this.runs());
+    }
+
+    @Test(timeout=10000)
+    public void testExecDoesNotCacheFailures() throws Exception {
+        ResultCache cache = new ResultCache();
+        for (int i = 0; i < 2; ++i) {
+            AbstractExecutable exec = this.newExecutable(cache);
+            exec.setExitCodeMatcher(ExitCodeMatcher.of(1));
+            try {
+                exec.exec();
+            } catch (ExecutionFailedException e) {
+                assertEquals("first", e.getMessage());
+            }
+        }
+        assertEquals(2, this.runs());
+    }
+
+    @Test(timeout=10000)
+    public void testExecDoesNotCacheExecutablesReadingStdin() {
+        ResultCache cache = new ResultCache();
+
+        assertEquals("alpha", cat(cache, "alpha"));
+        assertEquals("beta", cat(cache, "beta"));
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test(timeout=10000)
+    public void testExecDoesNotCacheRedirectedOutput() throws Exception {
+        ResultCache cache = new ResultCache();
+        File target = new File(this.directory, "redirect.txt");
+
+        for (int i = 0; i < 2; ++i) {
+            assertTrue(!target.exists() || target.delete());
+
+            AbstractExecutable exec = this.newExecutable(cache);
+            exec.setStdoutRedirect(ProcessBuilder.Redirect.to(target));
+            exec.exec();
+
+            assertEquals("first", read(target));
+        }
+        assertEquals(2, this.runs());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test(timeout=10000)
+    public void testReplacingAnEntryDoesNotGrowTheDiskSize() {
+        File cacheDirectory = new File(this.directory, "cache");
+        ResultCache cache = new ResultCache(cacheDirectory)
+            .setMaximumDiskSize(100);
+
+        byte[] output = new byte[20];
+        cache.put("aa11", new RecordedResult(0, output, new byte[0]));
+        for (int i = 0; i < 5; ++i) {
+            cache.put("bb22", new RecordedResult(0, output, new byte[0]));
+        }
+
+        assertTrue(new File(new File(cacheDirectory, "aa"), "aa11").isFile());
+    }
+
+    private static String cat(ResultCache cache, String input) {
+        MemoryOutputSink stdout = new MemoryOutputSink();
+
+        AbstractExecutable exec = new DefaultExecutable("/bin/cat");
+        exec.addRegularExitCode(0);
+        exec.setStdin(InputSources.bytes(
+            input.getBytes(StandardCharsets.UTF_8)
+        ));
+        exec.setStdout(stdout);
+        exec.setResultCache(cache).exec();
+
+        return stdout.getText(StandardCharsets.UTF_8);
+    }
+
+    private String run(ResultCache cache) {
+        MemoryOutputSink stdout = new MemoryOutputSink();
+
+        AbstractExecutable exec = this.newExecutable(cache);
+        exec.setStdout(stdout);
+        exec.exec();
+
+        return stdout.getText(StandardCharsets.UTF_8);
+    }
+
+    private AbstractExecutable newExecutable(ResultCache cache) {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c")
+            .addArgument(
+                "echo run >> '" + this.counter + "'; "
+                + "cat '" + this.input + "'; cat '" + this.input + "' >&2"
+            )
+            .addRegularExitCode(0);
+        exec.setResultCache(cache).addCacheInput(this.input);
+        return exec;
+    }
+
+    private int runs() throws Exception {
+        return Files.readAllLines(this.counter.toPath()).size();
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(
+            Files.readAllBytes(file.toPath()),
+            StandardCharsets.UTF_8
+        );
+    }
+
+    private static void write(File file, String content) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
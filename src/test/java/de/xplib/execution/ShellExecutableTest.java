@@ -0,0 +1,152 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ShellExecutableTest {
+
+    private ShellSessionPool pool;
+
+    @Before
+    public void setUp() {
+        this.pool = new ShellSessionPool();
+        this.pool.setMaxWorkers(1);
+    }
+
+    @After
+    public void tearDown() {
+        this.pool.close();
+    }
+
+    @Test(timeout=10000)
+    public void testExecSeparatesOutputOfConsecutiveCommands() {
+        assertEquals("foo\n", this.stdout("printf", "foo\\n"));
+        assertEquals("bar", this.stdout("printf", "bar"));
+        assertEquals("\n\nbaz\n", this.stdout("printf", "\\n\\nbaz\\n"));
+        assertEquals("", this.stdout("true"));
+        assertEquals(1, this.pool.getWorkerCount());
+    }
+
+    @Test(timeout=10000)
+    public void testExecPassesArgumentsVerbatim() {
+        assertEquals(
+            "it's $HOME; `x`",
+            this.stdout("printf", "%s", "it's $HOME; `x`")
+        );
+    }
+
+    @Test(timeout=10000)
+    public void testExecReportsExitCodeAndStderr() {
+        Executable exec = new ShellExecutable(this.pool, "/bin/sh");
+        exec.addArgument("-c")
+            .addArgument("echo broken >&2; exit 3")
+            .addRegularExitCode(0);
+        try {
+            exec.exec();
+            fail("ExecutionFailedException expected");
+        } catch (ExecutionFailedException e) {
+            assertEquals("broken", e.getMessage());
+            assertEquals(3, exec.exitCode());
+        }
+        assertEquals("ok", this.stdout("printf", "ok"));
+    }
+
+    @Test(timeout=10000)
+    public void testExecRunsExitInSubshell() {
+        Executable exec = new ShellExecutable(this.pool, "exit");
+        exec.addArgument("5").addRegularExitCode(0);
+        try {
+            exec.exec();
+            fail("ExecutionFailedException expected");
+        } catch (ExecutionFailedException e) {
+            assertEquals(5, exec.exitCode());
+        }
+        assertEquals("ok", this.stdout("printf", "ok"));
+    }
+
+    @Test(timeout=10000)
+    public void testExecDoesNotLeakStateIntoTheSession() {
+        this.stdout("cd", "/");
+        this.stdout("exec", "/bin/true");
+
+        assertEquals(
+            System.getProperty("user.dir") + "\n",
+            this.stdout("pwd")
+        );
+    }
+
+    @Test(timeout=10000)
+    public void testExecKillsCommandThatExceedsTheTimeout() {
+        WorkerExecutable exec = new ShellExecutable(this.pool, "sleep");
+        exec.setTimeout(200, TimeUnit.MILLISECONDS);
+        exec.addArgument("30").addRegularExitCode(0);
+        try {
+            exec.exec();
+            fail("ExecutionTimeoutException expected");
+        } catch (ExecutionTimeoutException e) {
+            assertEquals("ok", this.stdout("printf", "ok"));
+        }
+    }
+
+    private String stdout(String executable, String... arguments) {
+        MemoryOutputSink stdout = new MemoryOutputSink();
+
+        Executable exec = new ShellExecutable(this.pool, executable);
+        for (String argument : arguments) {
+            exec.addArgument(argument);
+        }
+        exec.addRegularExitCode(0);
+        exec.setStdout(stdout);
+        exec.exec();
+
+        return stdout.getText(StandardCharsets.UTF_8);
+    }
+}
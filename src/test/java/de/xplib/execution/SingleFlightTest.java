@@ -0,0 +1,166 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest {
+
+    private File counter;
+
+    @Before
+    public void setUp() throws Exception {
+        this.counter = File.createTempFile("single-flight", ".txt");
+    }
+
+    @After
+    public void tearDown() {
+        this.counter.delete();
+    }
+
+    @Test(timeout=10000)
+    public void testConcurrentIdenticalExecutionsShareOneProcess()
+            throws Exception {
+        SingleFlight group = new SingleFlight();
+
+        List<MemoryOutputSink> sinks = new ArrayList<MemoryOutputSink>();
+        List<CompletableFuture<ExecutionResult>> futures =
+            new ArrayList<CompletableFuture<ExecutionResult>>();
+        for (int i = 0; i < 5; ++i) {
+            MemoryOutputSink stdout = new MemoryOutputSink();
+            AbstractExecutable exec = this.newExecutable(group);
+            exec.setStdout(stdout);
+
+            sinks.add(stdout);
+            futures.add(exec.execAsync());
+        }
+        for (CompletableFuture<ExecutionResult> future : futures) {
+            assertEquals(0, future.get().getExitCode());
+        }
+
+        for (MemoryOutputSink stdout : sinks) {
+            assertEquals("done\n", stdout.getText(StandardCharsets.UTF_8));
+        }
+        assertEquals(1, this.runs());
+        assertEquals(4, group.getCoalescedCount());
+        assertEquals(0, group.getInFlightCount());
+    }
+
+    @Test(timeout=10000)
+    public void testSequentialExecutionsAreNotCoalesced() throws Exception {
+        SingleFlight group = new SingleFlight();
+
+        this.newExecutable(group).exec();
+        this.newExecutable(group).exec();
+
+        assertEquals(2, this.runs());
+        assertEquals(0, group.getCoalescedCount());
+    }
+
+    @Test(timeout=10000)
+    public void testFollowersStartOwnProcessWhenOutputIsTooLarge()
+            throws Exception {
+        SingleFlight group = new SingleFlight().setOutputLimit(2);
+
+        CompletableFuture<ExecutionResult> first =
+            this.newExecutable(group).execAsync();
+        CompletableFuture<ExecutionResult> second =
+            this.newExecutable(group).execAsync();
+        first.get();
+        second.get();
+
+        assertEquals(2, this.runs());
+    }
+
+    @Test(timeout=10000)
+    public void testFollowersStartOwnProcessWhenLeaderSinkFails()
+            throws Exception {
+        SingleFlight group = new SingleFlight();
+
+        AbstractExecutable leader = this.newExecutable(group);
+        leader.setStdout(new DefaultExecutableTest.FailingOutputSink());
+        CompletableFuture<ExecutionResult> first = leader.execAsync();
+
+        MemoryOutputSink stdout = new MemoryOutputSink();
+        AbstractExecutable follower = this.newExecutable(group);
+        follower.setStdout(stdout);
+        CompletableFuture<ExecutionResult> second = follower.execAsync();
+
+        try {
+            first.join();
+            fail("CompletionException expected");
+        } catch (CompletionException e) {
+            // Expected
+        }
+        assertEquals(0, second.get().getExitCode());
+        assertEquals("done\n", stdout.getText(StandardCharsets.UTF_8));
+        assertEquals(2, this.runs());
+    }
+
+    private AbstractExecutable newExecutable(SingleFlight group) {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c")
+            .addArgument(
+                "echo run >> '" + this.counter + "'; sleep 0.5; echo done"
+            )
+            .addRegularExitCode(0);
+        exec.setSingleFlight(group);
+        return exec;
+    }
+
+    private int runs() throws Exception {
+        return Files.readAllLines(this.counter.toPath()).size();
+    }
+}
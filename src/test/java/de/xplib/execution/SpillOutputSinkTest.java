@@ -0,0 +1,145 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpillOutputSinkTest {
+
+    @Test
+    public void testWriteKeepsSmallOutputInMemory() throws Exception {
+        SpillOutputSink sink = new SpillOutputSink(16);
+        write(sink, "foobar");
+        sink.close();
+
+        assertFalse(sink.isSpilled());
+        assertEquals("foobar", text(sink.getByteBuffer()));
+    }
+
+    @Test
+    public void testWriteSpillsToFileAboveThreshold() throws Exception {
+        SpillOutputSink sink = new SpillOutputSink(8);
+        write(sink, "0123456");
+        write(sink, "789abc");
+        sink.close();
+
+        assertTrue(sink.isSpilled());
+        assertEquals(13, sink.getFile().length());
+        assertEquals("0123456789abc", text(sink.getByteBuffer()));
+
+        InputStream stream = sink.getInputStream();
+        try {
+            assertEquals('0', stream.read());
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testClosingTheResultDeletesTheSpillFile() throws Exception {
+        AbstractExecutable exec = new DefaultExecutable("/usr/bin/seq");
+        exec.addArgument("1").addArgument("100000").addRegularExitCode(0);
+        exec.setStdout(new SpillOutputSink(1024));
+        exec.exec();
+
+        ExecutionResult result = exec.getResult();
+        SpillOutputSink stdout = (SpillOutputSink) result.getStdout();
+        File file = stdout.getFile();
+        try {
+            assertTrue(file.exists());
+            ByteBuffer buffer = stdout.getByteBuffer();
+            assertEquals(stdout.size(), buffer.remaining());
+            assertEquals('1', buffer.get(0));
+        } finally {
+            result.close();
+        }
+        assertFalse(file.exists());
+        assertEquals(0, stdout.size());
+    }
+
+    @Test(timeout=10000)
+    public void testEveryExecutionSpillsIntoItsOwnFile() throws Exception {
+        SpillOutputSink template = new SpillOutputSink(1024);
+
+        AbstractExecutable exec = new DefaultExecutable("/usr/bin/seq");
+        exec.addArgument("1").addArgument("100000").addRegularExitCode(0);
+        exec.setStdout(template);
+
+        exec.exec();
+        ExecutionResult first = exec.getResult();
+        exec.exec();
+        ExecutionResult second = exec.getResult();
+
+        SpillOutputSink one = (SpillOutputSink) first.getStdout();
+        SpillOutputSink two = (SpillOutputSink) second.getStdout();
+        try {
+            assertFalse(one.getFile().equals(two.getFile()));
+            assertEquals(one.size(), two.size());
+            assertFalse(template.isSpilled());
+
+            first.close();
+            assertTrue(two.getFile().exists());
+            assertEquals('1', two.getByteBuffer().get(0));
+        } finally {
+            second.close();
+        }
+    }
+
+    private static void write(SpillOutputSink sink, String text)
+            throws Exception {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        sink.write(bytes, 0, bytes.length);
+    }
+
+    private static String text(ByteBuffer buffer) {
+        return StandardCharsets.US_ASCII.decode(buffer).toString();
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TailOutputSinkTest {
+
+    @Test
+    public void testWriteKeepsBytesBelowCapacity() {
+        TailOutputSink sink = new TailOutputSink(16);
+        write(sink, "foo");
+        write(sink, "bar");
+
+        assertEquals("foobar", sink.getText(StandardCharsets.US_ASCII));
+        assertFalse(sink.isTruncated());
+    }
+
+    @Test
+    public void testWriteKeepsOnlyTheTailAcrossWrapAround() {
+        TailOutputSink sink = new TailOutputSink(16);
+        write(sink, "0123456789");
+        write(sink, "abcdefghij");
+
+        assertEquals(
+            "456789abcdefghij",
+            sink.getText(StandardCharsets.US_ASCII)
+        );
+        assertEquals(20, sink.getTotalBytes());
+        assertTrue(sink.isTruncated());
+    }
+
+    @Test
+    public void testWriteLargerThanCapacityKeepsLastBytes() {
+        TailOutputSink sink = new TailOutputSink(16);
+        write(sink, "xy");
+        write(sink, "abcdefghijklmnopqrstuvwxyz");
+
+        assertEquals(
+            "klmnopqrstuvwxyz",
+            sink.getText(StandardCharsets.US_ASCII)
+        );
+        assertEquals(16, sink.size());
+    }
+
+    @Test(timeout=10000)
+    public void testExecBoundsStderrOfFailingTool() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c")
+            .addArgument(
+                "head -c 1000000 /dev/zero | tr '\\0' x >&2; "
+                + "echo last words >&2; exit 1"
+            )
+            .addRegularExitCode(0);
+        try {
+            exec.exec();
+            fail("ExecutionFailedException expected");
+        } catch (ExecutionFailedException e) {
+            assertTrue(e.getMessage().endsWith("last words"));
+            assertEquals(
+                TailOutputSink.DEFAULT_CAPACITY,
+                ((TailOutputSink) e.getResult().getStderr()).size()
+            );
+        }
+    }
+
+    @Test
+    public void testWriteGrowsRingUpToCapacity() {
+        TailOutputSink sink = new TailOutputSink(1000);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 300; ++i) {
+            String chunk = Integer.toString(i % 10);
+            expected.append(chunk);
+            write(sink, chunk);
+        }
+        assertEquals(expected.toString(), sink.getText(
+            StandardCharsets.US_ASCII
+        ));
+
+        for (int i = 0; i < 900; ++i) {
+            String chunk = Integer.toString(i % 7);
+            expected.append(chunk);
+            write(sink, chunk);
+        }
+        assertEquals(
+            expected.substring(200),
+            sink.getText(StandardCharsets.US_ASCII)
+        );
+        assertTrue(sink.isTruncated());
+    }
+
+    @Test
+    public void testGetTailReturnsLastBytes() {
+        TailOutputSink sink = new TailOutputSink(16);
+        assertEquals(0, sink.getTail(4).length);
+
+        write(sink, "0123456789abcdefghij");
+
+        assertEquals(
+            "ghij",
+            new String(sink.getTail(4), StandardCharsets.US_ASCII)
+        );
+    }
+
+    @Test(timeout=10000)
+    public void testExecReportsStderrOfSpillSink() {
+        AbstractExecutable exec = failing();
+        exec.setStderr(new SpillOutputSink(4));
+        try {
+            exec.exec();
+            fail("ExecutionFailedException expected");
+        } catch (ExecutionFailedException e) {
+            assertTrue(e.getMessage().endsWith("last words"));
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testExecBoundsFailureMessageOfSpillSink() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c")
+            .addArgument(
+                "head -c 1000000 /dev/zero | tr '\\0' x >&2; "
+                + "echo last words >&2; exit 1"
+            )
+            .addRegularExitCode(0);
+        exec.setStderr(new SpillOutputSink(1024));
+        try {
+            exec.exec();
+            fail("ExecutionFailedException expected");
+        } catch (ExecutionFailedException e) {
+            assertTrue(e.getMessage().endsWith("last words"));
+            assertTrue(
+                e.getMessage().length() <= ExecutionResult.MESSAGE_LIMIT
+            );
+            assertTrue(
+                e.getResult().getStderrText().length() > 1000000
+            );
+        }
+    }
+
+    @Test(timeout=10000)
+    public void testExecReportsStderrOfTeeSink() {
+        AbstractExecutable exec = failing();
+        exec.setStderr(new TeeOutputSink(
+            new DiscardOutputSink(),
+            new MemoryOutputSink()
+        ));
+        try {
+            exec.exec();
+            fail("ExecutionFailedException expected");
+        } catch (ExecutionFailedException e) {
+            assertTrue(e.getMessage().endsWith("last words"));
+        }
+    }
+
+    private static AbstractExecutable failing() {
+        AbstractExecutable exec = new DefaultExecutable("/bin/sh");
+        exec.addArgument("-c")
+            .addArgument("echo some output >&2; echo last words >&2; exit 1")
+            .addRegularExitCode(0);
+        return exec;
+    }
+
+    private static void write(TailOutputSink sink, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        sink.write(bytes, 0, bytes.length);
+    }
+}
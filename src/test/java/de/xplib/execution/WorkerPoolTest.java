@@ -0,0 +1,260 @@
+/**
+ * This file is part of the simple java execution helper library.
+ *
+ * Copyright (c) 2010, Manuel Pichler <mapi@phpmd.org>.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *   * Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *
+ *   * Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in
+ *     the documentation and/or other materials provided with the
+ *     distribution.
+ *
+ *   * Neither the name of Manuel Pichler nor the names of his
+ *     contributors may be used to endorse or promote products derived
+ *     from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT
+ * LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+ * FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE
+ * COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN
+ * ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * @author    Manuel Pichler <mapi@phpmd.org>
+ * @copyright 2010 Manuel Pichler. All rights reserved.
+ * @license   http://www.opensource.org/licenses/bsd-license.php BSD License
+ * @version   SVN: $Id$
+ * @link      http://phpmd.org
+ */
+
+package de.xplib.execution;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WorkerPoolTest {
+
+    private WorkerPool pool;
+
+    @Before
+    public void setUp() {
+        this.pool = new WorkerPool(
+            System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java",
+            "-cp",
+            System.getProperty("java.class.path"),
+            EchoWorker.class.getName()
+        );
+        this.pool.setMaxWorkers(1);
+    }
+
+    @After
+    public void tearDown() {
+        this.pool.close();
+    }
+
+    @Test(timeout=30000)
+    public void testExecReusesTheSameWorkerProcess() {
+        String first = this.call("foo", "bar");
+        String second = this.call("baz");
+
+        assertEquals("foo bar", first.substring(first.indexOf(':') + 1));
+        assertEquals(pid(first), pid(second));
+        assertEquals(1, this.pool.getWorkerCount());
+    }
+
+    @Test(timeout=30000)
+    public void testExecRecyclesWorkerAfterMaxRequests() {
+        this.pool.setMaxRequests(2);
+
+        String first = this.call("a");
+        String second = this.call("b");
+        String third = this.call("c");
+
+        assertEquals(pid(first), pid(second));
+        assertFalse(pid(second).equals(pid(third)));
+    }
+
+    @Test(timeout=30000)
+    public void testRecycledWorkerIsDestroyedWithoutBlockingTheCaller()
+            throws Exception {
+        this.pool.setMaxRequests(2);
+        this.call("warmup");
+
+        long start = System.nanoTime();
+        String response = this.call("linger");
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("Release blocked for " + millis + "ms", millis < 1000);
+
+        ProcessHandle worker =
+            ProcessHandle.of(Long.parseLong(pid(response))).get();
+        worker.onExit().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test(timeout=30000)
+    public void testExecThrowsFailedExceptionForInvalidExitCode() {
+        Executable exec = new WorkerExecutable(this.pool);
+        exec.addArgument("fail").addRegularExitCode(0);
+        try {
+            exec.exec();
+            fail("ExecutionFailedException expected");
+        } catch (ExecutionFailedException e) {
+            assertEquals("failed", e.getMessage());
+            assertEquals(2, exec.exitCode());
+        }
+    }
+
+    @Test(timeout=30000)
+    public void testExecKillsWorkerThatExceedsTheTimeout() {
+        String first = this.call("foo");
+
+        WorkerExecutable exec = new WorkerExecutable(this.pool);
+        exec.setTimeout(200, TimeUnit.MILLISECONDS);
+        exec.addArgument("sleep").addRegularExitCode(0);
+        try {
+            exec.exec();
+            fail("ExecutionTimeoutException expected");
+        } catch (ExecutionTimeoutException e) {
+            assertEquals(0, this.pool.getWorkerCount());
+        }
+
+        String second = this.call("bar");
+        assertFalse(pid(first).equals(pid(second)));
+    }
+
+    @Test(timeout=30000)
+    public void testExecTimesOutWhileWaitingForAnIdleWorker()
+            throws Exception {
+        WorkerExecutable slow = new WorkerExecutable(this.pool);
+        slow.addArgument("sleep").addRegularExitCode(0);
+        slow.setTimeout(2, TimeUnit.SECONDS);
+        Thread thread = new Thread(() -> {
+            try {
+                slow.exec();
+            } catch (ExecutionTimeoutException e) {
+                // Expected, the worker sleeps forever
+            }
+        });
+        thread.start();
+        while (this.pool.getWorkerCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        WorkerExecutable exec = new WorkerExecutable(this.pool);
+        exec.setTimeout(100, TimeUnit.MILLISECONDS);
+        exec.addArgument("foo").addRegularExitCode(0);
+        try {
+            exec.exec();
+            fail("ExecutionTimeoutException expected");
+        } catch (ExecutionTimeoutException e) {
+            assertEquals(null, exec.getResult());
+        }
+        thread.join();
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testSetStdinThrowsValidationException() {
+        new WorkerExecutable(this.pool).setStdin(
+            InputSources.bytes(new byte[0])
+        );
+    }
+
+    @Test(expected=ValidationException.class)
+    public void testSetStdoutRedirectThrowsValidationException() {
+        new WorkerExecutable(this.pool).setStdoutRedirect(
+            ProcessBuilder.Redirect.INHERIT
+        );
+    }
+
+    private String call(String... arguments) {
+        MemoryOutputSink stdout = new MemoryOutputSink();
+
+        Executable exec = new WorkerExecutable(this.pool);
+        for (String argument : arguments) {
+            exec.addArgument(argument);
+        }
+        exec.addRegularExitCode(0);
+        exec.setStdout(stdout);
+        exec.exec();
+
+        return stdout.getText(StandardCharsets.UTF_8);
+    }
+
+    private static String pid(String response) {
+        return response.substring(0, response.indexOf(':'));
+    }
+
+    public static final class EchoWorker {
+
+        public static void main(String[] args) throws Exception {
+            DataInputStream in = new DataInputStream(System.in);
+            DataOutputStream out = new DataOutputStream(System.out);
+            String pid = String.valueOf(ProcessHandle.current().pid());
+            boolean linger = false;
+
+            while (true) {
+                int count;
+                try {
+                    count = in.readInt();
+                } catch (EOFException e) {
+                    if (linger) {
+                        Thread.sleep(Long.MAX_VALUE);
+                    }
+                    return;
+                }
+                StringBuilder text = new StringBuilder();
+                String first = null;
+                for (int i = 0; i < count; ++i) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    String argument = new String(bytes, StandardCharsets.UTF_8);
+                    text.append(i == 0 ? "" : " ").append(argument);
+                    first = i == 0 ? argument : first;
+                }
+
+                linger = linger || "linger".equals(first);
+                if ("sleep".equals(first)) {
+                    Thread.sleep(Long.MAX_VALUE);
+                }
+
+                byte[] stdout = (pid + ":" + text)
+                    .getBytes(StandardCharsets.UTF_8);
+                byte[] stderr = "failed".getBytes(StandardCharsets.UTF_8);
+                boolean failed = "fail".equals(first);
+
+                out.writeInt(failed ? 2 : 0);
+                out.writeInt(stdout.length);
+                out.write(stdout);
+                out.writeInt(failed ? stderr.length : 0);
+                out.write(stderr, 0, failed ? stderr.length : 0);
+                out.flush();
+            }
+        }
+    }
+}